@@ -29,26 +29,22 @@
  */
 package com.rultor.base;
 
-import com.google.common.collect.ImmutableMap;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
-import com.jcabi.immutable.Array;
 import com.jcabi.log.Logger;
 import com.rultor.snapshot.Step;
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Instance;
+import com.rultor.spi.Schedule;
 import com.rultor.tools.Time;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.TimeZone;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.Validate;
 
 /**
  * Sends pulses through, only on certain time moments.
@@ -60,6 +56,22 @@ import org.apache.commons.lang3.Validate;
  *   my-custom-instance
  * )</pre>
  *
+ * <p>The syntax of the text is explained in {@link Schedule}.
+ *
+ * <p>Works triggered outside of the quartz (see
+ * {@link Coordinates.Triggered}, for example by a push hook) pass
+ * through regardless of the schedule, but only if the rule asks for it
+ * with {@code TRUE} as the third argument:
+ *
+ * <pre> com.rultor.base.Crontab(
+ *   ${0:?}, "0 3 * * *", TRUE,
+ *   my-custom-instance
+ * )</pre>
+ *
+ * <p>The text is compiled once into a {@link Schedule}, and compiled
+ * expressions are cached by text, so it's cheap to instantiate the class
+ * on every pulse.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -69,25 +81,16 @@ import org.apache.commons.lang3.Validate;
  */
 @Immutable
 @ToString
-@EqualsAndHashCode(of = { "work", "origin", "gates" })
+@EqualsAndHashCode(of = { "work", "origin", "compiled", "push" })
 @Loggable(Loggable.DEBUG)
 @SuppressWarnings({ "PMD.TooManyMethods", "PMD.CyclomaticComplexity" })
 public final class Crontab implements Instance {
 
     /**
-     * Pre-defined definitions.
-     * @see <a href="https://en.wikipedia.org/wiki/Cron#Predefined_scheduling_definitions">explanation</a>
+     * Compiled expressions, by text.
      */
-    private static final ImmutableMap<String, String> DEFS =
-        new ImmutableMap.Builder<String, String>()
-            // @checkstyle MultipleStringLiterals (1 line)
-            .put("@yearly", "0 0 1 1 *")
-            .put("@annually", "0 0 1 1 *")
-            .put("@monthly", "0 0 1 * *")
-            .put("@weekly", "0 0 * * 0")
-            .put("@daily", "0 0 * * *")
-            .put("@hourly", "0 * * * *")
-            .build();
+    private static final ConcurrentMap<String, Schedule> CACHE =
+        new ConcurrentHashMap<String, Schedule>(0);
 
     /**
      * Coordinates we're in.
@@ -100,23 +103,45 @@ public final class Crontab implements Instance {
     private final transient Instance origin;
 
     /**
-     * All gates.
+     * Compiled expression.
+     */
+    private final transient Schedule compiled;
+
+    /**
+     * Let triggered works through regardless of the schedule.
+     */
+    private final transient boolean push;
+
+    /**
+     * Public ctor.
+     * @param wrk Coordinates we're in
+     * @param text Mask to use
+     * @param instance Original instance
      */
-    private final transient Array<Crontab.Gate<Calendar>> gates;
+    public Crontab(
+        @NotNull(message = "work can't be NULL") final Coordinates wrk,
+        @NotNull(message = "crontab text can't be NULL") final String text,
+        @NotNull(message = "instance can't be NULL") final Instance instance) {
+        this(wrk, text, false, instance);
+    }
 
     /**
      * Public ctor.
      * @param wrk Coordinates we're in
      * @param text Mask to use
+     * @param trigger Let triggered works through regardless of the schedule
      * @param instance Original instance
+     * @checkstyle ParameterNumber (5 lines)
      */
     public Crontab(
         @NotNull(message = "work can't be NULL") final Coordinates wrk,
         @NotNull(message = "crontab text can't be NULL") final String text,
+        final boolean trigger,
         @NotNull(message = "instance can't be NULL") final Instance instance) {
         this.work = wrk;
         this.origin = instance;
-        this.gates = new Array<Crontab.Gate<Calendar>>(Crontab.split(text));
+        this.compiled = Crontab.compile(text);
+        this.push = trigger;
     }
 
     /**
@@ -135,7 +160,7 @@ public final class Crontab implements Instance {
      * @return The text
      */
     public String rules() {
-        return StringUtils.join(this.gates, " ");
+        return this.compiled.toString();
     }
 
     /**
@@ -145,402 +170,105 @@ public final class Crontab implements Instance {
      * Otherwise it's almost impossible to test the class.
      *
      * @param date The date to start counting from
-     * @return Milliseconds
+     * @return Milliseconds, or {@link Long#MAX_VALUE} if never
      */
     public long lag(final Time date) {
-        final Calendar today = Crontab.calendar(date);
-        long lag = 0;
-        for (Crontab.Gate<Calendar> gate : this.gates) {
-            lag += gate.lag(today);
+        final Time next = this.compiled.next(date);
+        final long lag;
+        if (next == null) {
+            lag = Long.MAX_VALUE;
+        } else {
+            lag = next.millis() - Crontab.calendar(date).getTimeInMillis();
         }
         return lag;
     }
 
+    /**
+     * Next moment when execution is allowed, not earlier than the
+     * given date (seconds are ignored).
+     * @param date The date to start from
+     * @return The moment
+     */
+    public Time next(@NotNull(message = "date can't be NULL") final Time date) {
+        final Time next = this.compiled.next(date);
+        if (next == null) {
+            throw new IllegalStateException(
+                String.format(
+                    "crontab `%s` never allows execution", this.rules()
+                )
+            );
+        }
+        return next;
+    }
+
+    /**
+     * Does this crontab text allow execution at the given moment?
+     *
+     * <p>This is the same check that {@link #pulse()} does, available for
+     * schedulers that want to skip rules that are not due.
+     *
+     * @param text Crontab text
+     * @param date The moment to check
+     * @return TRUE if allowed
+     */
+    public static boolean matches(
+        @NotNull(message = "crontab text can't be NULL") final String text,
+        @NotNull(message = "date can't be NULL") final Time date) {
+        return Crontab.compile(text).matches(date);
+    }
+
     /**
      * Execution allowed?
      * @return TRUE if allowed
      */
     @Step("Crontab `${this.rules}` #if(!$result)NOT#end allowed execution")
     private boolean allowed() {
-        final Calendar today = Crontab.calendar(this.work.scheduled());
-        Crontab.Gate<Calendar> denier = null;
-        for (Crontab.Gate<Calendar> gate : this.gates) {
-            if (!gate.pass(today)) {
-                denier = gate;
-                break;
-            }
-        }
-        if (denier == null) {
+        final Time time = this.work.scheduled();
+        final boolean triggered = this.push
+            && this.work instanceof Coordinates.Triggered;
+        final boolean allowed = triggered
+            || this.compiled.matches(time);
+        if (triggered) {
+            Logger.info(
+                this,
+                "Work scheduled at `%s` was triggered, crontab `%s` ignored",
+                time,
+                this.rules()
+            );
+        } else if (allowed) {
             Logger.info(
                 this,
                 "Crontab `%s` allows execution at `%s`",
                 this.rules(),
-                Crontab.moment(this.work.scheduled())
+                Crontab.moment(time)
             );
         } else {
             Logger.info(
                 this,
-                // @checkstyle LineLength (1 line)
-                "Not the right moment `%s` for `%s`, see you again in %[ms]s (denied by `%s`)",
-                Crontab.moment(this.work.scheduled()),
+                "Not the right moment `%s` for `%s`, see you again in %[ms]s",
+                Crontab.moment(time),
                 this.rules(),
-                this.lag(this.work.scheduled()),
-                denier
+                this.lag(time)
             );
         }
-        return denier == null;
+        return allowed;
     }
 
     /**
-     * Gate condition.
+     * Compile the text or take it from cache.
+     * @param text Text to compile
+     * @return Compiled expression
      */
-    @Immutable
-    private interface Gate<T> {
-        /**
-         * Pass or not.
-         * @param calendar Calendar to check
-         * @return TRUE if it's a good time to go through
-         */
-        boolean pass(T calendar);
-        /**
-         * How many milliseconds to wait before the next opportunity.
-         * @param calendar Calendar to check
-         * @return Lag in milliseconds
-         */
-        long lag(T calendar);
-    }
-
-    /**
-     * Abstract big gate.
-     */
-    @Immutable
-    @EqualsAndHashCode(of = "alternatives")
-    @Loggable(Loggable.DEBUG)
-    private abstract static class AbstractBigGate
-        implements Crontab.Gate<Calendar> {
-        /**
-         * All alternatives.
-         */
-        private final transient Array<Crontab.Gate<Integer>> alternatives;
-        /**
-         * Public ctor.
-         * @param text Text spec
-         */
-        @SuppressWarnings("unchecked")
-        protected AbstractBigGate(final String text) {
-            final String[] parts = text.split(",");
-            final Collection<Crontab.Gate<Integer>> alts =
-                new ArrayList<Crontab.Gate<Integer>>(parts.length);
-            for (int idx = 0; idx < parts.length; ++idx) {
-                alts.add(Crontab.parse(parts[idx]));
+    private static Schedule compile(final String text) {
+        Schedule compiled = Crontab.CACHE.get(text);
+        if (compiled == null) {
+            compiled = new Schedule(text);
+            if (Crontab.CACHE.size() > Tv.THOUSAND) {
+                Crontab.CACHE.clear();
             }
-            this.alternatives = new Array<Crontab.Gate<Integer>>(alts);
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public String toString() {
-            return StringUtils.join(this.alternatives, "|");
-        }
-        /**
-         * Matches the number?
-         * @param input Input number
-         * @return TRUE if matches
-         */
-        protected boolean matches(final int input) {
-            boolean matches = false;
-            for (Crontab.Gate<Integer> alternative : this.alternatives) {
-                if (alternative.pass(input)) {
-                    matches = true;
-                    break;
-                }
-            }
-            return matches;
-        }
-        /**
-         * Calculate the lag.
-         * @param input Input number
-         * @return Lag in milliseconds
-         */
-        protected long lag(final int input) {
-            long lag = Long.MAX_VALUE;
-            for (Crontab.Gate<Integer> alternative : this.alternatives) {
-                lag = Math.min(lag, alternative.lag(input));
-            }
-            return lag;
-        }
-    }
-
-    /**
-     * Exact gate.
-     */
-    @Immutable
-    @EqualsAndHashCode(of = "exact")
-    @Loggable(Loggable.DEBUG)
-    private static final class ExactGate implements Crontab.Gate<Integer> {
-        /**
-         * Exact value to match.
-         */
-        private final transient int exact;
-        /**
-         * Protected ctor.
-         * @param val The value to encapsulate
-         */
-        protected ExactGate(final int val) {
-            this.exact = val;
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public String toString() {
-            return Integer.toString(this.exact);
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean pass(final Integer num) {
-            return num == this.exact;
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public long lag(final Integer num) {
-            return Math.abs(num - this.exact);
-        }
-    }
-
-    /**
-     * Interval gate.
-     */
-    @Immutable
-    @EqualsAndHashCode(of = { "left", "right" })
-    @Loggable(Loggable.DEBUG)
-    private static final class IntervalGate implements Crontab.Gate<Integer> {
-        /**
-         * Left, inclusive.
-         */
-        private final transient int left;
-        /**
-         * Right, inclusive.
-         */
-        private final transient int right;
-        /**
-         * Protected ctor.
-         * @param lft Left, inclusive
-         * @param rgt Right, inclusive
-         */
-        protected IntervalGate(final int lft, final int rgt) {
-            Validate.isTrue(
-                lft < rgt, "left value %d should be less than right %d",
-                lft, rgt
-            );
-            this.left = lft;
-            this.right = rgt;
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public String toString() {
-            return String.format("%d-%d", this.left, this.right);
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean pass(final Integer num) {
-            return num >= this.left && num <= this.right;
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public long lag(final Integer num) {
-            long lag = 0;
-            if (!this.pass(num)) {
-                lag = Math.abs(num - this.left);
-            }
-            return lag;
-        }
-    }
-
-    /**
-     * Modulo gate.
-     */
-    @Immutable
-    @EqualsAndHashCode(of = "divisor")
-    @Loggable(Loggable.DEBUG)
-    private static final class ModuloGate implements Crontab.Gate<Integer> {
-        /**
-         * Divisor.
-         */
-        private final transient int divisor;
-        /**
-         * Protected ctor.
-         * @param div The divisor
-         */
-        protected ModuloGate(final int div) {
-            Validate.isTrue(
-                div > 0, "divisor %d has to be positive and non-zero",
-                div
-            );
-            this.divisor = div;
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public String toString() {
-            return String.format("*/%d", this.divisor);
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean pass(final Integer num) {
-            return num % this.divisor == 0;
-        }
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public long lag(final Integer num) {
-            long lag = 0;
-            if (!this.pass(num)) {
-                lag = ((num + this.divisor - 1)
-                    / this.divisor) * this.divisor - num;
-            }
-            return lag;
-        }
-    }
-
-    /**
-     * Parse text into alternative.
-     * @param part The text to parse
-     * @return Small gate condition
-     */
-    private static Crontab.Gate<Integer> parse(final String part) {
-        final Crontab.Gate<Integer> alternative;
-        if (part.matches("\\d+")) {
-            alternative = new Crontab.ExactGate(Integer.parseInt(part));
-        } else if (part.matches("\\d+-\\d+")) {
-            final String[] numbers = part.split("-");
-            alternative = new Crontab.IntervalGate(
-                Integer.parseInt(numbers[0]), Integer.parseInt(numbers[1])
-            );
-        } else if (part.matches("\\*/\\d+")) {
-            alternative = new Crontab.ModuloGate(
-                Integer.valueOf(part.substring(part.indexOf('/') + 1))
-            );
-        // @checkstyle MultipleStringLiterals (1 line)
-        } else if ("*".equals(part)) {
-            alternative = new Crontab.Gate<Integer>() {
-                @Override
-                public String toString() {
-                    return "*";
-                }
-                @Override
-                public boolean pass(final Integer num) {
-                    return true;
-                }
-                @Override
-                public long lag(final Integer num) {
-                    return 0L;
-                }
-            };
-        } else {
-            throw new IllegalArgumentException(
-                String.format("invalid crontab sector `%s`", part)
-            );
-        }
-        return alternative;
-    }
-
-    /**
-     * Split into parts.
-     * @param text Text to split
-     * @return Five parts, numbers
-     */
-    @SuppressWarnings("unchecked")
-    private static Crontab.Gate<Calendar>[] split(final String text) {
-        String src = text;
-        if (Crontab.DEFS.containsKey(src)) {
-            src = Crontab.DEFS.get(src);
-        }
-        final String[] parts = src.split("\\s+");
-        if (parts.length != Tv.FIVE) {
-            throw new IllegalArgumentException(
-                String.format("invalid crontab definition `%s`", text)
-            );
+            Crontab.CACHE.putIfAbsent(text, compiled);
         }
-        return (Crontab.Gate<Calendar>[]) new Crontab.Gate<?>[] {
-            new Crontab.AbstractBigGate(parts[0]) {
-                @Override
-                public boolean pass(final Calendar calendar) {
-                    return this.matches(calendar.get(Calendar.MINUTE));
-                }
-                @Override
-                public long lag(final Calendar calendar) {
-                    return this.lag(
-                        calendar.get(Calendar.MINUTE)
-                    ) * TimeUnit.MINUTES.toMillis(1);
-                }
-            },
-            new Crontab.AbstractBigGate(parts[1]) {
-                @Override
-                public boolean pass(final Calendar calendar) {
-                    return this.matches(calendar.get(Calendar.HOUR_OF_DAY));
-                }
-                @Override
-                public long lag(final Calendar calendar) {
-                    return this.lag(
-                        calendar.get(Calendar.HOUR_OF_DAY)
-                    ) * TimeUnit.HOURS.toMillis(1);
-                }
-            },
-            new Crontab.AbstractBigGate(parts[2]) {
-                @Override
-                public boolean pass(final Calendar calendar) {
-                    return this.matches(
-                        calendar.get(Calendar.DAY_OF_MONTH)
-                    );
-                }
-                @Override
-                public long lag(final Calendar calendar) {
-                    return this.lag(
-                        calendar.get(Calendar.DAY_OF_MONTH)
-                    ) * TimeUnit.DAYS.toMillis(1);
-                }
-            },
-            new Crontab.AbstractBigGate(parts[Tv.THREE]) {
-                @Override
-                public boolean pass(final Calendar calendar) {
-                    return this.matches(calendar.get(Calendar.MONTH) + 1);
-                }
-                @Override
-                public long lag(final Calendar calendar) {
-                    return this.lag(
-                        calendar.get(Calendar.MONTH) + 1
-                    ) * Tv.THIRTY * TimeUnit.DAYS.toMillis(1);
-                }
-            },
-            new Crontab.AbstractBigGate(parts[Tv.FOUR]) {
-                @Override
-                public boolean pass(final Calendar calendar) {
-                    return this.matches(calendar.get(Calendar.DAY_OF_WEEK));
-                }
-                @Override
-                public long lag(final Calendar calendar) {
-                    return this.lag(
-                        calendar.get(Calendar.DAY_OF_WEEK) - 1
-                    ) * TimeUnit.DAYS.toMillis(1);
-                }
-            },
-        };
+        return compiled;
     }
 
     /**
@@ -33,13 +33,12 @@ import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.log.Logger;
 import com.rultor.shell.Batch;
+import com.rultor.shell.LineOutputStream;
 import com.rultor.snapshot.Snapshot;
 import com.rultor.snapshot.XemblyLine;
 import com.rultor.tools.Exceptions;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.SequenceInputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.util.Map;
 import java.util.logging.Level;
@@ -47,14 +46,15 @@ import javax.json.Json;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
-import org.apache.commons.io.Charsets;
-import org.apache.commons.io.IOUtils;
 import org.xembly.Directives;
 import org.xembly.XemblySyntaxException;
 
 /**
  * Build.
  *
+ * <p>Output of the batch is not kept in memory. It is read line by line,
+ * as it arrives, and only xembly lines are taken from it.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -96,20 +96,21 @@ public final class Build {
     @Loggable(value = Loggable.DEBUG, limit = Integer.MAX_VALUE)
     public Snapshot exec(@NotNull(message = "args can't be NULL")
         final Map<String, Object> args) throws IOException {
-        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        final Build.Xembly xembly = new Build.Xembly();
+        final OutputStream stdout = new LineOutputStream(xembly);
         final long start = System.currentTimeMillis();
-        final int code = this.batch.exec(args, stdout);
+        final int code;
+        try {
+            code = this.batch.exec(args, stdout);
+        } finally {
+            stdout.close();
+        }
+        xembly.line(
+            this.makeTag(code, System.currentTimeMillis() - start)
+        );
         Snapshot snapshot;
         try {
-            snapshot = new Snapshot(
-                new SequenceInputStream(
-                    new ByteArrayInputStream(stdout.toByteArray()),
-                    IOUtils.toInputStream(
-                        this.makeTag(code, System.currentTimeMillis() - start),
-                        Charsets.UTF_8
-                    )
-                )
-            );
+            snapshot = xembly.snapshot();
         } catch (XemblySyntaxException ex) {
             snapshot = new Snapshot(
                 new Directives().add("error").set(Exceptions.stacktrace(ex))
@@ -153,4 +154,46 @@ public final class Build {
         return line.toString();
     }
 
+    /**
+     * Collector of xembly lines.
+     */
+    private static final class Xembly implements LineOutputStream.Consumer {
+        /**
+         * Xembly script collected so far.
+         */
+        @SuppressWarnings("PMD.AvoidStringBufferField")
+        private final transient StringBuffer script = new StringBuffer();
+        /**
+         * First syntax error, if any.
+         */
+        private transient XemblySyntaxException error;
+        @Override
+        public void line(final String line) {
+            if (XemblyLine.existsIn(line)) {
+                try {
+                    this.script.append(XemblyLine.parse(line).xembly());
+                } catch (XemblySyntaxException ex) {
+                    if (this.error == null) {
+                        this.error = ex;
+                    }
+                }
+            }
+        }
+        /**
+         * Make a snapshot of the collected script.
+         * @return Snapshot
+         * @throws XemblySyntaxException If some line was broken
+         * @checkstyle RedundantThrows (3 lines)
+         */
+        public Snapshot snapshot() throws XemblySyntaxException {
+            if (this.error != null) {
+                throw this.error;
+            }
+            if (this.script.length() == 0) {
+                this.script.append("XPATH '/snapshot';");
+            }
+            return new Snapshot(this.script.toString());
+        }
+    }
+
 }
@@ -29,8 +29,7 @@
  */
 package com.rultor.ci;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterators;
+import com.google.common.collect.AbstractIterator;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
@@ -89,6 +88,10 @@ public final class UnseenCommits implements Branch {
 
     /**
      * {@inheritDoc}
+     *
+     * <p>The log of the origin branch is walked from the latest commit
+     * down to the first commit seen before, which is a watermark: all
+     * older commits are considered seen and are not even read.
      */
     @Override
     @Loggable(value = Loggable.DEBUG, limit = Tv.FIVE)
@@ -97,15 +100,22 @@ public final class UnseenCommits implements Branch {
         return new Iterable<Commit>() {
             @Override
             public Iterator<Commit> iterator() {
-                return Iterators.filter(
-                    iterator,
-                    new Predicate<Commit>() {
-                        @Override
-                        public boolean apply(final Commit commit) {
-                            return !UnseenCommits.this.seen(commit);
+                return new AbstractIterator<Commit>() {
+                    @Override
+                    protected Commit computeNext() {
+                        Commit next = null;
+                        if (iterator.hasNext()) {
+                            next = iterator.next();
+                            if (UnseenCommits.this.seen(next)) {
+                                next = null;
+                            }
                         }
+                        if (next == null) {
+                            next = this.endOfData();
+                        }
+                        return next;
                     }
-                );
+                };
             }
         };
     }
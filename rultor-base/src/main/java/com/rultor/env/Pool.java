@@ -0,0 +1,430 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.env;
+
+import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseRunnable;
+import com.jcabi.log.VerboseThreads;
+import com.rultor.tools.Exceptions;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.ToString;
+
+/**
+ * Pool of idle environments acquired from the same origin.
+ *
+ * <p>The pool keeps the given number of environments, either idle or
+ * taken, and acquires new ones in background while there are less of
+ * them. Environments given back are cleaned and kept idle if the pool
+ * is not full, and closed otherwise (or if they can't be cleaned).
+ * When nobody takes environments from the pool for longer than the
+ * given idle time, it closes all idle ones and, as soon as none of them
+ * is taken, the pool is removed. Environments older than the given age
+ * are closed instead of being reused.
+ *
+ * <p>New environments are acquired from the origin given to the
+ * most recent {@link #take(Environments)}, in order to charge the
+ * wallet of the latest pulse.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = { "key", "max", "idleness", "age" })
+@SuppressWarnings({ "PMD.DoNotUseThreads", "PMD.TooManyMethods" })
+final class Pool implements Runnable {
+
+    /**
+     * Live pools, by their keys.
+     */
+    private static final ConcurrentMap<Object, Pool> POOLS =
+        new ConcurrentHashMap<Object, Pool>(0);
+
+    /**
+     * Cleaner of all pools.
+     */
+    private static final ScheduledExecutorService CLEANER =
+        Executors.newSingleThreadScheduledExecutor(
+            new VerboseThreads(Pool.class)
+        );
+
+    /**
+     * Threads that acquire new environments.
+     */
+    private static final ExecutorService PROVISIONERS =
+        Executors.newCachedThreadPool(new VerboseThreads(Pool.class));
+
+    /**
+     * Idle environments, the most recently returned first.
+     */
+    private final transient BlockingDeque<Pool.Idle> idle;
+
+    /**
+     * How many environments are taken from the pool now.
+     */
+    private final transient AtomicInteger leased = new AtomicInteger();
+
+    /**
+     * How many environments are being acquired or cleaned now.
+     */
+    private final transient AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * When an environment was taken from the pool last time.
+     */
+    private final transient AtomicLong used =
+        new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Schedule of this pool in the cleaner.
+     */
+    private final transient AtomicReference<ScheduledFuture<?>> schedule =
+        new AtomicReference<ScheduledFuture<?>>();
+
+    /**
+     * Origin of environments.
+     */
+    private final transient AtomicReference<Environments> origin;
+
+    /**
+     * Key of the pool.
+     */
+    private final transient Object key;
+
+    /**
+     * Cleanup of environments given back.
+     */
+    private final transient Cleanup cleanup;
+
+    /**
+     * Number of environments to keep, idle or taken.
+     */
+    private final transient int max;
+
+    /**
+     * Maximum idle time of the pool, in milliseconds.
+     */
+    private final transient long idleness;
+
+    /**
+     * Maximum age of an environment, in milliseconds.
+     */
+    private final transient long age;
+
+    /**
+     * Is it removed already?
+     */
+    private transient boolean dead;
+
+    /**
+     * Public ctor.
+     * @param name Key of the pool
+     * @param envs Origin of environments
+     * @param total Number of environments to keep, idle or taken
+     * @param msec Maximum idle time of the pool, in milliseconds
+     * @param oldest Maximum age of an environment, in milliseconds
+     * @param cln Cleanup of environments given back
+     * @checkstyle ParameterNumber (5 lines)
+     */
+    protected Pool(final Object name, final Environments envs,
+        final int total, final long msec, final long oldest,
+        final Cleanup cln) {
+        this.key = name;
+        this.origin = new AtomicReference<Environments>(envs);
+        this.max = total;
+        this.idleness = msec;
+        this.age = oldest;
+        this.cleanup = cln;
+        this.idle = new LinkedBlockingDeque<Pool.Idle>(total);
+    }
+
+    /**
+     * Find a live pool by its key, or make a new one that closes expired
+     * environments and acquires new ones in background, once a minute.
+     * @param name Key of the pool
+     * @param envs Origin of environments
+     * @param total Number of environments to keep, idle or taken
+     * @param msec Maximum idle time of the pool, in milliseconds
+     * @param oldest Maximum age of an environment, in milliseconds
+     * @param cln Cleanup of environments given back
+     * @return The pool
+     * @checkstyle ParameterNumber (5 lines)
+     */
+    public static Pool of(final Object name, final Environments envs,
+        final int total, final long msec, final long oldest,
+        final Cleanup cln) {
+        Pool pool = Pool.POOLS.get(name);
+        if (pool == null) {
+            synchronized (Pool.POOLS) {
+                pool = Pool.POOLS.get(name);
+                if (pool == null) {
+                    pool = new Pool(name, envs, total, msec, oldest, cln);
+                    pool.schedule.set(
+                        Pool.CLEANER.scheduleWithFixedDelay(
+                            new VerboseRunnable(pool, true, false),
+                            1, 1, TimeUnit.MINUTES
+                        )
+                    );
+                    Pool.POOLS.put(name, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        final long now = System.currentTimeMillis();
+        final boolean abandoned = now - this.used.get() > this.idleness;
+        final Iterator<Pool.Idle> envs = this.idle.iterator();
+        while (envs.hasNext()) {
+            final Pool.Idle env = envs.next();
+            if ((abandoned || !env.fresh(now - this.age))
+                && this.idle.remove(env)) {
+                Pool.close(env.environment());
+                Logger.info(this, "idle environment %s closed", env);
+            }
+        }
+        if (abandoned) {
+            this.retire();
+        } else {
+            this.refill();
+        }
+    }
+
+    /**
+     * Take an idle environment, if there is any.
+     *
+     * <p>If there is none, the caller is expected to acquire an
+     * environment from the origin and give it back to the pool later.
+     *
+     * @param envs Origin of environments to use from now on
+     * @return Environment or NULL if there are no idle environments
+     */
+    public Pool.Idle take(final Environments envs) {
+        synchronized (this) {
+            if (this.dead) {
+                return null;
+            }
+            this.leased.incrementAndGet();
+        }
+        this.origin.set(envs);
+        this.used.set(System.currentTimeMillis());
+        final long oldest = System.currentTimeMillis() - this.age;
+        Pool.Idle found = null;
+        while (found == null) {
+            final Pool.Idle env = this.idle.pollFirst();
+            if (env == null) {
+                break;
+            }
+            if (env.fresh(oldest)) {
+                found = env;
+            } else {
+                Pool.close(env.environment());
+            }
+        }
+        this.refill();
+        return found;
+    }
+
+    /**
+     * Give the environment back to the pool (or close it, if the pool
+     * is full or removed, the environment is too old, or it can't be
+     * cleaned).
+     * @param env The environment
+     * @param created When it was acquired from the origin
+     */
+    public void give(final Environment env, final long created) {
+        boolean kept = false;
+        if (this.release()) {
+            try {
+                kept = created > System.currentTimeMillis() - this.age
+                    && this.idle.size() + this.leased.get() < this.max
+                    && this.cleanup.clean(env)
+                    && this.idle.offerFirst(new Pool.Idle(env, created));
+            } catch (IOException ex) {
+                Exceptions.warn(this, ex);
+            } finally {
+                this.pending.decrementAndGet();
+            }
+        }
+        if (!kept) {
+            Pool.close(env);
+        }
+    }
+
+    /**
+     * Count an environment given back as pending, unless the pool is
+     * removed already.
+     * @return TRUE if the pool is alive
+     */
+    private boolean release() {
+        synchronized (this) {
+            if (!this.dead) {
+                this.leased.decrementAndGet();
+                this.pending.incrementAndGet();
+            }
+            return !this.dead;
+        }
+    }
+
+    /**
+     * Remove the pool, if it has no environments at all.
+     */
+    private void retire() {
+        synchronized (this) {
+            if (!this.dead && this.idle.isEmpty() && this.leased.get() == 0
+                && this.pending.get() == 0) {
+                this.dead = true;
+                this.schedule.get().cancel(false);
+                Pool.POOLS.remove(this.key, this);
+                Logger.info(this, "abandoned pool removed");
+            }
+        }
+    }
+
+    /**
+     * Start acquiring new environments in background, if there are
+     * less than needed, idle and taken.
+     */
+    private void refill() {
+        while (true) {
+            final int now = this.pending.get();
+            if (this.idle.size() + this.leased.get() + now >= this.max) {
+                break;
+            }
+            if (this.pending.compareAndSet(now, now + 1)) {
+                Pool.PROVISIONERS.submit(
+                    new VerboseRunnable(this.provision(), true, false)
+                );
+            }
+        }
+    }
+
+    /**
+     * Task that acquires one new environment.
+     * @return The task
+     */
+    private Runnable provision() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Environment env = Pool.this.origin.get().acquire();
+                    if (!Pool.this.idle.offerLast(
+                        new Pool.Idle(env, System.currentTimeMillis())
+                    )) {
+                        Pool.close(env);
+                    }
+                } catch (IOException ex) {
+                    Exceptions.warn(Pool.this, ex);
+                } finally {
+                    Pool.this.pending.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    /**
+     * Close the environment, reporting a failure in log.
+     * @param env The environment
+     */
+    private static void close(final Environment env) {
+        try {
+            env.close();
+        } catch (IOException ex) {
+            Exceptions.warn(Pool.class, ex);
+        }
+    }
+
+    /**
+     * Idle environment.
+     */
+    @ToString(of = "env")
+    static final class Idle {
+        /**
+         * The environment.
+         */
+        private final transient Environment env;
+        /**
+         * When it was acquired from the origin.
+         */
+        private final transient long created;
+        /**
+         * Ctor.
+         * @param environ The environment
+         * @param time When it was acquired from the origin
+         */
+        protected Idle(final Environment environ, final long time) {
+            this.env = environ;
+            this.created = time;
+        }
+        /**
+         * Get the environment.
+         * @return The environment
+         */
+        public Environment environment() {
+            return this.env;
+        }
+        /**
+         * When it was acquired from the origin.
+         * @return Time in milliseconds
+         */
+        public long created() {
+            return this.created;
+        }
+        /**
+         * Was it acquired after the given moment?
+         * @param oldest The moment, in milliseconds
+         * @return TRUE if it can be used
+         */
+        public boolean fresh(final long oldest) {
+            return this.created > oldest;
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.env;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.urn.URN;
+import com.rultor.snapshot.Step;
+import com.rultor.spi.Coordinates;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Environments taken from a pool of idle ones.
+ *
+ * <p>The pool keeps {@code total} environments acquired from the origin,
+ * idle or in use, and acquires them in advance, so that
+ * {@link #acquire()} doesn't wait for them to boot. The pool belongs
+ * to one rule of one owner, and lives between its pulses. New
+ * environments are acquired with the origin of the latest pulse, in
+ * order to charge its wallet. When nobody acquires environments for
+ * {@code idle} minutes, all idle environments are closed and the pool
+ * is removed. Environments older than {@code age} minutes are closed
+ * instead of being reused.
+ *
+ * <p>When an environment is closed by its user, it is given to the
+ * {@link Cleanup} and returned to the pool only if the cleanup reports
+ * it clean (and the pool is not full). Without a cleanup environments
+ * are never reused, and the pool only acquires them in advance.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(
+    of = { "owner", "rule", "origin", "total", "idle", "age", "cleanup" }
+)
+@Loggable(Loggable.DEBUG)
+public final class Pooled implements Environments {
+
+    /**
+     * Owner of the rule.
+     */
+    private final transient URN owner;
+
+    /**
+     * Name of the rule.
+     */
+    private final transient String rule;
+
+    /**
+     * Origin of environments.
+     */
+    private final transient Environments origin;
+
+    /**
+     * Cleanup of environments closed by their users.
+     */
+    private final transient Cleanup cleanup;
+
+    /**
+     * Number of environments to keep, idle or in use.
+     */
+    private final transient int total;
+
+    /**
+     * Maximum idle time of the pool, in minutes.
+     */
+    private final transient int idle;
+
+    /**
+     * Maximum age of an environment, in minutes.
+     */
+    private final transient int age;
+
+    /**
+     * Public ctor, with environments that are never reused.
+     * @param work Coordinates we're in
+     * @param max Number of environments to keep, idle or in use
+     * @param minutes Maximum idle time of the pool, in minutes
+     * @param oldest Maximum age of an environment, in minutes
+     * @param envs Origin of environments
+     * @checkstyle ParameterNumber (5 lines)
+     */
+    public Pooled(final Coordinates work, final int max, final int minutes,
+        final int oldest, final Environments envs) {
+        this(work, max, minutes, oldest, envs, new Cleanup.Discard());
+    }
+
+    /**
+     * Public ctor.
+     * @param work Coordinates we're in
+     * @param max Number of environments to keep, idle or in use
+     * @param minutes Maximum idle time of the pool, in minutes
+     * @param oldest Maximum age of an environment, in minutes
+     * @param envs Origin of environments
+     * @param cln Cleanup of environments before they are reused
+     * @checkstyle ParameterNumber (10 lines)
+     */
+    public Pooled(
+        @NotNull(message = "work can't be NULL") final Coordinates work,
+        final int max, final int minutes, final int oldest,
+        @NotNull(message = "environments can't be NULL")
+        final Environments envs,
+        @NotNull(message = "cleanup can't be NULL") final Cleanup cln) {
+        Validate.isTrue(max > 0, "Pool size must be positive, %d given", max);
+        Validate.isTrue(
+            minutes > 0, "Idle time must be positive, %d given", minutes
+        );
+        Validate.isTrue(oldest > 0, "Age must be positive, %d given", oldest);
+        this.owner = work.owner();
+        this.rule = work.rule();
+        this.total = max;
+        this.idle = minutes;
+        this.age = oldest;
+        this.origin = envs;
+        this.cleanup = cln;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Step("environment `${result}` acquired from pool")
+    public Environment acquire() throws IOException {
+        final Pool pool = Pool.of(
+            this, this.origin, this.total,
+            TimeUnit.MINUTES.toMillis(this.idle),
+            TimeUnit.MINUTES.toMillis(this.age),
+            this.cleanup
+        );
+        final Pool.Idle found = pool.take(this.origin);
+        final Environment env;
+        final long created;
+        if (found == null) {
+            env = this.origin.acquire();
+            created = System.currentTimeMillis();
+        } else {
+            env = found.environment();
+            created = found.created();
+        }
+        return new Pooled.Lease(pool, env, created);
+    }
+
+    /**
+     * Environment that goes back to the pool when closed.
+     */
+    @ToString(of = "env")
+    @EqualsAndHashCode(of = "env")
+    private static final class Lease implements Environment {
+        /**
+         * The pool it is taken from.
+         */
+        private final transient Pool pool;
+        /**
+         * The environment.
+         */
+        private final transient Environment env;
+        /**
+         * When it was acquired from the origin.
+         */
+        private final transient long created;
+        /**
+         * Is it closed already?
+         */
+        private final transient AtomicBoolean closed = new AtomicBoolean();
+        /**
+         * Ctor.
+         * @param source The pool it is taken from
+         * @param environ The environment
+         * @param time When it was acquired from the origin
+         */
+        protected Lease(final Pool source, final Environment environ,
+            final long time) {
+            this.pool = source;
+            this.env = environ;
+            this.created = time;
+        }
+        @Override
+        public InetAddress address() throws IOException {
+            return this.env.address();
+        }
+        @Override
+        public void close() {
+            if (this.closed.compareAndSet(false, true)) {
+                this.pool.give(this.env, this.created);
+            }
+        }
+    }
+
+}
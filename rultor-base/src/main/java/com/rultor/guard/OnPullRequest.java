@@ -29,6 +29,7 @@
  */
 package com.rultor.guard;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
@@ -42,28 +43,45 @@ import com.rultor.stateful.ConcurrentNotepad;
 import com.rultor.tools.Exceptions;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import javax.json.Json;
 import javax.json.stream.JsonGenerator;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.apache.commons.lang3.Validate;
 import org.xembly.Directives;
 import org.xembly.ImpossibleModificationException;
 
 /**
  * On pull request.
  *
+ * <p>Up to {@code threads} pull requests are built at the same time,
+ * each one in its own thread, which belongs to the thread group of
+ * the pulse, so that their steps and tags land in the same snapshot.
+ * A pull request is taken only when a thread is free for it, and
+ * only if the notepad doesn't have it yet, so requests that are not
+ * started yet are left for other conveyers.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
  */
 @Immutable
 @ToString
-@EqualsAndHashCode(of = { "requests", "busy", "batch" })
+@EqualsAndHashCode(of = { "requests", "busy", "batch", "threads" })
 @Loggable(Loggable.DEBUG)
+@SuppressWarnings("PMD.DoNotUseThreads")
 public final class OnPullRequest implements Instance {
 
     /**
@@ -81,19 +99,40 @@ public final class OnPullRequest implements Instance {
      */
     private final transient Batch batch;
 
+    /**
+     * How many requests to build at the same time.
+     */
+    private final transient int threads;
+
     /**
      * Public ctor.
      * @param rqsts Requests
      * @param ntp Notepad
      * @param btch Batch to use
      */
+    public OnPullRequest(final MergeRequests rqsts,
+        final ConcurrentNotepad ntp, final Batch btch) {
+        this(rqsts, ntp, btch, 1);
+    }
+
+    /**
+     * Public ctor.
+     * @param rqsts Requests
+     * @param ntp Notepad
+     * @param btch Batch to use
+     * @param total How many requests to build at the same time
+     * @checkstyle ParameterNumber (7 lines)
+     */
     public OnPullRequest(
         @NotNull(message = "requests can't be NULL") final MergeRequests rqsts,
         @NotNull(message = "notepad can't be NULL") final ConcurrentNotepad ntp,
-        @NotNull(message = "batch can't be NULL") final Batch btch) {
+        @NotNull(message = "batch can't be NULL") final Batch btch,
+        final int total) {
+        Validate.isTrue(total > 0, "Threads must be positive, %d given", total);
         this.requests = rqsts;
         this.busy = ntp;
         this.batch = btch;
+        this.threads = total;
     }
 
     /**
@@ -102,18 +141,73 @@ public final class OnPullRequest implements Instance {
     @Override
     @Loggable(value = Loggable.DEBUG, limit = Integer.MAX_VALUE)
     public void pulse() throws Exception {
-        final Iterator<MergeRequest> iterator = this.requests.iterator();
-        while (iterator.hasNext()) {
-            final MergeRequest request = iterator.next();
-            if (!this.busy.addIfAbsent(request.name())) {
-                continue;
+        final ExecutorService svc = Executors.newFixedThreadPool(this.threads);
+        final Semaphore slots = new Semaphore(this.threads);
+        final Collection<Future<Boolean>> futures =
+            new LinkedList<Future<Boolean>>();
+        try {
+            final Iterator<MergeRequest> iterator = this.requests.iterator();
+            while (iterator.hasNext()) {
+                final MergeRequest request = iterator.next();
+                slots.acquire();
+                if (!this.busy.addIfAbsent(request.name())) {
+                    slots.release();
+                    continue;
+                }
+                futures.add(svc.submit(this.task(request, slots)));
             }
+            OnPullRequest.await(futures);
+        } finally {
+            svc.shutdownNow();
+        }
+    }
+
+    /**
+     * Task that merges the request and releases it.
+     * @param request The request to merge
+     * @param slots Slots to release when done
+     * @return Task
+     */
+    private Callable<Boolean> task(final MergeRequest request,
+        final Semaphore slots) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws IOException {
+                try {
+                    return OnPullRequest.this.merge(request);
+                } finally {
+                    OnPullRequest.this.busy.remove(request.name());
+                    slots.release();
+                }
+            }
+            @Override
+            public String toString() {
+                return request.name();
+            }
+        };
+    }
+
+    /**
+     * Wait for all tasks and throw the first failure, if any.
+     * @param futures Futures of tasks
+     * @throws Exception If any of them failed
+     */
+    private static void await(final Collection<Future<Boolean>> futures)
+        throws Exception {
+        Throwable failure = null;
+        for (Future<Boolean> future : futures) {
             try {
-                this.merge(request);
-            } finally {
-                this.busy.remove(request.name());
+                future.get();
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause();
+                }
             }
         }
+        if (failure != null) {
+            Throwables.propagateIfPossible(failure, Exception.class);
+            throw new IllegalStateException(failure);
+        }
     }
 
     /**
@@ -31,7 +31,11 @@ package com.rultor.guard.github;
 
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.eclipse.egit.github.core.PullRequest;
@@ -179,4 +183,66 @@ public interface Approval {
         }
     }
 
+    /**
+     * Approval that remembers answers of another one.
+     *
+     * <p>An answer is remembered per repository, pull request, SHA of
+     * its head commit and time of its last update. Any new commit or
+     * comment changes the key, and the approval is asked again.
+     * Requests without a head or an update time are never remembered.
+     */
+    @Immutable
+    @ToString
+    @EqualsAndHashCode(of = "origin")
+    @Loggable(Loggable.DEBUG)
+    final class Cached implements Approval {
+        /**
+         * Answers already known, shared by all instances.
+         */
+        private static final Map<String, Boolean> ANSWERS =
+            Collections.synchronizedMap(
+                new LinkedHashMap<String, Boolean>(Tv.HUNDRED, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+                    @Override
+                    protected boolean removeEldestEntry(
+                        final Map.Entry<String, Boolean> eldest) {
+                        return this.size() > Tv.THOUSAND;
+                    }
+                }
+            );
+        /**
+         * The approval to ask.
+         */
+        private final transient Approval origin;
+        /**
+         * Public ctor.
+         * @param app Approval to ask
+         */
+        public Cached(final Approval app) {
+            this.origin = app;
+        }
+        @Override
+        public boolean has(final PullRequest request, final Github client,
+            final Github.Repo repo) throws IOException {
+            final boolean has;
+            if (request.getHead() == null || request.getUpdatedAt() == null) {
+                has = this.origin.has(request, client, repo);
+            } else {
+                final String key = String.format(
+                    "%s#%d@%s/%d %s", repo.generateId(), request.getNumber(),
+                    request.getHead().getSha(),
+                    request.getUpdatedAt().getTime(), this.origin
+                );
+                final Boolean known = Approval.Cached.ANSWERS.get(key);
+                if (known == null) {
+                    has = this.origin.has(request, client, repo);
+                    Approval.Cached.ANSWERS.put(key, has);
+                } else {
+                    has = known;
+                }
+            }
+            return has;
+        }
+    }
+
 }
@@ -0,0 +1,305 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.guard.github;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.log.Logger;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+
+/**
+ * Github client that sends conditional GET requests.
+ *
+ * <p>Bodies of GET responses are kept in memory together with their
+ * {@code ETag} and {@code Last-Modified} headers, per credentials and URL
+ * (only an MD5 hash of the {@code Authorization} header is kept).
+ * Next time the same URI is requested, these headers are sent back
+ * as {@code If-None-Match} and {@code If-Modified-Since}, and
+ * if Github replies with {@code 304 Not Modified} the body is taken
+ * from the cache. Such replies don't count against the rate limit.
+ *
+ * <p>The cache is shared by all instances of the class and keeps
+ * up to {@link #MAX} most recently used responses.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class CachedClient extends GitHubClient {
+
+    /**
+     * Maximum number of responses to keep.
+     */
+    private static final int MAX = Tv.THOUSAND;
+
+    /**
+     * Default port of HTTP.
+     */
+    private static final int HTTP = 80;
+
+    /**
+     * Default port of HTTPS.
+     */
+    private static final int HTTPS = 443;
+
+    /**
+     * Cached responses, by credentials and URI.
+     */
+    private static final Map<String, CachedClient.Entry> CACHE =
+        Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedClient.Entry>(
+                Tv.HUNDRED, 0.75f, true
+            ) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(
+                    final Map.Entry<String, CachedClient.Entry> eldest) {
+                    return this.size() > CachedClient.MAX;
+                }
+            }
+        );
+
+    /**
+     * Scheme, host and port of the server.
+     */
+    private final transient String server;
+
+    /**
+     * MD5 hash of Authorization header, or empty if anonymous.
+     */
+    private transient String auth = "";
+
+    /**
+     * Public ctor.
+     */
+    CachedClient() {
+        this(GitHubClient.HOST_API, -1, GitHubClient.PROTOCOL_HTTPS);
+    }
+
+    /**
+     * Public ctor.
+     * @param host Host name
+     * @param port Port
+     * @param scheme Scheme
+     */
+    CachedClient(final String host, final int port, final String scheme) {
+        super(host, port, scheme);
+        this.server = String.format(
+            "%s://%s:%d", scheme.toLowerCase(Locale.ENGLISH),
+            host.toLowerCase(Locale.ENGLISH), CachedClient.port(scheme, port)
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GitHubClient setCredentials(final String user,
+        final String password) {
+        super.setCredentials(user, password);
+        if (user == null || user.isEmpty()
+            || password == null || password.isEmpty()) {
+            this.auth = "";
+        } else {
+            this.auth = DigestUtils.md5Hex(
+                String.format(
+                    "Basic %s",
+                    Base64.encodeBase64String(
+                        String.format("%s:%s", user, password)
+                            .getBytes(Charsets.UTF_8)
+                    )
+                )
+            );
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GitHubClient setOAuth2Token(final String token) {
+        super.setOAuth2Token(token);
+        if (token == null || token.isEmpty()) {
+            this.auth = "";
+        } else {
+            this.auth = DigestUtils.md5Hex(String.format("token %s", token));
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GitHubResponse get(final GitHubRequest request)
+        throws IOException {
+        final String uri = request.generateUri();
+        final String accept = request.getResponseContentType();
+        final String key = String.format(
+            "%s %s %s%s", this.auth, accept, this.server, uri
+        );
+        final HttpURLConnection http = this.createGet(uri);
+        if (accept != null) {
+            http.setRequestProperty("Accept", accept);
+        }
+        final CachedClient.Entry cached = CachedClient.CACHE.get(key);
+        if (cached != null) {
+            cached.condition(http);
+        }
+        final int code = http.getResponseCode();
+        this.updateRateLimits(http);
+        final GitHubResponse response;
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            Logger.debug(this, "#get(%s): not modified", uri);
+            response = cached.response(this, request);
+        } else if (this.isOk(code)) {
+            final CachedClient.Entry entry = new CachedClient.Entry(
+                http, IOUtils.toByteArray(this.getStream(http))
+            );
+            if (entry.cacheable()) {
+                CachedClient.CACHE.put(key, entry);
+            } else {
+                CachedClient.CACHE.remove(key);
+            }
+            response = entry.response(this, request);
+        } else if (this.isEmpty(code)) {
+            CachedClient.CACHE.remove(key);
+            response = new GitHubResponse(http, null);
+        } else {
+            CachedClient.CACHE.remove(key);
+            throw this.createException(
+                this.getStream(http), code, http.getResponseMessage()
+            );
+        }
+        return response;
+    }
+
+    /**
+     * Port to use, with default ports of HTTP and HTTPS instead of -1.
+     * @param scheme Scheme
+     * @param port Port, or -1 if default
+     * @return Port
+     */
+    private static int port(final String scheme, final int port) {
+        final int num;
+        if (port != -1) {
+            num = port;
+        } else if ("http".equalsIgnoreCase(scheme)) {
+            num = CachedClient.HTTP;
+        } else {
+            num = CachedClient.HTTPS;
+        }
+        return num;
+    }
+
+    /**
+     * Cached response.
+     */
+    private static final class Entry {
+        /**
+         * Connection with headers of the response.
+         */
+        private final transient HttpURLConnection http;
+        /**
+         * ETag header, or NULL.
+         */
+        private final transient String etag;
+        /**
+         * Last-Modified header, or NULL.
+         */
+        private final transient String modified;
+        /**
+         * Body of the response.
+         */
+        private final transient byte[] body;
+        /**
+         * Public ctor.
+         * @param conn Connection with response headers
+         * @param bytes Body of the response
+         */
+        Entry(final HttpURLConnection conn, final byte[] bytes) {
+            this.http = conn;
+            this.etag = conn.getHeaderField("ETag");
+            this.modified = conn.getHeaderField("Last-Modified");
+            this.body = bytes;
+        }
+        /**
+         * Can it be used in conditional requests?
+         * @return TRUE if it has ETag or Last-Modified
+         */
+        public boolean cacheable() {
+            return this.etag != null || this.modified != null;
+        }
+        /**
+         * Make a request conditional.
+         * @param conn Connection, not yet sent
+         */
+        public void condition(final HttpURLConnection conn) {
+            if (this.etag != null) {
+                conn.setRequestProperty("If-None-Match", this.etag);
+            }
+            if (this.modified != null) {
+                conn.setRequestProperty("If-Modified-Since", this.modified);
+            }
+        }
+        /**
+         * Make a response of it.
+         *
+         * <p>The body is parsed every time, since parsed objects are
+         * mutable and may be modified by the caller.
+         *
+         * @param client Client to parse the body
+         * @param request The request
+         * @return Response
+         * @throws IOException If fails
+         */
+        public GitHubResponse response(final CachedClient client,
+            final GitHubRequest request) throws IOException {
+            return new GitHubResponse(
+                this.http,
+                client.getBody(request, new ByteArrayInputStream(this.body))
+            );
+        }
+    }
+
+}
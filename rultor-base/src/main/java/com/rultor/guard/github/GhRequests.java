@@ -51,6 +51,9 @@ import org.eclipse.egit.github.core.service.PullRequestService;
 /**
  * Pull requests.
  *
+ * <p>Answers of the approval are remembered until the pull request
+ * gets a new commit or is updated otherwise (see {@link Approval.Cached}).
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -118,7 +121,7 @@ public final class GhRequests implements MergeRequests {
         @NotNull(message = "approval can't be NULL") final Approval appr) {
         this.github = ghub;
         this.repository = rep;
-        this.approval = appr;
+        this.approval = new Approval.Cached(appr);
     }
 
     /**
@@ -126,7 +126,7 @@ public interface Github {
          */
         @Override
         public GitHubClient client() {
-            final GitHubClient client = new GitHubClient();
+            final GitHubClient client = new CachedClient();
             client.setUserAgent("www.rultor.com");
             client.setCredentials(this.username, this.password);
             return client;
@@ -48,12 +48,16 @@ import java.util.Collection;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.apache.commons.codec.digest.DigestUtils;
 
 /**
  * Git.
  *
  * <p>It is assumed that BASH is installed inside that shell.
  *
+ * <p>Objects of one remote repository are stored once per shell, in
+ * a reference repository shared by all rules that use it.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -64,6 +68,12 @@ import lombok.ToString;
 @Loggable(Loggable.DEBUG)
 public final class Git implements SCM {
 
+    /**
+     * Directory with reference repositories, relative to the home
+     * directory of the shell.
+     */
+    private static final String CACHE = ".rultor-git";
+
     /**
      * Terminal to use.
      */
@@ -133,6 +143,9 @@ public final class Git implements SCM {
 
     /**
      * {@inheritDoc}
+     *
+     * <p>Only this branch (or tag) is fetched, and only if its remote
+     * ref changed since the last fetch.
      */
     @Override
     @Tag("git")
@@ -141,12 +154,25 @@ public final class Git implements SCM {
     @Loggable(value = Loggable.DEBUG, limit = Tv.FIVE)
     public Branch checkout(final String name) throws IOException {
         this.terminal.exec(
-            new StringBuilder(this.reset())
+            new StringBuilder(this.prepare())
                 .append(" && BRANCH=")
                 .append(Terminal.quotate(Terminal.escape(name)))
+                .append(
+                    Git.sync(
+                        DigestUtils.md5Hex(name),
+                        "refs/heads/$BRANCH refs/tags/$BRANCH",
+                        new StringBuilder()
+                            // @checkstyle LineLength (1 line)
+                            .append("if echo \"$REFS\" | grep -q refs/heads/; then SRC=refs/heads/$BRANCH && DST=refs/remotes/origin/$BRANCH; else SRC=refs/tags/$BRANCH && DST=$SRC; fi")
+                            .append(" && ")
+                            .append(Git.locked("git --git-dir=\"$CACHE\" fetch $URL \"+$SRC:$SRC\""))
+                            .append(" && git fetch \"$CACHE\" \"+$SRC:$DST\"")
+                            .toString()
+                    )
+                )
                 // @checkstyle LineLength (2 lines)
                 .append(" && if [ $(git rev-parse --abbrev-ref HEAD) != $BRANCH ]; then git checkout $BRANCH; fi")
-                .append(" && if git for-each-ref refs/heads/$BRANCH | grep commit; then git pull; fi")
+                .append(" && if git for-each-ref refs/heads/$BRANCH | grep commit; then git reset --hard origin/$BRANCH; fi")
                 .toString(),
             this.key.asText()
         );
@@ -155,6 +181,9 @@ public final class Git implements SCM {
 
     /**
      * {@inheritDoc}
+     *
+     * <p>Branches and tags are fetched only if any of remote refs
+     * changed since the last fetch.
      */
     @Override
     @Tag("git")
@@ -164,7 +193,23 @@ public final class Git implements SCM {
         return Collections2.transform(
             Arrays.asList(
                 this.terminal.exec(
-                    new StringBuilder(this.reset())
+                    new StringBuilder(this.prepare())
+                        .append(
+                            Git.sync(
+                                "all",
+                                "--heads --tags",
+                                new StringBuilder()
+                                    .append(
+                                        Git.locked(
+                                            // @checkstyle LineLength (1 line)
+                                            "git --git-dir=\"$CACHE\" fetch --prune $URL \"+refs/heads/*:refs/heads/*\" \"+refs/tags/*:refs/tags/*\" 1>&2"
+                                        )
+                                    )
+                                    // @checkstyle LineLength (1 line)
+                                    .append(" && git fetch \"$CACHE\" --prune \"+refs/heads/*:refs/remotes/origin/*\" \"+refs/tags/*:refs/tags/*\" 1>&2")
+                                    .toString()
+                            )
+                        )
                         // @checkstyle LineLength (1 line)
                         .append(" && git for-each-ref --format='%(refname:short)' refs/remotes/origin refs/tags")
                         .toString(),
@@ -185,28 +230,90 @@ public final class Git implements SCM {
     }
 
     /**
-     * Start script, to clone the repo.
+     * Start script, to clone the repo if it is absent.
+     *
+     * <p>All objects are kept in a bare reference repository, shared by
+     * all working copies of the same remote URL on this host. Working
+     * copies borrow objects from it through Git alternates and fetch
+     * from it locally, while only the reference repository talks to
+     * the remote.
+     *
      * @return Script to start
      */
-    private String reset() {
+    private String prepare() {
         return new StringBuilder()
             .append("DIR=$(pwd)/")
             .append(Terminal.quotate(Terminal.escape(this.dir)))
             .append(" && URL=")
             .append(Terminal.quotate(Terminal.escape(this.url.value())))
-            .append(" && mkdir -p \"$DIR\"")
+            .append(" && CACHE=$(pwd)/")
+            .append(Git.CACHE)
+            .append('/')
+            .append(DigestUtils.md5Hex(this.url.value()))
+            .append(".git")
+            .append(" && mkdir -p \"$DIR\" \"$(dirname \"$CACHE\")\"")
             .append(" && ( cat > \"$DIR/id_rsa\" )")
             // @checkstyle LineLength (1 line)
             .append(" && ( echo \"set -x && git -o UserKnownHostsFile=/dev/null -o StrictHostKeyChecking=no -i \\\"$DIR/id_rsa\\\" $@\" > \"$DIR/git-ssh.sh\" )")
             .append(" && GIT_SSH=$DIR/git-ssh.sh")
+            .append(" && ")
+            .append(
+                Git.locked(
+                    // @checkstyle LineLength (1 line)
+                    "if [ ! -d \"$CACHE\" ]; then git clone --bare $URL \"$CACHE\" && git --git-dir=\"$CACHE\" config gc.pruneExpire never; fi"
+                )
+            )
             // @checkstyle LineLength (1 line)
-            .append(" && if [ ! -d $DIR/repo ]; then git clone $URL $DIR/repo; fi")
+            .append(" && if [ ! -d $DIR/repo ]; then git clone --shared \"$CACHE\" $DIR/repo; fi")
             .append(" && cd $DIR/repo")
             .append(" && git remote set-url origin $URL")
-            .append(" && git remote update -p")
-            .append(" && git fetch origin --prune --tags")
-            .append(" && git reset --hard")
-            .append(" && git clean -f -d")
+            // @checkstyle LineLength (1 line)
+            .append(" && ( grep -qsx \"$CACHE/objects\" .git/objects/info/alternates || echo \"$CACHE/objects\" >> .git/objects/info/alternates )")
+            .toString();
+    }
+
+    /**
+     * Script that runs under an exclusive lock of the reference repository.
+     * @param script Script to run
+     * @return Script
+     */
+    private static String locked(final String script) {
+        return new StringBuilder()
+            .append("( flock 9 && ")
+            .append(script)
+            .append(" ) 9>\"$CACHE.lock\"")
+            .toString();
+    }
+
+    /**
+     * Script that fetches from origin only when remote refs changed.
+     *
+     * <p>Remote refs are listed by {@code git ls-remote}, which is cheap,
+     * and compared with the list saved after the previous fetch. If they
+     * are the same, nothing is fetched and the working copy is reset
+     * only if it is dirty.
+     *
+     * @param state Name of the file with refs saved
+     * @param refs Refs to list, as arguments of {@code git ls-remote}
+     * @param fetch Script that fetches them
+     * @return Script
+     */
+    private static String sync(final String state, final String refs,
+        final String fetch) {
+        return new StringBuilder()
+            .append(" && STATE=\"$DIR/")
+            .append(state)
+            .append(".refs\"")
+            .append(" && REFS=$(git ls-remote origin ")
+            .append(refs)
+            .append(')')
+            // @checkstyle LineLength (1 line)
+            .append(" && if [ \"$REFS\" != \"$(cat \"$STATE\" 2>/dev/null)\" ]; then ")
+            .append(fetch)
+            .append(" && git reset --hard 1>&2 && git clean -f -d 1>&2")
+            .append(" && echo \"$REFS\" > \"$STATE\";")
+            // @checkstyle LineLength (1 line)
+            .append(" elif [ -n \"$(git status --porcelain)\" ]; then git reset --hard 1>&2 && git clean -f -d 1>&2; fi")
             .toString();
     }
 }
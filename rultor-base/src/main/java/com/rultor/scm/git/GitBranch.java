@@ -29,6 +29,7 @@
  */
 package com.rultor.scm.git;
 
+import com.google.common.collect.AbstractIterator;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.RetryOnFailure;
@@ -38,8 +39,9 @@ import com.rultor.scm.Branch;
 import com.rultor.scm.Commit;
 import com.rultor.shell.Terminal;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -89,11 +91,46 @@ public final class GitBranch implements Branch {
 
     /**
      * {@inheritDoc}
+     *
+     * <p>The log is read page by page, from the commit that was HEAD
+     * when the first page was read. The first page is small and is read
+     * right here, so that a broken repository fails with
+     * {@link IOException}. Every next page is twice bigger and is read
+     * lazily, so the cost of reading is proportional to the number of
+     * commits actually consumed. If reading of one of them fails, the
+     * iterator throws {@link IllegalStateException}.
      */
     @Override
-    @RetryOnFailure(verbose = false)
     @Loggable(value = Loggable.DEBUG, limit = Tv.FIVE)
     public Iterable<Commit> log() throws IOException {
+        final List<String> first = this.page("HEAD", 0, Tv.TEN);
+        return new Iterable<Commit>() {
+            @Override
+            public Iterator<Commit> iterator() {
+                return new GitBranch.Pages(first);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String name() {
+        return this.label;
+    }
+
+    /**
+     * Read one page of the log.
+     * @param head The commit to start from
+     * @param skip How many commits to skip
+     * @param size Maximum number of commits to read
+     * @return Lines of the log, one line per commit
+     * @throws IOException If fails
+     */
+    @RetryOnFailure(verbose = false)
+    private List<String> page(final String head, final int skip,
+        final int size) throws IOException {
         final String stdout = this.terminal.exec(
             new StringBuilder()
                 .append("DIR=`pwd`/")
@@ -102,38 +139,94 @@ public final class GitBranch implements Branch {
                 .append(" && GIT_SSH=\"$DIR/git-ssh.sh\"")
                 // @checkstyle LineLength (1 line)
                 .append(" && git log --pretty=format:'%H %ae %cd %s' --date=iso8601")
+                .append(" --skip=").append(skip)
+                .append(" -n ").append(size)
+                .append(' ').append(head)
                 .toString()
         );
-        Logger.info(this, "Git log in branch `%s` retrieved", this.label);
-        final Iterable<String> lines = Arrays.asList(stdout.split("\n"));
-        return new Iterable<Commit>() {
-            @Override
-            public Iterator<Commit> iterator() {
-                final Iterator<String> iterator = lines.iterator();
-                return new Iterator<Commit>() {
-                    @Override
-                    public boolean hasNext() {
-                        return iterator.hasNext();
-                    }
-                    @Override
-                    public Commit next() {
-                        return GitCommit.parse(iterator.next());
-                    }
-                    @Override
-                    public void remove() {
-                        throw new UnsupportedOperationException();
-                    }
-                };
+        final List<String> lines = new LinkedList<String>();
+        for (String line : stdout.split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(line);
             }
-        };
+        }
+        Logger.info(
+            this, "%d commit(s) of Git log in branch `%s` retrieved",
+            lines.size(), this.label
+        );
+        return lines;
     }
 
     /**
-     * {@inheritDoc}
+     * Iterator of commits, reading them page by page.
      */
-    @Override
-    public String name() {
-        return this.label;
+    private final class Pages extends AbstractIterator<Commit> {
+        /**
+         * Lines of the current page.
+         */
+        private transient Iterator<String> lines;
+        /**
+         * Commit to start from (its hash, once the first page is read).
+         */
+        private transient String head = "HEAD";
+        /**
+         * Total commits read so far.
+         */
+        private transient int total;
+        /**
+         * Size of the next page.
+         */
+        private transient int size = Tv.TEN;
+        /**
+         * Is it the end of the log?
+         */
+        private transient boolean done;
+        /**
+         * Public ctor.
+         * @param first Lines of the first page, already read
+         */
+        Pages(final List<String> first) {
+            super();
+            this.accept(first);
+        }
+        @Override
+        protected Commit computeNext() {
+            if (!this.lines.hasNext() && !this.done) {
+                this.fetch();
+            }
+            final Commit commit;
+            if (this.lines.hasNext()) {
+                commit = GitCommit.parse(this.lines.next());
+            } else {
+                commit = this.endOfData();
+            }
+            return commit;
+        }
+        /**
+         * Read the next page.
+         */
+        private void fetch() {
+            try {
+                this.accept(
+                    GitBranch.this.page(this.head, this.total, this.size)
+                );
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        /**
+         * Take the page just read.
+         * @param page Lines of the page
+         */
+        private void accept(final List<String> page) {
+            if (this.total == 0 && !page.isEmpty()) {
+                this.head = page.get(0).split(" ", 2)[0];
+            }
+            this.done = page.size() < this.size;
+            this.total += page.size();
+            this.size = Math.min(this.size * 2, Tv.THOUSAND);
+            this.lines = page.iterator();
+        }
     }
 
 }
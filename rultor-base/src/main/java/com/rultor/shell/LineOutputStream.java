@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell;
+
+import com.jcabi.aspects.Tv;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.lang3.CharEncoding;
+
+/**
+ * Output stream that gives its content to a consumer, line by line.
+ *
+ * <p>Only the current line is kept in memory, up to {@link #MAX} bytes;
+ * the rest of a longer line is dropped. The last line, if it doesn't
+ * end with a line feed, is given to the consumer on {@link #close()}.
+ * Lines are decoded from UTF-8, without trailing line feeds and
+ * carriage returns.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = "consumer")
+@EqualsAndHashCode(callSuper = false, of = "consumer")
+public final class LineOutputStream extends OutputStream {
+
+    /**
+     * Maximum length of a line, in bytes.
+     */
+    public static final int MAX = Tv.MILLION;
+
+    /**
+     * Consumer of lines.
+     */
+    private final transient LineOutputStream.Consumer consumer;
+
+    /**
+     * Accumulated current line.
+     */
+    private final transient ByteArrayOutputStream line =
+        new ByteArrayOutputStream();
+
+    /**
+     * Public ctor.
+     * @param cnsmr Consumer of lines
+     */
+    public LineOutputStream(@NotNull(message = "consumer can't be NULL")
+        final LineOutputStream.Consumer cnsmr) {
+        super();
+        this.consumer = cnsmr;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final int chr) throws IOException {
+        synchronized (this.line) {
+            if (chr == '\012') {
+                this.emit();
+            } else if (this.line.size() < LineOutputStream.MAX) {
+                this.line.write(chr);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final byte[] bytes, final int off, final int len)
+        throws IOException {
+        synchronized (this.line) {
+            int start = off;
+            for (int pos = off; pos < off + len; ++pos) {
+                if (bytes[pos] == '\012') {
+                    this.append(bytes, start, pos - start);
+                    this.emit();
+                    start = pos + 1;
+                }
+            }
+            this.append(bytes, start, off + len - start);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.line) {
+            if (this.line.size() > 0) {
+                this.emit();
+            }
+        }
+    }
+
+    /**
+     * Append bytes to the current line, as many as fit.
+     * @param bytes Bytes
+     * @param off Offset
+     * @param len Length
+     */
+    private void append(final byte[] bytes, final int off, final int len) {
+        this.line.write(
+            bytes, off,
+            Math.min(len, LineOutputStream.MAX - this.line.size())
+        );
+    }
+
+    /**
+     * Give the current line to the consumer and start a new one.
+     * @throws IOException If fails
+     */
+    private void emit() throws IOException {
+        String text = this.line.toString(CharEncoding.UTF_8);
+        if (text.endsWith("\r")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        this.line.reset();
+        this.consumer.line(text);
+    }
+
+    /**
+     * Consumer of lines.
+     */
+    public interface Consumer {
+        /**
+         * Consume one line.
+         * @param line The line, without line feed
+         * @throws IOException If fails
+         */
+        void line(String line) throws IOException;
+    }
+
+}
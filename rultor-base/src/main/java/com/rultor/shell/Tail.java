@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell;
+
+import java.io.OutputStream;
+import lombok.EqualsAndHashCode;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Output stream that keeps only the last bytes written to it.
+ *
+ * <p>It is used to report the end of a long output, for example in
+ * an error message, without keeping all of it in memory.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@EqualsAndHashCode(callSuper = false, of = { "buffer", "total" })
+public final class Tail extends OutputStream {
+
+    /**
+     * Default number of bytes to keep.
+     */
+    // @checkstyle MagicNumber (1 line)
+    public static final int DEFAULT = 16 * 1024;
+
+    /**
+     * Ring buffer with the last bytes.
+     */
+    private final transient byte[] buffer;
+
+    /**
+     * How many bytes were written in total.
+     */
+    private transient long total;
+
+    /**
+     * Public ctor.
+     */
+    public Tail() {
+        this(Tail.DEFAULT);
+    }
+
+    /**
+     * Public ctor.
+     * @param size How many bytes to keep
+     */
+    public Tail(final int size) {
+        super();
+        Validate.isTrue(size > 0, "Tail size must be positive, %d given", size);
+        this.buffer = new byte[size];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void write(final int chr) {
+        this.buffer[(int) (this.total % this.buffer.length)] = (byte) chr;
+        ++this.total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void write(final byte[] bytes, final int off,
+        final int len) {
+        final int size = this.buffer.length;
+        final int skip = Math.max(0, len - size);
+        int done = skip;
+        this.total += skip;
+        while (done < len) {
+            final int pos = (int) (this.total % size);
+            final int chunk = Math.min(len - done, size - pos);
+            System.arraycopy(bytes, off + done, this.buffer, pos, chunk);
+            done += chunk;
+            this.total += chunk;
+        }
+    }
+
+    /**
+     * How many bytes were written in total.
+     * @return Total number of bytes
+     */
+    public synchronized long written() {
+        return this.total;
+    }
+
+    /**
+     * Get the last bytes as UTF-8 text, prefixed with an ellipsis if
+     * some bytes before them were dropped.
+     * @return The text
+     */
+    @Override
+    public synchronized String toString() {
+        final String text;
+        if (this.total <= this.buffer.length) {
+            text = new String(this.buffer, 0, (int) this.total, Charsets.UTF_8);
+        } else {
+            final int pos = (int) (this.total % this.buffer.length);
+            final byte[] last = new byte[this.buffer.length];
+            System.arraycopy(
+                this.buffer, pos, last, 0, this.buffer.length - pos
+            );
+            System.arraycopy(
+                this.buffer, 0, last, this.buffer.length - pos, pos
+            );
+            text = String.format(
+                "...%s", new String(last, Charsets.UTF_8)
+            );
+        }
+        return text;
+    }
+
+}
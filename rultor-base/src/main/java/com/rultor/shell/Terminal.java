@@ -34,6 +34,7 @@ import com.jcabi.aspects.Loggable;
 import com.jcabi.log.Logger;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.logging.Level;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
@@ -45,13 +46,18 @@ import org.apache.commons.io.output.TeeOutputStream;
 /**
  * Simplified terminal.
  *
+ * <p>Output of a command can be streamed to an output stream or to
+ * a consumer of lines. Either way, only the last bytes of stdout and
+ * stderr are kept in memory, to be reported when the command fails
+ * (see {@link Tail}).
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
  */
 @Immutable
 @ToString
-@EqualsAndHashCode(of = "shell")
+@EqualsAndHashCode(of = { "shell", "tail" })
 @Loggable(Loggable.DEBUG)
 public final class Terminal {
 
@@ -60,12 +66,28 @@ public final class Terminal {
      */
     private final transient Shell shell;
 
+    /**
+     * How many last bytes of output to report on failure.
+     */
+    private final transient int tail;
+
+    /**
+     * Public ctor.
+     * @param shl Shell to use
+     */
+    public Terminal(final Shell shl) {
+        this(shl, Tail.DEFAULT);
+    }
+
     /**
      * Public ctor.
      * @param shl Shell to use
+     * @param size How many last bytes of output to report on failure
      */
-    public Terminal(@NotNull(message = "shell can't be NULL") final Shell shl) {
+    public Terminal(@NotNull(message = "shell can't be NULL") final Shell shl,
+        final int size) {
         this.shell = shl;
+        this.tail = size;
     }
 
     /**
@@ -112,6 +134,10 @@ public final class Terminal {
 
     /**
      * Run this command and return its output (fail on non-zero exit code).
+     *
+     * <p>The entire output is kept in memory, so use it only for commands
+     * with short output.
+     *
      * @param command The command
      * @param stdin Input stream
      * @return Output stream
@@ -123,25 +149,66 @@ public final class Terminal {
         @NotNull(message = "stdin can't be NULL") final String stdin)
         throws IOException {
         final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
-        final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        this.exec(command, stdin, stdout);
+        return stdout.toString(CharEncoding.UTF_8);
+    }
+
+    /**
+     * Run this command and give its output to the consumer, line by line
+     * (fail on non-zero exit code).
+     * @param command The command
+     * @param stdin Input stream
+     * @param consumer Consumer of stdout lines
+     * @throws IOException If some IO problem inside
+     */
+    @Loggable(value = Loggable.DEBUG, limit = Integer.MAX_VALUE)
+    public void exec(
+        @NotNull(message = "command can't be NULL") final String command,
+        @NotNull(message = "stdin can't be NULL") final String stdin,
+        @NotNull(message = "consumer can't be NULL")
+        final LineOutputStream.Consumer consumer) throws IOException {
+        final OutputStream stdout = new LineOutputStream(consumer);
+        try {
+            this.exec(command, stdin, stdout);
+        } finally {
+            stdout.close();
+        }
+    }
+
+    /**
+     * Run this command and copy its output to the stream (fail on non-zero
+     * exit code).
+     * @param command The command
+     * @param stdin Input stream
+     * @param stdout Stream for stdout
+     * @throws IOException If some IO problem inside
+     */
+    @Loggable(value = Loggable.DEBUG, limit = Integer.MAX_VALUE)
+    public void exec(
+        @NotNull(message = "command can't be NULL") final String command,
+        @NotNull(message = "stdin can't be NULL") final String stdin,
+        @NotNull(message = "stdout can't be NULL") final OutputStream stdout)
+        throws IOException {
+        final Tail out = new Tail(this.tail);
+        final Tail err = new Tail(this.tail);
         final int code = this.shell.exec(
             command,
             IOUtils.toInputStream(stdin, CharEncoding.UTF_8),
-            new TeeOutputStream(stdout, Logger.stream(Level.INFO, this)),
-            new TeeOutputStream(stderr, Logger.stream(Level.WARNING, this))
+            new TeeOutputStream(
+                new TeeOutputStream(stdout, out),
+                Logger.stream(Level.INFO, this)
+            ),
+            new TeeOutputStream(err, Logger.stream(Level.WARNING, this))
         );
         if (code != 0) {
             throw new IOException(
                 Logger.format(
                     // @checkstyle LineLength (1 line)
                     "non-zero exit code %d after executing `%s` at %s, stdout='%[text]s', stderr='%s'",
-                    code, command, this.shell,
-                    stdout.toString(CharEncoding.UTF_8),
-                    stderr.toString(CharEncoding.UTF_8)
+                    code, command, this.shell, out.toString(), err.toString()
                 )
             );
         }
-        return stdout.toString(CharEncoding.UTF_8);
     }
 
 }
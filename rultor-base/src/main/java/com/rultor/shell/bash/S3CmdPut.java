@@ -31,6 +31,7 @@ package com.rultor.shell.bash;
 
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
 import com.rultor.shell.Sequel;
 import com.rultor.shell.Shell;
 import com.rultor.shell.Terminal;
@@ -43,11 +44,21 @@ import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.Validate;
 import org.xembly.Directives;
 
 /**
  * Put file(s) using s3cmd command line tool.
  *
+ * <p>Files are uploaded by a few s3cmd processes at the same time.
+ * A file is not uploaded if S3 already has an object with the same size
+ * and MD5 hash under its name. Files larger than {@link #CHUNK} megabytes
+ * are uploaded in parts (s3cmd 1.1 or newer is required), and ETag of
+ * such an object is not an MD5 hash of its content, so they are
+ * uploaded every time, since there is nothing reliable to compare them
+ * with. The temporary file with credentials is deleted when the script
+ * exits, even if it fails.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -55,10 +66,17 @@ import org.xembly.Directives;
  */
 @Immutable
 @ToString
-@EqualsAndHashCode(of = { "name", "path", "bucket", "prefix", "key", "secret" })
+@EqualsAndHashCode(
+    of = { "name", "path", "bucket", "prefix", "key", "secret", "threads" }
+)
 @Loggable(Loggable.DEBUG)
 public final class S3CmdPut implements Sequel {
 
+    /**
+     * Size of a part in multipart upload, in megabytes.
+     */
+    public static final int CHUNK = Tv.FIFTEEN;
+
     /**
      * Tag name.
      */
@@ -89,6 +107,11 @@ public final class S3CmdPut implements Sequel {
      */
     private final transient String secret;
 
+    /**
+     * How many files to upload at the same time.
+     */
+    private final transient int threads;
+
     /**
      * Public ctor.
      * @param label Name of the product to discover
@@ -97,7 +120,23 @@ public final class S3CmdPut implements Sequel {
      * @param pfx Prefix in S3 bucket
      * @param akey S3 authorization key
      * @param scrt S3 authorization secret
-     * @checkstyle ParameterNumber (8 lines)
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    public S3CmdPut(final String label, final String pth, final String bkt,
+        final String pfx, final String akey, final String scrt) {
+        this(label, pth, bkt, pfx, akey, scrt, Tv.FIVE);
+    }
+
+    /**
+     * Public ctor.
+     * @param label Name of the product to discover
+     * @param pth Path to use
+     * @param bkt Bucket name
+     * @param pfx Prefix in S3 bucket
+     * @param akey S3 authorization key
+     * @param scrt S3 authorization secret
+     * @param total How many files to upload at the same time
+     * @checkstyle ParameterNumber (9 lines)
      */
     public S3CmdPut(
         @NotNull(message = "name can't be NULL") final String label,
@@ -105,13 +144,16 @@ public final class S3CmdPut implements Sequel {
         @NotNull(message = "bucket can't be NULL") final String bkt,
         @NotNull(message = "prefix can't be NULL") final String pfx,
         @NotNull(message = "key can't be NULL") final String akey,
-        @NotNull(message = "secret can't be NULL") final String scrt) {
+        @NotNull(message = "secret can't be NULL") final String scrt,
+        final int total) {
+        Validate.isTrue(total > 0, "Threads must be positive, %d given", total);
         this.name = label;
         this.bucket = bkt;
         this.path = pth;
         this.prefix = pfx;
         this.key = akey;
         this.secret = scrt;
+        this.threads = total;
     }
 
     /**
@@ -127,6 +169,7 @@ public final class S3CmdPut implements Sequel {
         final int files = new Terminal(shell).exec(
             new StringBuilder()
                 .append("CONFIG=$(mktemp /tmp/s3cmdput-XXXX)")
+                .append(" && trap 'rm -f $CONFIG' EXIT")
                 .append(" && cat > $CONFIG")
                 .append(" && HEAD=")
                 .append(
@@ -144,8 +187,19 @@ public final class S3CmdPut implements Sequel {
                 .append(Terminal.quotate(Terminal.escape(dir)))
                 .append(" && FILES=$(find ")
                 .append(mask)
+                .append(" -type f)")
+                // @checkstyle LineLength (1 line)
+                .append(" && REMOTE=$(s3cmd --config=$CONFIG ls --list-md5 --recursive \"$HEAD\" | awk '{print $3 \"  \" $4 \"  \" $5}')")
+                // @checkstyle LineLength (1 line)
+                .append(" && for f in $FILES; do SIZE=$(wc -c < \"$f\" | tr -d ' '); if ! echo \"$REMOTE\" | grep -qxF \"$SIZE  $(md5sum < \"$f\" | cut -c1-32)  $HEAD$f\"; then printf '%s\\0' \"$f\"; fi; done")
+                .append(" | xargs -0 -r -n 1 -P ")
+                .append(this.threads)
+                // @checkstyle LineLength (1 line)
+                .append(" bash -c 's3cmd --config=\"$1\" --multipart-chunk-size-mb=")
+                .append(S3CmdPut.CHUNK)
                 // @checkstyle LineLength (1 line)
-                .append(" -type f) && for f in $FILES; do s3cmd --config=$CONFIG put $f \"$HEAD$f\" > /dev/null; echo $f; done")
+                .append(" put \"$3\" \"$2$3\" > /dev/null' _ \"$CONFIG\" \"$HEAD\"")
+                .append(" && for f in $FILES; do echo $f; done")
                 .toString(),
             new StringBuilder()
                 .append("[default]\n")
@@ -31,12 +31,20 @@ package com.rultor.shell.bash;
 
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
 import com.jcabi.immutable.ArrayMap;
 import com.rultor.shell.Sequel;
 import com.rultor.shell.Shell;
 import com.rultor.spi.Coordinates;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -45,6 +53,14 @@ import org.apache.commons.lang3.Validate;
 /**
  * Collection of S3Cmd relics.
  *
+ * <p>Relics are uploaded at the same time, up to {@link #THREADS} of
+ * them, each one by its own {@link S3CmdPut}.
+ *
+ * <p>Every pulse keeps its relics under its own prefix, which includes
+ * the time of the pulse, so {@link S3CmdPut} never finds them in S3
+ * and always uploads all of them. Skipping of unchanged files doesn't
+ * apply to relics, it works only for a stable prefix.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -56,8 +72,14 @@ import org.apache.commons.lang3.Validate;
     of = { "work", "names", "bucket", "prefix", "key", "secret" }
 )
 @Loggable(Loggable.DEBUG)
+@SuppressWarnings("PMD.DoNotUseThreads")
 public final class S3CmdRelics implements Sequel {
 
+    /**
+     * Maximum number of relics to upload at the same time.
+     */
+    public static final int THREADS = Tv.FIVE;
+
     /**
      * Coordinates we're in.
      */
@@ -124,17 +146,79 @@ public final class S3CmdRelics implements Sequel {
     @Override
     @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
     public void exec(final Shell shell) throws IOException {
-        for (Map.Entry<String, String> entry : this.names.entrySet()) {
-            new S3CmdPut(
-                entry.getKey(), entry.getValue(),
-                this.bucket,
-                String.format(
-                    "%s%s/%s/%s/%s/", this.prefix,
-                    this.work.owner(), this.work.rule(),
-                    entry.getKey(), this.work.scheduled()
-                ),
-                this.key, this.secret
-            ).exec(shell);
+        if (this.names.isEmpty()) {
+            return;
+        }
+        final ExecutorService svc = Executors.newFixedThreadPool(
+            Math.min(this.names.size(), S3CmdRelics.THREADS)
+        );
+        try {
+            final Collection<Future<Void>> futures =
+                new LinkedList<Future<Void>>();
+            for (Map.Entry<String, String> entry : this.names.entrySet()) {
+                futures.add(
+                    svc.submit(
+                        S3CmdRelics.upload(
+                            shell,
+                            new S3CmdPut(
+                                entry.getKey(), entry.getValue(),
+                                this.bucket,
+                                String.format(
+                                    "%s%s/%s/%s/%s/", this.prefix,
+                                    this.work.owner(), this.work.rule(),
+                                    entry.getKey(), this.work.scheduled()
+                                ),
+                                this.key, this.secret
+                            )
+                        )
+                    )
+                );
+            }
+            S3CmdRelics.await(futures);
+        } finally {
+            svc.shutdownNow();
+        }
+    }
+
+    /**
+     * Task that uploads one relic.
+     * @param shell Shell to use
+     * @param put The upload
+     * @return Task
+     */
+    private static Callable<Void> upload(final Shell shell,
+        final Sequel put) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                put.exec(shell);
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Wait for all uploads and throw the first failure, if any.
+     * @param futures Futures of uploads
+     * @throws IOException If any of them failed
+     */
+    private static void await(final Collection<Future<Void>> futures)
+        throws IOException {
+        IOException failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    failure = new IOException(ex.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
         }
     }
 
@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell.local;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.log.VerboseThreads;
+import com.rultor.shell.Shell;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Shell that runs commands in child processes of the JVM.
+ *
+ * <p>Every command is executed by BASH in the given directory, which
+ * is also its {@code HOME}. Optionally, CPU time (in seconds) and
+ * virtual memory (in kilobytes) of the command can be limited, with
+ * {@code ulimit}; zero means no limit.
+ *
+ * <p>It is assumed that BASH is installed on the host.
+ *
+ * <p>Commands run on the host of the JVM, with all its files and
+ * credentials at hand, so local shells are available only on single-host
+ * deployments, which enable them explicitly with system property
+ * {@code com.rultor.shell.local.enabled} set to {@code true}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = { "dir", "cpu", "memory" })
+@Loggable(Loggable.DEBUG)
+@SuppressWarnings("PMD.DoNotUseThreads")
+public final class LocalShell implements Shell {
+
+    /**
+     * System property that enables local shells.
+     */
+    public static final String ENABLED = "com.rultor.shell.local.enabled";
+
+    /**
+     * Copiers of streams.
+     */
+    private static final ExecutorService COPIERS =
+        Executors.newCachedThreadPool(new VerboseThreads(LocalShell.class));
+
+    /**
+     * Directory to work in.
+     */
+    private final transient String dir;
+
+    /**
+     * Maximum CPU time of a command, in seconds, or zero.
+     */
+    private final transient int cpu;
+
+    /**
+     * Maximum virtual memory of a command, in kilobytes, or zero.
+     */
+    private final transient int memory;
+
+    /**
+     * Public ctor.
+     * @param folder Directory to work in
+     */
+    public LocalShell(final String folder) {
+        this(folder, 0, 0);
+    }
+
+    /**
+     * Public ctor.
+     * @param folder Directory to work in
+     * @param sec Maximum CPU time of a command, in seconds, or zero
+     * @param kbytes Maximum virtual memory of a command, in KB, or zero
+     */
+    public LocalShell(
+        @NotNull(message = "directory can't be NULL") final String folder,
+        final int sec, final int kbytes) {
+        LocalShell.ensure();
+        Validate.isTrue(sec >= 0, "CPU time can't be negative, %d given", sec);
+        Validate.isTrue(
+            kbytes >= 0, "memory can't be negative, %d given", kbytes
+        );
+        this.dir = folder;
+        this.cpu = sec;
+        this.memory = kbytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @checkstyle ParameterNumber (10 lines)
+     */
+    @Override
+    @Loggable(value = Loggable.DEBUG, limit = 1, unit = TimeUnit.HOURS)
+    public int exec(
+        @NotNull(message = "command can't be NULL") final String command,
+        @NotNull(message = "stdin can't be NULL") final InputStream stdin,
+        @NotNull(message = "stdout can't be NULL") final OutputStream stdout,
+        @NotNull(message = "stderr can't be NULL") final OutputStream stderr)
+        throws IOException {
+        final ProcessBuilder builder = new ProcessBuilder(this.command(command))
+            .directory(new File(this.dir));
+        builder.environment().put("HOME", this.dir);
+        final Process process = builder.start();
+        try {
+            final Future<Long> input = LocalShell.COPIERS.submit(
+                new Callable<Long>() {
+                    @Override
+                    public Long call() throws IOException {
+                        final OutputStream out = process.getOutputStream();
+                        try {
+                            return IOUtils.copyLarge(stdin, out);
+                        } finally {
+                            out.close();
+                        }
+                    }
+                }
+            );
+            final Future<Long> errors = LocalShell.COPIERS.submit(
+                new Callable<Long>() {
+                    @Override
+                    public Long call() throws IOException {
+                        return IOUtils.copyLarge(
+                            process.getErrorStream(), stderr
+                        );
+                    }
+                }
+            );
+            IOUtils.copyLarge(process.getInputStream(), stdout);
+            LocalShell.await(errors);
+            final int code = process.waitFor();
+            input.cancel(true);
+            return code;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        // nothing to do
+    }
+
+    /**
+     * Command line to start.
+     *
+     * <p>The command is given to the inner BASH as its {@code $0}, so
+     * it doesn't need any escaping.
+     *
+     * @param command The command to run
+     * @return Command line
+     */
+    private List<String> command(final String command) {
+        final List<String> limits = new LinkedList<String>();
+        if (this.cpu > 0) {
+            limits.add(String.format("ulimit -t %d", this.cpu));
+        }
+        if (this.memory > 0) {
+            limits.add(String.format("ulimit -v %d", this.memory));
+        }
+        final List<String> line;
+        if (limits.isEmpty()) {
+            line = Arrays.asList("bash", "-c", command);
+        } else {
+            limits.add("exec bash -c \"$0\"");
+            line = Arrays.asList(
+                "bash", "-c", StringUtils.join(limits, " && "), command
+            );
+        }
+        return line;
+    }
+
+    /**
+     * Wait for the stream to be copied.
+     * @param copying Future of the copying
+     * @throws IOException If fails
+     */
+    private static void await(final Future<Long> copying) throws IOException {
+        try {
+            copying.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Make sure local shells are enabled in this JVM.
+     */
+    public static void ensure() {
+        Validate.isTrue(
+            Boolean.getBoolean(LocalShell.ENABLED),
+            "local shells are disabled, set system property %s to true",
+            LocalShell.ENABLED
+        );
+    }
+
+}
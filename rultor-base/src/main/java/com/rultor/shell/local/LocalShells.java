@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell.local;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import com.rultor.shell.Shell;
+import com.rultor.shell.Shells;
+import com.rultor.snapshot.Step;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+
+/**
+ * Local shells, each one in its own new directory.
+ *
+ * <p>Every acquired shell works in a new empty directory inside
+ * the given one, which is deleted when the shell is closed.
+ *
+ * <p>Local shells must be enabled explicitly, see {@link LocalShell}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = { "dir", "cpu", "memory" })
+@Loggable(Loggable.DEBUG)
+public final class LocalShells implements Shells {
+
+    /**
+     * Directory to create shell directories in.
+     */
+    private final transient String dir;
+
+    /**
+     * Maximum CPU time of a command, in seconds, or zero.
+     */
+    private final transient int cpu;
+
+    /**
+     * Maximum virtual memory of a command, in kilobytes, or zero.
+     */
+    private final transient int memory;
+
+    /**
+     * Public ctor.
+     */
+    public LocalShells() {
+        this(System.getProperty("java.io.tmpdir"), 0, 0);
+    }
+
+    /**
+     * Public ctor.
+     * @param folder Directory to create shell directories in
+     * @param sec Maximum CPU time of a command, in seconds, or zero
+     * @param kbytes Maximum virtual memory of a command, in KB, or zero
+     */
+    public LocalShells(
+        @NotNull(message = "directory can't be NULL") final String folder,
+        final int sec, final int kbytes) {
+        LocalShell.ensure();
+        this.dir = folder;
+        this.cpu = sec;
+        this.memory = kbytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Step("local shell acquired in `${result.home()}`")
+    public Shell acquire() throws IOException {
+        final File home = new File(
+            this.dir,
+            String.format(
+                "rultor-%s", RandomStringUtils.randomAlphanumeric(Tv.TEN)
+            )
+        );
+        if (!home.mkdirs()) {
+            throw new IOException(
+                String.format("failed to create directory `%s`", home)
+            );
+        }
+        return new LocalShells.Disposable(
+            home, new LocalShell(home.getAbsolutePath(), this.cpu, this.memory)
+        );
+    }
+
+    /**
+     * Shell that deletes its directory when closed.
+     */
+    @Immutable
+    @ToString
+    @EqualsAndHashCode(of = "home")
+    public static final class Disposable implements Shell {
+        /**
+         * Directory of the shell.
+         */
+        private final transient String home;
+        /**
+         * The shell.
+         */
+        private final transient Shell origin;
+        /**
+         * Ctor.
+         * @param folder Directory of the shell
+         * @param shell The shell
+         */
+        protected Disposable(final File folder, final Shell shell) {
+            this.home = folder.getAbsolutePath();
+            this.origin = shell;
+        }
+        /**
+         * Directory of the shell.
+         * @return Absolute path of it
+         */
+        public String home() {
+            return this.home;
+        }
+        // @checkstyle ParameterNumber (5 lines)
+        @Override
+        public int exec(final String command, final InputStream stdin,
+            final OutputStream stdout, final OutputStream stderr)
+            throws IOException {
+            return this.origin.exec(command, stdin, stdout, stderr);
+        }
+        @Override
+        public void close() throws IOException {
+            try {
+                this.origin.close();
+            } finally {
+                FileUtils.deleteDirectory(new File(this.home));
+            }
+        }
+    }
+
+}
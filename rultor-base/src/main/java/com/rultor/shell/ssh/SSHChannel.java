@@ -33,6 +33,7 @@ import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.RetryOnFailure;
 import com.jcabi.aspects.Tv;
 import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseThreads;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.HostKey;
 import com.jcraft.jsch.HostKeyRepository;
@@ -46,10 +47,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.Validate;
 
 /**
@@ -61,7 +69,7 @@ import org.apache.commons.lang3.Validate;
  */
 @EqualsAndHashCode(of = { "addr", "login", "key" })
 @Loggable(Loggable.DEBUG)
-@SuppressWarnings("PMD.TooManyMethods")
+@SuppressWarnings({ "PMD.TooManyMethods", "PMD.DoNotUseThreads" })
 public final class SSHChannel implements Shell {
 
     /**
@@ -128,6 +136,19 @@ public final class SSHChannel implements Shell {
         }
     };
 
+    /**
+     * Pool of idle sessions, shared by all channels.
+     */
+    private static final Sessions SESSIONS = Sessions.make(
+        Tv.FIVE, TimeUnit.MINUTES.toMillis(1)
+    );
+
+    /**
+     * Copiers of stderr streams.
+     */
+    private static final ExecutorService COPIERS =
+        Executors.newCachedThreadPool(new VerboseThreads(SSHChannel.class));
+
     /**
      * IP address of the server.
      */
@@ -167,6 +188,14 @@ public final class SSHChannel implements Shell {
 
     /**
      * {@inheritDoc}
+     *
+     * <p>The command is executed in a new channel of an authenticated
+     * session, taken from the pool (or opened, if there are no idle sessions
+     * to this server). The session goes back to the pool afterwards. If
+     * a channel can't be opened in a pooled session (the server may have
+     * dropped it while it was idle), the session is thrown away and the
+     * command is executed once again in a new one.
+     *
      * @checkstyle ParameterNumber (10 lines)
      */
     @Override
@@ -177,24 +206,39 @@ public final class SSHChannel implements Shell {
         @NotNull(message = "stdout can't be NULL") final OutputStream stdout,
         @NotNull(message = "stderr can't be NULL") final OutputStream stderr)
         throws IOException {
+        final String label = this.label();
+        Session session = SSHChannel.SESSIONS.take(label);
+        final boolean pooled = session != null;
+        if (!pooled) {
+            session = this.session();
+        }
+        boolean healthy = false;
         try {
-            final Session session = this.session();
+            int code;
             try {
-                final ChannelExec channel = ChannelExec.class.cast(
-                    session.openChannel("exec")
+                code = this.exec(session, command, stdin, stdout, stderr);
+            } catch (JSchException ex) {
+                if (!pooled) {
+                    throw ex;
+                }
+                Logger.info(
+                    this, "Idle SSH session to %s is broken (%s), reopening",
+                    this.addr, ex.getMessage()
                 );
-                channel.setErrStream(stderr, false);
-                channel.setOutputStream(stdout, false);
-                channel.setInputStream(stdin, false);
-                channel.setCommand(command);
-                channel.connect();
-                Logger.info(this, "$ %s", command);
-                return this.exec(channel, session);
-            } finally {
                 session.disconnect();
+                session = this.session();
+                code = this.exec(session, command, stdin, stdout, stderr);
             }
+            healthy = true;
+            return code;
         } catch (JSchException ex) {
             throw new IOException(ex);
+        } finally {
+            if (healthy) {
+                SSHChannel.SESSIONS.give(label, session);
+            } else {
+                session.disconnect();
+            }
         }
     }
 
@@ -206,49 +250,134 @@ public final class SSHChannel implements Shell {
         // nothing to do
     }
 
+    /**
+     * Exec the command in a new channel of the session.
+     *
+     * <p>{@link JSchException} is thrown only when the channel can't be
+     * opened, before anything is read from stdin.
+     *
+     * @param session The session
+     * @param command Command to execute
+     * @param stdin Stdin
+     * @param stdout Stdout
+     * @param stderr Stderr
+     * @return Exit code (zero in case of success)
+     * @throws IOException If fails
+     * @throws JSchException If can't open a channel
+     * @checkstyle ParameterNumber (5 lines)
+     */
+    private int exec(final Session session, final String command,
+        final InputStream stdin, final OutputStream stdout,
+        final OutputStream stderr) throws IOException, JSchException {
+        final ChannelExec channel = ChannelExec.class.cast(
+            session.openChannel("exec")
+        );
+        final InputStream out = channel.getInputStream();
+        final InputStream err = channel.getExtInputStream();
+        channel.setInputStream(stdin, false);
+        channel.setCommand(command);
+        try {
+            channel.connect();
+        } catch (JSchException ex) {
+            channel.disconnect();
+            throw ex;
+        }
+        Logger.info(this, "$ %s", command);
+        return this.exec(channel, out, err, stdout, stderr);
+    }
+
     /**
      * Exec this channel and return its exit code.
      * @param channel The channel to exec
-     * @param session The session
+     * @param out Stdout of the channel
+     * @param err Stderr of the channel
+     * @param stdout Where to copy stdout
+     * @param stderr Where to copy stderr
      * @return Exit code (zero in case of success)
      * @throws IOException If fails
+     * @checkstyle ParameterNumber (4 lines)
      */
-    private int exec(final ChannelExec channel, final Session session)
-        throws IOException {
+    private int exec(final ChannelExec channel, final InputStream out,
+        final InputStream err, final OutputStream stdout,
+        final OutputStream stderr) throws IOException {
         try {
-            return this.code(channel, session);
+            final Future<Long> errors = SSHChannel.COPIERS.submit(
+                new Callable<Long>() {
+                    @Override
+                    public Long call() throws IOException {
+                        return IOUtils.copyLarge(err, stderr);
+                    }
+                }
+            );
+            IOUtils.copyLarge(out, stdout);
+            SSHChannel.await(errors);
+            return SSHChannel.code(channel);
         } finally {
             channel.disconnect();
         }
     }
 
     /**
-     * Wait until it's done and return its code.
+     * Wait for the stderr to be copied.
+     * @param errors Future of the copying
+     * @throws IOException If fails
+     */
+    private static void await(final Future<Long> errors) throws IOException {
+        try {
+            errors.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Get exit code of a channel, which streams are already closed.
+     *
+     * <p>The end of streams means that the command is finished, and its
+     * exit status usually arrives right after it, so the method returns
+     * as soon as the status is known (or the channel is closed without
+     * it), checking it less and less often, but not longer than a minute.
+     *
      * @param exec The channel
-     * @param session The session
      * @return The exit code
      * @throws IOException If some IO problem inside
      */
-    @SuppressWarnings("PMD.AvoidCatchingGenericException")
-    private int code(final ChannelExec exec, final Session session)
-        throws IOException {
-        while (!exec.isClosed()) {
-            try {
-                session.sendKeepAliveMsg();
-            // @checkstyle IllegalCatch (1 line)
-            } catch (Exception ex) {
-                throw new IOException(ex);
+    private static int code(final ChannelExec exec) throws IOException {
+        final long limit = System.currentTimeMillis()
+            + TimeUnit.MINUTES.toMillis(1);
+        long delay = 1;
+        while (exec.getExitStatus() == -1 && !exec.isClosed()) {
+            if (System.currentTimeMillis() > limit) {
+                throw new IOException(
+                    "no exit status in a minute after the end of stdout"
+                );
             }
             try {
-                TimeUnit.SECONDS.sleep(1);
+                TimeUnit.MILLISECONDS.sleep(delay);
             } catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
                 throw new IOException(ex);
             }
+            delay = Math.min(delay * 2, Tv.HUNDRED);
         }
         return exec.getExitStatus();
     }
 
+    /**
+     * Label of sessions of this channel in the pool.
+     * @return Label
+     */
+    private String label() {
+        return String.format(
+            "%s@%s:%d/%s",
+            this.login, this.addr, SSHChannel.PORT,
+            DigestUtils.md5Hex(this.key.asText())
+        );
+    }
+
     /**
      * Create and return a session, connected.
      * @return JSch session
@@ -279,6 +408,7 @@ public final class SSHChannel implements Shell {
             );
             session.setServerAliveInterval((int) TimeUnit.SECONDS.toMillis(1));
             session.setServerAliveCountMax(Tv.MILLION);
+            session.setDaemonThread(true);
             session.connect();
             return session;
         } catch (JSchException ex) {
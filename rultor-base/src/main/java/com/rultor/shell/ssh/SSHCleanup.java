@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell.ssh;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.log.Logger;
+import com.rultor.env.Cleanup;
+import com.rultor.env.Environment;
+import java.io.IOException;
+import java.util.logging.Level;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Cleanup of an environment by a script executed through SSH.
+ *
+ * <p>The environment is clean only if the script exits with zero,
+ * for example:
+ *
+ * <pre> com.rultor.shell.ssh.SSHCleanup(
+ *   "ubuntu",
+ *   com.rultor.shell.ssh.PrivateKey("..."),
+ *   "rm -rf ~/* /tmp/rultor-*"
+ * )</pre>
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@Immutable
+@ToString(of = { "login", "script" })
+@EqualsAndHashCode(of = { "login", "key", "script" })
+@Loggable(Loggable.DEBUG)
+public final class SSHCleanup implements Cleanup {
+
+    /**
+     * User name.
+     */
+    private final transient String login;
+
+    /**
+     * Private SSH key.
+     */
+    private final transient PrivateKey key;
+
+    /**
+     * Script to execute.
+     */
+    private final transient String script;
+
+    /**
+     * Public ctor.
+     * @param user Login
+     * @param priv Private SSH key
+     * @param cmd Script to execute
+     */
+    public SSHCleanup(
+        @NotNull(message = "user name can't be NULL") final String user,
+        @NotNull(message = "private key can't be NULL") final PrivateKey priv,
+        @NotNull(message = "script can't be NULL") final String cmd) {
+        this.login = user;
+        this.key = priv;
+        this.script = cmd;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean clean(final Environment env) throws IOException {
+        final int code = new SSHChannel(env.address(), this.login, this.key)
+            .exec(
+                this.script,
+                IOUtils.toInputStream(""),
+                Logger.stream(Level.INFO, this),
+                Logger.stream(Level.WARNING, this)
+            );
+        if (code != 0) {
+            Logger.warn(
+                this, "#clean(%s): script failed with exit code %d",
+                env, code
+            );
+        }
+        return code == 0;
+    }
+
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell.ssh;
+
+import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseRunnable;
+import com.jcabi.log.VerboseThreads;
+import com.jcraft.jsch.Session;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Pool of idle authenticated SSH sessions.
+ *
+ * <p>Sessions are grouped by a label, which identifies the server,
+ * the login and the private key. A session taken from the pool belongs to
+ * its taker exclusively, until it is given back. Not more than the given
+ * number of idle sessions is kept per label, and sessions idle for longer
+ * than the given time are disconnected.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = { "max", "lifetime" })
+@EqualsAndHashCode(of = { "max", "lifetime" })
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class Sessions implements Runnable {
+
+    /**
+     * Cleaner of all pools.
+     */
+    private static final ScheduledExecutorService CLEANER =
+        Executors.newSingleThreadScheduledExecutor(
+            new VerboseThreads(Sessions.class)
+        );
+
+    /**
+     * Idle sessions by labels.
+     */
+    private final transient ConcurrentMap<String, BlockingDeque<Sessions.Idle>>
+        idle = new ConcurrentHashMap<String, BlockingDeque<Sessions.Idle>>(0);
+
+    /**
+     * Maximum number of idle sessions per label.
+     */
+    private final transient int max;
+
+    /**
+     * Maximum idle time of a session, in milliseconds.
+     */
+    private final transient long lifetime;
+
+    /**
+     * Public ctor.
+     * @param total Maximum number of idle sessions per label
+     * @param msec Maximum idle time of a session, in milliseconds
+     */
+    protected Sessions(final int total, final long msec) {
+        this.max = total;
+        this.lifetime = msec;
+    }
+
+    /**
+     * Make a pool that disconnects expired sessions in background.
+     * @param total Maximum number of idle sessions per label
+     * @param msec Maximum idle time of a session, in milliseconds
+     * @return The pool
+     */
+    public static Sessions make(final int total, final long msec) {
+        final Sessions sessions = new Sessions(total, msec);
+        Sessions.CLEANER.scheduleWithFixedDelay(
+            new VerboseRunnable(sessions, true, false),
+            msec, msec, TimeUnit.MILLISECONDS
+        );
+        return sessions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        final long now = System.currentTimeMillis();
+        for (Map.Entry<String, BlockingDeque<Sessions.Idle>> entry
+            : this.idle.entrySet()) {
+            final Iterator<Sessions.Idle> sessions =
+                entry.getValue().iterator();
+            while (sessions.hasNext()) {
+                final Sessions.Idle session = sessions.next();
+                if (!session.alive(now - this.lifetime)
+                    && entry.getValue().remove(session)) {
+                    session.disconnect();
+                    Logger.info(
+                        this, "idle SSH session to %s closed", entry.getKey()
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Take an idle connected session, if there is any.
+     * @param label Label of the session
+     * @return Session or NULL if there are no idle sessions
+     */
+    public Session take(final String label) {
+        final BlockingDeque<Sessions.Idle> sessions = this.idle.get(label);
+        Session found = null;
+        if (sessions != null) {
+            final long oldest = System.currentTimeMillis() - this.lifetime;
+            while (found == null) {
+                final Sessions.Idle session = sessions.pollFirst();
+                if (session == null) {
+                    break;
+                }
+                if (session.alive(oldest)) {
+                    found = session.session();
+                } else {
+                    session.disconnect();
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Give the session back to the pool (or disconnect it, if the pool
+     * is full or the session is not connected any more).
+     * @param label Label of the session
+     * @param session The session
+     */
+    public void give(final String label, final Session session) {
+        this.idle.putIfAbsent(
+            label, new LinkedBlockingDeque<Sessions.Idle>(this.max)
+        );
+        final Sessions.Idle item = new Sessions.Idle(session);
+        if (!session.isConnected()
+            || !this.idle.get(label).offerFirst(item)) {
+            item.disconnect();
+        }
+    }
+
+    /**
+     * Idle session.
+     */
+    private static final class Idle {
+        /**
+         * The session.
+         */
+        private final transient Session ssn;
+        /**
+         * When it was given back to the pool.
+         */
+        private final transient long since = System.currentTimeMillis();
+        /**
+         * Ctor.
+         * @param session The session
+         */
+        protected Idle(final Session session) {
+            this.ssn = session;
+        }
+        /**
+         * Get the session.
+         * @return The session
+         */
+        public Session session() {
+            return this.ssn;
+        }
+        /**
+         * Is it still connected and given back after the given moment?
+         * @param oldest The moment, in milliseconds
+         * @return TRUE if it can be used
+         */
+        public boolean alive(final long oldest) {
+            return this.since > oldest && this.ssn.isConnected();
+        }
+        /**
+         * Disconnect the session.
+         */
+        public void disconnect() {
+            this.ssn.disconnect();
+        }
+    }
+
+}
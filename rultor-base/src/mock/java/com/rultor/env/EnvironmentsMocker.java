@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.env;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mocker of {@link Environments}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class EnvironmentsMocker {
+
+    /**
+     * Environments in memory, with loopback addresses.
+     *
+     * <p>Every acquired environment gets its own address, 127.0.0.1,
+     * 127.0.0.2, etc. Instances are equal only to themselves.
+     */
+    public static final class Memory implements Environments {
+        /**
+         * How many environments were acquired.
+         */
+        private final transient AtomicInteger acquired = new AtomicInteger();
+        /**
+         * How many environments were closed.
+         */
+        private final transient AtomicInteger closed = new AtomicInteger();
+        @Override
+        public Environment acquire() throws IOException {
+            final int number = this.acquired.incrementAndGet();
+            final InetAddress address = InetAddress.getByAddress(
+                new byte[] {(byte) 127, 0, 0, (byte) number}
+            );
+            return new Environment() {
+                @Override
+                public InetAddress address() {
+                    return address;
+                }
+                @Override
+                public void close() {
+                    EnvironmentsMocker.Memory.this.closed.incrementAndGet();
+                }
+            };
+        }
+        /**
+         * How many environments were acquired so far.
+         * @return Total number
+         */
+        public int acquired() {
+            return this.acquired.get();
+        }
+        /**
+         * How many environments were closed so far.
+         * @return Total number
+         */
+        public int closed() {
+            return this.closed.get();
+        }
+    }
+
+    /**
+     * Mock it.
+     * @return Environments
+     */
+    public Environments mock() {
+        return new EnvironmentsMocker.Memory();
+    }
+
+}
@@ -30,10 +30,12 @@
 package com.rultor.base;
 
 import com.jcabi.aspects.Tv;
+import com.jcabi.urn.URN;
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Instance;
 import com.rultor.tools.Time;
 import java.util.Calendar;
+import java.util.Random;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 import org.hamcrest.MatcherAssert;
@@ -48,6 +50,21 @@ import org.mockito.Mockito;
  */
 public final class CrontabTest {
 
+    /**
+     * Start of time range for random moments (2010-01-01).
+     */
+    private static final long START = 1262304000000L;
+
+    /**
+     * Span of time range for random moments (about ten years).
+     */
+    private static final long SPAN = TimeUnit.DAYS.toMillis(3650L);
+
+    /**
+     * Maximum values of crontab fields.
+     */
+    private static final int[] MAX = {59, 23, 31, 12, 6};
+
     /**
      * Today.
      */
@@ -96,7 +113,7 @@ public final class CrontabTest {
         );
         final Instance origin = Mockito.mock(Instance.class);
         final Crontab crontab = new Crontab(
-            new Coordinates.Simple(), text, origin
+            CrontabTest.scheduled(), text, origin
         );
         crontab.pulse();
         Mockito.verify(origin, Mockito.times(1)).pulse();
@@ -116,12 +133,55 @@ public final class CrontabTest {
         );
         final Instance origin = Mockito.mock(Instance.class);
         final Crontab crontab = new Crontab(
-            new Coordinates.Simple(), text, origin
+            CrontabTest.scheduled(), text, origin
         );
         crontab.pulse();
         Mockito.verify(origin, Mockito.times(0)).pulse();
     }
 
+    /**
+     * Crontab can let a triggered work through at any moment.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void letsTriggeredWorkThrough() throws Exception {
+        final Instance origin = Mockito.mock(Instance.class);
+        final Crontab crontab = new Crontab(
+            new Coordinates.Triggered(
+                URN.create("urn:test:3"), "triggered",
+                new Time("2013-05-03T10:10:00Z")
+            ),
+            "0 0 1 1 *",
+            true,
+            origin
+        );
+        crontab.pulse();
+        Mockito.verify(origin, Mockito.times(1)).pulse();
+    }
+
+    /**
+     * Crontab can stop a triggered work, unless asked to let it through,
+     * and any other work off the minute boundary.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void stopsTriggeredWorkByDefault() throws Exception {
+        final Instance origin = Mockito.mock(Instance.class);
+        final Time time = new Time("2013-05-03T10:10:07Z");
+        new Crontab(
+            new Coordinates.Triggered(URN.create("urn:test:4"), "hook", time),
+            "0 0 1 1 *",
+            origin
+        ).pulse();
+        new Crontab(
+            new Coordinates.Simple(URN.create("urn:test:4"), "manual", time),
+            "0 0 1 1 *",
+            true,
+            origin
+        ).pulse();
+        Mockito.verify(origin, Mockito.never()).pulse();
+    }
+
     /**
      * Crontab can calculate lag correctly.
      * @throws Exception If some problem inside
@@ -176,4 +236,232 @@ public final class CrontabTest {
         );
     }
 
+    /**
+     * Crontab can match text against a moment without instantiation.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void matchesTextAgainstMoment() throws Exception {
+        MatcherAssert.assertThat(
+            Crontab.matches("*/15 10 * * *", new Time("2013-05-04T10:45:00Z")),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            Crontab.matches("*/15 10 * * *", new Time("2013-05-04T10:46:00Z")),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Crontab can run weekly jobs on Sundays.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void runsWeeklyOnSundays() throws Exception {
+        MatcherAssert.assertThat(
+            Crontab.matches("@weekly", new Time("2013-09-01T00:00:00Z")),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            Crontab.matches("0 0 * * 7", new Time("2013-09-01T00:00:00Z")),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            Crontab.matches("@weekly", new Time("2013-09-02T00:00:00Z")),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Crontab can calculate exact next moment.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void calculatesNextMoment() throws Exception {
+        final Instance org = Mockito.mock(Instance.class);
+        final Coordinates work = new Coordinates.Simple();
+        MatcherAssert.assertThat(
+            new Crontab(work, "30 2 * * 1", org)
+                .next(new Time("2013-05-04T10:13:00Z")),
+            Matchers.equalTo(new Time("2013-05-06T02:30:00Z"))
+        );
+        MatcherAssert.assertThat(
+            new Crontab(work, "0 0 29 2 *", org)
+                .next(new Time("2013-03-01T00:00:00Z")),
+            Matchers.equalTo(new Time("2016-02-29T00:00:00Z"))
+        );
+        MatcherAssert.assertThat(
+            new Crontab(work, "0 0 31 2 *", org)
+                .lag(new Time("2013-03-01T00:00:00Z")),
+            Matchers.equalTo(Long.MAX_VALUE)
+        );
+    }
+
+    /**
+     * Crontab can match moments exactly as a brute-force evaluator does.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void matchesLikeBruteForceEvaluator() throws Exception {
+        final Random random = new Random(Tv.MILLION);
+        for (int idx = 0; idx < Tv.THOUSAND; ++idx) {
+            final String text = CrontabTest.random(random);
+            final Time time = new Time(
+                CrontabTest.START + (random.nextLong() >>> 1) % CrontabTest.SPAN
+            );
+            MatcherAssert.assertThat(
+                String.format("%s at %s", text, time),
+                Crontab.matches(text, time),
+                Matchers.equalTo(CrontabTest.brute(text, time))
+            );
+        }
+    }
+
+    /**
+     * Crontab can find next moment exactly as a minute-by-minute
+     * brute-force evaluator does.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void findsNextLikeBruteForceEvaluator() throws Exception {
+        final Random random = new Random(Tv.THOUSAND);
+        final Instance org = Mockito.mock(Instance.class);
+        final Coordinates work = new Coordinates.Simple();
+        final long minute = TimeUnit.MINUTES.toMillis(1);
+        final long limit = TimeUnit.DAYS.toMillis(Tv.TWENTY);
+        for (int idx = 0; idx < Tv.FIFTY; ++idx) {
+            final String text = CrontabTest.random(random);
+            final long start = (CrontabTest.START
+                + (random.nextLong() >>> 1) % CrontabTest.SPAN)
+                / minute * minute;
+            long expected = start;
+            while (expected - start < limit
+                && !CrontabTest.brute(text, new Time(expected))) {
+                expected += minute;
+            }
+            final long lag = new Crontab(work, text, org)
+                .lag(new Time(start));
+            if (expected - start < limit) {
+                MatcherAssert.assertThat(text, lag, Matchers.equalTo(
+                    expected - start
+                ));
+            } else {
+                MatcherAssert.assertThat(
+                    text, lag, Matchers.greaterThanOrEqualTo(limit)
+                );
+            }
+        }
+    }
+
+    /**
+     * Make a work scheduled by the quartz in the current minute.
+     * @return Work
+     */
+    private static Coordinates scheduled() {
+        return new Coordinates.Simple(
+            URN.create("urn:test:2"), "scheduled", new Time().round()
+        );
+    }
+
+    /**
+     * Generate random crontab text.
+     * @param random Randomizer
+     * @return Text
+     */
+    private static String random(final Random random) {
+        return String.format(
+            "%s %s %s %s %s",
+            CrontabTest.field(random, 0, CrontabTest.MAX[0]),
+            CrontabTest.field(random, 0, CrontabTest.MAX[1]),
+            CrontabTest.field(random, 1, CrontabTest.MAX[2]),
+            CrontabTest.field(random, 1, CrontabTest.MAX[Tv.THREE]),
+            CrontabTest.field(random, 0, CrontabTest.MAX[Tv.FOUR])
+        );
+    }
+
+    /**
+     * Generate random crontab field.
+     * @param random Randomizer
+     * @param min Minimum value
+     * @param max Maximum value
+     * @return Text
+     */
+    private static String field(final Random random, final int min,
+        final int max) {
+        final int first = min + random.nextInt(max - min + 1);
+        final int second = first + random.nextInt(max - first + 1);
+        final int step = 1 + random.nextInt(Tv.SEVEN);
+        final String[] options = {
+            "*",
+            "*",
+            "*",
+            Integer.toString(first),
+            String.format("%d-%d", first, second),
+            String.format("*/%d", step),
+            String.format("%d-%d/%d", first, second, step),
+            String.format("%d,%d", first, second),
+            String.format("%d-%d,*/%d", first, second, step),
+        };
+        return options[random.nextInt(options.length)];
+    }
+
+    /**
+     * Brute-force evaluator of a crontab text at the given moment.
+     * @param text Crontab text
+     * @param time The moment
+     * @return TRUE if it matches
+     */
+    private static boolean brute(final String text, final Time time) {
+        final Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.setTime(time.date());
+        final int[] values = {
+            cal.get(Calendar.MINUTE),
+            cal.get(Calendar.HOUR_OF_DAY),
+            cal.get(Calendar.DAY_OF_MONTH),
+            cal.get(Calendar.MONTH) + 1,
+            cal.get(Calendar.DAY_OF_WEEK) - 1,
+        };
+        final String[] fields = text.split(" ");
+        boolean matches = true;
+        for (int idx = 0; idx < fields.length; ++idx) {
+            boolean found = false;
+            for (String part : fields[idx].split(",")) {
+                found |= CrontabTest.sector(part, values[idx]);
+                if (idx == Tv.FOUR && values[idx] == 0) {
+                    found |= CrontabTest.sector(part, Tv.SEVEN);
+                }
+            }
+            matches &= found;
+        }
+        return matches;
+    }
+
+    /**
+     * Brute-force evaluator of one sector.
+     * @param part The sector
+     * @param value The value to check
+     * @return TRUE if it matches
+     */
+    private static boolean sector(final String part, final int value) {
+        final boolean matches;
+        if ("*".equals(part)) {
+            matches = true;
+        } else if (part.startsWith("*/")) {
+            matches = value % Integer.parseInt(part.substring(2)) == 0;
+        } else if (part.contains("/")) {
+            final String[] pair = part.split("/");
+            final String[] range = pair[0].split("-");
+            final int left = Integer.parseInt(range[0]);
+            matches = value >= left && value <= Integer.parseInt(range[1])
+                && (value - left) % Integer.parseInt(pair[1]) == 0;
+        } else if (part.contains("-")) {
+            final String[] range = part.split("-");
+            matches = value >= Integer.parseInt(range[0])
+                && value <= Integer.parseInt(range[1]);
+        } else {
+            matches = value == Integer.parseInt(part);
+        }
+        return matches;
+    }
+
 }
@@ -84,8 +84,31 @@ public final class UnseenCommitsTest {
         final Branch branch = new UnseenCommits(origin, notepad);
         MatcherAssert.assertThat(branch.log(), Matchers.emptyIterable());
         Mockito.verify(origin).log();
-        Mockito.verify(notepad, Mockito.times(2)).contains(Mockito.anyString());
+        Mockito.verify(notepad).contains(Mockito.anyString());
         Mockito.verify(notepad, Mockito.never()).add(Mockito.anyString());
     }
 
+    /**
+     * UnseenCommits can stop at the first seen commit.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void stopsAtFirstSeenCommit() throws Exception {
+        final Branch origin = Mockito.mock(Branch.class);
+        final Commit fresh = Mockito.mock(Commit.class);
+        Mockito.doReturn("a7e4f1c2").when(fresh).name();
+        final Commit seen = Mockito.mock(Commit.class);
+        Mockito.doReturn("b3d9e0a5").when(seen).name();
+        final Commit old = Mockito.mock(Commit.class);
+        Mockito.doReturn(Arrays.asList(fresh, seen, old)).when(origin).log();
+        final Notepad notepad = Mockito.mock(Notepad.class);
+        Mockito.doReturn(true).when(notepad).contains("b3d9e0a5");
+        MatcherAssert.assertThat(
+            new UnseenCommits(origin, notepad).log(),
+            Matchers.contains(fresh)
+        );
+        Mockito.verify(notepad).add("a7e4f1c2");
+        Mockito.verify(old, Mockito.never()).name();
+    }
+
 }
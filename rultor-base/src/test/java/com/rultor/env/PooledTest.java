@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.env;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.urn.URN;
+import com.rultor.spi.Coordinates;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Pooled}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class PooledTest {
+
+    /**
+     * Pooled can reuse environments closed by their users.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void reusesClosedEnvironments() throws Exception {
+        final EnvironmentsMocker.Memory origin =
+            new EnvironmentsMocker.Memory();
+        final Environments envs = new Pooled(
+            PooledTest.work("urn:test:1"), 1, Tv.FIVE, Tv.HUNDRED, origin,
+            new PooledTest.Clean()
+        );
+        final Environment first = envs.acquire();
+        first.close();
+        final Environment second = envs.acquire();
+        MatcherAssert.assertThat(
+            second.address(), Matchers.equalTo(first.address())
+        );
+        MatcherAssert.assertThat(origin.acquired(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(origin.closed(), Matchers.equalTo(0));
+    }
+
+    /**
+     * Pooled can acquire environments in advance.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void acquiresEnvironmentsInAdvance() throws Exception {
+        final EnvironmentsMocker.Memory origin =
+            new EnvironmentsMocker.Memory();
+        final Environments envs = new Pooled(
+            PooledTest.work("urn:test:1"), 2, Tv.FIVE, Tv.HUNDRED, origin
+        );
+        final Environment first = envs.acquire();
+        final long start = System.currentTimeMillis();
+        while (origin.acquired() < 2) {
+            MatcherAssert.assertThat(
+                System.currentTimeMillis() - start,
+                Matchers.lessThan(TimeUnit.MINUTES.toMillis(1))
+            );
+            TimeUnit.MILLISECONDS.sleep(Tv.TEN);
+        }
+        final Environment second = envs.acquire();
+        MatcherAssert.assertThat(
+            second.address(), Matchers.not(Matchers.equalTo(first.address()))
+        );
+        MatcherAssert.assertThat(origin.acquired(), Matchers.equalTo(2));
+    }
+
+    /**
+     * Pooled can close environments that don't fit into the pool.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void closesEnvironmentsWhenFull() throws Exception {
+        final EnvironmentsMocker.Memory origin =
+            new EnvironmentsMocker.Memory();
+        final Environments envs = new Pooled(
+            PooledTest.work("urn:test:1"), 1, Tv.FIVE, Tv.HUNDRED, origin,
+            new PooledTest.Clean()
+        );
+        final Environment first = envs.acquire();
+        final Environment second = envs.acquire();
+        first.close();
+        second.close();
+        MatcherAssert.assertThat(origin.acquired(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(origin.closed(), Matchers.equalTo(1));
+    }
+
+    /**
+     * Pooled can close environments that can't be cleaned.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void closesEnvironmentsWithoutCleanup() throws Exception {
+        final EnvironmentsMocker.Memory origin =
+            new EnvironmentsMocker.Memory();
+        final Environments envs = new Pooled(
+            PooledTest.work("urn:test:1"), 1, Tv.FIVE, Tv.HUNDRED, origin
+        );
+        final Environment first = envs.acquire();
+        first.close();
+        MatcherAssert.assertThat(origin.closed(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(
+            envs.acquire().address(),
+            Matchers.not(Matchers.equalTo(first.address()))
+        );
+    }
+
+    /**
+     * Pooled can keep environments of different owners apart.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void keepsOwnersApart() throws Exception {
+        final EnvironmentsMocker.Memory origin =
+            new EnvironmentsMocker.Memory();
+        final Environment first = new Pooled(
+            PooledTest.work("urn:test:1"), 1, Tv.FIVE, Tv.HUNDRED, origin,
+            new PooledTest.Clean()
+        ).acquire();
+        first.close();
+        final Environment second = new Pooled(
+            PooledTest.work("urn:test:2"), 1, Tv.FIVE, Tv.HUNDRED, origin,
+            new PooledTest.Clean()
+        ).acquire();
+        MatcherAssert.assertThat(
+            second.address(), Matchers.not(Matchers.equalTo(first.address()))
+        );
+    }
+
+    /**
+     * Make coordinates of a rule.
+     * @param owner Owner of the rule
+     * @return Coordinates
+     */
+    private static Coordinates work(final String owner) {
+        return new Coordinates.Simple(URN.create(owner), "pooled-rule");
+    }
+
+    /**
+     * Cleanup that finds all environments clean.
+     */
+    private static final class Clean implements Cleanup {
+        @Override
+        public boolean clean(final Environment env) {
+            return true;
+        }
+    }
+
+}
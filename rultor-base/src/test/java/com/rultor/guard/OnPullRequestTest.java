@@ -36,8 +36,12 @@ import com.rultor.stateful.ConcurrentNotepad;
 import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * Test case for {@link OnPullRequest}.
@@ -94,4 +98,45 @@ public final class OnPullRequestTest {
         Mockito.verify(request).accept(Mockito.any(Snapshot.class));
     }
 
+    /**
+     * OnPullRequest can build a few requests at the same time.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void buildsRequestsInParallel() throws Exception {
+        final MergeRequests requests = Mockito.mock(MergeRequests.class);
+        final MergeRequest first = Mockito.mock(MergeRequest.class);
+        Mockito.doReturn("#1").when(first).name();
+        final MergeRequest second = Mockito.mock(MergeRequest.class);
+        Mockito.doReturn("#2").when(second).name();
+        Mockito.doReturn(Arrays.asList(first, second).iterator())
+            .when(requests).iterator();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final Batch batch = Mockito.mock(Batch.class);
+        Mockito.doAnswer(
+            new Answer<Integer>() {
+                @Override
+                public Integer answer(final InvocationOnMock inv)
+                    throws InterruptedException {
+                    latch.countDown();
+                    int code = 1;
+                    if (latch.await(1, TimeUnit.MINUTES)) {
+                        code = 0;
+                    }
+                    return code;
+                }
+            }
+        ).when(batch).exec(
+            Mockito.any(Map.class), Mockito.any(OutputStream.class)
+        );
+        final ConcurrentNotepad notepad = Mockito.mock(ConcurrentNotepad.class);
+        Mockito.doReturn(true).when(notepad).addIfAbsent(Mockito.anyString());
+        new OnPullRequest(requests, notepad, batch, 2).pulse();
+        Mockito.verify(first).accept(Mockito.any(Snapshot.class));
+        Mockito.verify(second).accept(Mockito.any(Snapshot.class));
+        Mockito.verify(notepad).remove("#1");
+        Mockito.verify(notepad).remove("#2");
+    }
+
 }
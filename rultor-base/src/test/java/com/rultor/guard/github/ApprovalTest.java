@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.guard.github;
+
+import java.util.Date;
+import org.eclipse.egit.github.core.PullRequest;
+import org.eclipse.egit.github.core.PullRequestMarker;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link Approval}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class ApprovalTest {
+
+    /**
+     * Approval.Cached can ask again only when the request changes.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void remembersAnswersPerHeadCommit() throws Exception {
+        final Approval origin = Mockito.mock(Approval.class);
+        Mockito.doReturn(true).when(origin).has(
+            Mockito.any(PullRequest.class), Mockito.any(Github.class),
+            Mockito.any(Github.Repo.class)
+        );
+        final Github github = Mockito.mock(Github.class);
+        final Github.Repo repo = new Github.Repo("test/approval");
+        final PullRequest req = new PullRequest();
+        req.setNumber(1);
+        req.setUpdatedAt(new Date());
+        req.setHead(new PullRequestMarker().setSha("a1b2c3"));
+        final Approval approval = new Approval.Cached(origin);
+        MatcherAssert.assertThat(
+            approval.has(req, github, repo), Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            approval.has(req, github, repo), Matchers.is(true)
+        );
+        Mockito.verify(origin, Mockito.times(1)).has(req, github, repo);
+        req.setHead(new PullRequestMarker().setSha("d4e5f6"));
+        MatcherAssert.assertThat(
+            approval.has(req, github, repo), Matchers.is(true)
+        );
+        Mockito.verify(origin, Mockito.times(2)).has(req, github, repo);
+    }
+
+}
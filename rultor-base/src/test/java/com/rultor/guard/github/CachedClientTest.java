@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.guard.github;
+
+import com.jcabi.aspects.Tv;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.Charsets;
+import org.eclipse.egit.github.core.PullRequest;
+import org.eclipse.egit.github.core.service.PullRequestService;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link CachedClient}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class CachedClientTest {
+
+    /**
+     * CachedClient can take unchanged resources from cache.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void sendsConditionalRequests() throws Exception {
+        final AtomicInteger full = new AtomicInteger();
+        final AtomicInteger cheap = new AtomicInteger();
+        final HttpServer server = HttpServer.create(
+            new InetSocketAddress("localhost", 0), 0
+        );
+        server.createContext(
+            "/",
+            new HttpHandler() {
+                @Override
+                public void handle(final HttpExchange exchange)
+                    throws IOException {
+                    final String etag = "\"c3ab8ff1\"";
+                    exchange.getResponseHeaders().add("ETag", etag);
+                    if (etag.equals(
+                        exchange.getRequestHeaders().getFirst("If-None-Match")
+                    )) {
+                        cheap.incrementAndGet();
+                        exchange.sendResponseHeaders(
+                            HttpURLConnection.HTTP_NOT_MODIFIED, -1
+                        );
+                    } else {
+                        full.incrementAndGet();
+                        final byte[] body = "[{\"number\":7,\"title\":\"hey\"}]"
+                            .getBytes(Charsets.UTF_8);
+                        exchange.sendResponseHeaders(
+                            HttpURLConnection.HTTP_OK, body.length
+                        );
+                        exchange.getResponseBody().write(body);
+                    }
+                    exchange.close();
+                }
+            }
+        );
+        server.start();
+        try {
+            final PullRequestService svc = new PullRequestService(
+                new CachedClient(
+                    "localhost", server.getAddress().getPort(), "http"
+                )
+            );
+            final Github.Repo repo = new Github.Repo("test/cached");
+            for (int idx = 0; idx < 2; ++idx) {
+                final List<PullRequest> requests =
+                    svc.getPullRequests(repo, "open");
+                MatcherAssert.assertThat(requests, Matchers.hasSize(1));
+                MatcherAssert.assertThat(
+                    requests.get(0).getNumber(), Matchers.equalTo(Tv.SEVEN)
+                );
+            }
+        } finally {
+            server.stop(0);
+        }
+        MatcherAssert.assertThat(full.get(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(cheap.get(), Matchers.equalTo(1));
+    }
+
+    /**
+     * CachedClient can keep responses apart for different credentials.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public void keepsCachePerCredentials() throws Exception {
+        final AtomicInteger conditional = new AtomicInteger();
+        final HttpServer server = HttpServer.create(
+            new InetSocketAddress("localhost", 0), 0
+        );
+        server.createContext(
+            "/",
+            new HttpHandler() {
+                @Override
+                public void handle(final HttpExchange exchange)
+                    throws IOException {
+                    if (exchange.getRequestHeaders()
+                        .containsKey("If-None-Match")) {
+                        conditional.incrementAndGet();
+                    }
+                    exchange.getResponseHeaders().add("ETag", "\"e1\"");
+                    final byte[] body = "[]".getBytes(Charsets.UTF_8);
+                    exchange.sendResponseHeaders(
+                        HttpURLConnection.HTTP_OK, body.length
+                    );
+                    exchange.getResponseBody().write(body);
+                    exchange.close();
+                }
+            }
+        );
+        server.start();
+        try {
+            final int port = server.getAddress().getPort();
+            final Github.Repo repo = new Github.Repo("test/credentials");
+            final String[] users = new String[] {"jeff", "walter", "jeff"};
+            for (String user : users) {
+                final CachedClient client = new CachedClient(
+                    "LocalHost", port, "http"
+                );
+                client.setCredentials(user, "secret");
+                new PullRequestService(client).getPullRequests(repo, "open");
+            }
+        } finally {
+            server.stop(0);
+        }
+        MatcherAssert.assertThat(conditional.get(), Matchers.equalTo(1));
+    }
+
+}
@@ -30,10 +30,18 @@
 package com.rultor.scm.git;
 
 import com.google.common.io.Files;
+import com.jcabi.aspects.Tv;
 import com.rultor.scm.Branch;
+import com.rultor.shell.Shell;
 import com.rultor.shell.ShellMocker;
+import com.rultor.shell.Terminal;
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import javax.validation.ConstraintViolationException;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
@@ -76,6 +84,114 @@ public final class GitTest {
         );
     }
 
+    /**
+     * Can checkout the same branch again, without fetching it, until
+     * it changes in the remote repository.
+     * @throws Exception if some problem inside
+     */
+    @Test
+    public void checksOutBranchAgain() throws Exception {
+        final File home = Files.createTempDir();
+        final GitURI uri = GitTest.origin();
+        final Git git = new Git(new ShellMocker.Bash(home), uri, "test3");
+        git.checkout("master");
+        final File state = new File(
+            home, String.format("test3/%s.refs", DigestUtils.md5Hex("master"))
+        );
+        MatcherAssert.assertThat(state.setLastModified(0L), Matchers.is(true));
+        MatcherAssert.assertThat(
+            git.checkout("master"),
+            Matchers.notNullValue(Branch.class)
+        );
+        MatcherAssert.assertThat(state.lastModified(), Matchers.equalTo(0L));
+        new Terminal(new ShellMocker.Bash(new File(uri.value()))).exec(
+            new StringBuilder()
+                .append("cd ../work && echo bye > README")
+                .append(" && git -c user.name=test")
+                .append(" -c user.email=test@rultor.com commit -am second")
+                .append(" && git push origin HEAD:refs/heads/master")
+                .toString()
+        );
+        git.checkout("master");
+        MatcherAssert.assertThat(
+            state.lastModified(), Matchers.greaterThan(0L)
+        );
+        MatcherAssert.assertThat(
+            FileUtils.readFileToString(new File(home, "test3/repo/README")),
+            Matchers.equalTo("bye\n")
+        );
+    }
+
+    /**
+     * Can share one cache of objects among working copies of the same
+     * repository.
+     * @throws Exception if some problem inside
+     */
+    @Test
+    public void sharesCacheAmongWorkingCopies() throws Exception {
+        final File home = Files.createTempDir();
+        final Shell shell = new ShellMocker.Bash(home);
+        final GitURI uri = GitTest.origin();
+        new Git(shell, uri, "first").checkout("master");
+        new Git(shell, uri, "second").checkout("master");
+        final String cache = String.format(
+            "%s.git", DigestUtils.md5Hex(uri.value())
+        );
+        MatcherAssert.assertThat(
+            new File(home, ".rultor-git").list(),
+            Matchers.arrayContainingInAnyOrder(
+                cache, String.format("%s.lock", cache)
+            )
+        );
+        for (String folder : new String[] {"first", "second"}) {
+            MatcherAssert.assertThat(
+                FileUtils.readFileToString(
+                    new File(
+                        home,
+                        String.format(
+                            "%s/repo/.git/objects/info/alternates", folder
+                        )
+                    )
+                ),
+                Matchers.containsString(
+                    String.format(".rultor-git/%s/objects", cache)
+                )
+            );
+        }
+    }
+
+    /**
+     * Can wait for the lock of the shared cache.
+     * @throws Exception if some problem inside
+     */
+    @Test
+    public void waitsForLockOfCache() throws Exception {
+        final File home = Files.createTempDir();
+        final Shell shell = new ShellMocker.Bash(home);
+        final GitURI uri = GitTest.origin();
+        new Git(shell, uri, "alpha").checkout("master");
+        final File held = new File(home, "held");
+        final File released = new File(home, "released");
+        final Process holder = new ProcessBuilder(
+            "flock",
+            new File(
+                home,
+                String.format(
+                    ".rultor-git/%s.git.lock", DigestUtils.md5Hex(uri.value())
+                )
+            ).getAbsolutePath(),
+            "bash", "-c",
+            String.format("touch %s && sleep 2 && touch %s", held, released)
+        ).start();
+        for (int idx = 0; idx < Tv.THOUSAND && !held.exists(); ++idx) {
+            TimeUnit.MILLISECONDS.sleep(Tv.TEN);
+        }
+        MatcherAssert.assertThat(held.exists(), Matchers.is(true));
+        new Git(shell, uri, "beta").checkout("master");
+        MatcherAssert.assertThat(released.exists(), Matchers.is(true));
+        MatcherAssert.assertThat(holder.waitFor(), Matchers.equalTo(0));
+    }
+
     /**
      * Can get branches.
      * @throws Exception if some problem inside
@@ -91,4 +207,60 @@ public final class GitTest {
             Matchers.notNullValue(Collection.class)
         );
     }
+
+    /**
+     * Can read log of a branch.
+     * @throws Exception if some problem inside
+     */
+    @Test
+    public void readsLogOfBranch() throws Exception {
+        final Branch branch = new Git(
+            new ShellMocker.Bash(Files.createTempDir()),
+            GitTest.origin(), "gamma"
+        ).checkout("master");
+        MatcherAssert.assertThat(
+            branch.log().iterator().next().author(),
+            Matchers.equalTo("test@rultor.com")
+        );
+    }
+
+    /**
+     * Can fail with IOException right away if log can't be read.
+     * @throws Exception if some problem inside
+     */
+    @Test(expected = IOException.class)
+    public void failsOnLogOfBrokenBranch() throws Exception {
+        new GitBranch(
+            new Terminal(new ShellMocker.Bash(Files.createTempDir())),
+            "absent", "master"
+        ).log();
+    }
+
+    /**
+     * Create a local bare repository with one commit in master.
+     * @return Its URI
+     * @throws Exception if some problem inside
+     */
+    private static GitURI origin() throws Exception {
+        final File dir = new File(
+            System.getProperty("java.io.tmpdir"),
+            String.format("rultor%d", System.nanoTime())
+        );
+        FileUtils.forceMkdir(dir);
+        new Terminal(new ShellMocker.Bash(dir)).exec(
+            new StringBuilder()
+                .append("git init --bare origin.git")
+                .append(" && git --git-dir=origin.git")
+                .append(" symbolic-ref HEAD refs/heads/master")
+                .append(" && git clone origin.git work")
+                .append(" && cd work && echo hello > README")
+                .append(" && git add README")
+                .append(" && git -c user.name=test")
+                .append(" -c user.email=test@rultor.com commit -m first")
+                .append(" && git push origin HEAD:refs/heads/master")
+                .toString()
+        );
+        return new GitURI(new File(dir, "origin.git").getAbsolutePath());
+    }
+
 }
@@ -32,8 +32,15 @@ package com.rultor.shell;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.List;
+import org.apache.commons.io.Charsets;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * Test case for {@link Terminal}.
@@ -59,4 +66,41 @@ public final class TerminalTest {
         final Terminal terminal = new Terminal(shell);
         terminal.exec("", "");
     }
+
+    /**
+     * Terminal can stream output to a consumer of lines.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void streamsOutputByLines() throws Exception {
+        final Shell shell = Mockito.mock(Shell.class);
+        Mockito.doAnswer(
+            new Answer<Integer>() {
+                @Override
+                public Integer answer(final InvocationOnMock inv)
+                    throws IOException {
+                    OutputStream.class.cast(inv.getArguments()[2])
+                        .write("first\nsecond\n".getBytes(Charsets.UTF_8));
+                    return 0;
+                }
+            }
+        ).when(shell).exec(
+            Mockito.anyString(),
+            Mockito.any(InputStream.class),
+            Mockito.any(OutputStream.class),
+            Mockito.any(OutputStream.class)
+        );
+        final List<String> lines = new LinkedList<String>();
+        new Terminal(shell).exec(
+            "", "",
+            new LineOutputStream.Consumer() {
+                @Override
+                public void line(final String line) {
+                    lines.add(line);
+                }
+            }
+        );
+        MatcherAssert.assertThat(lines, Matchers.contains("first", "second"));
+    }
+
 }
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell.bash;
+
+import com.google.common.io.Files;
+import com.rultor.shell.Sequel;
+import com.rultor.shell.Shell;
+import com.rultor.shell.ShellMocker;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.apache.commons.io.FileUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link S3CmdPut}.
+ *
+ * <p>Instead of S3, a local stand-in is used: a fake {@code s3cmd}
+ * script that keeps objects in a directory and logs uploads.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class S3CmdPutTest {
+
+    /**
+     * S3CmdPut can upload only changed files.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void uploadsOnlyChangedFiles() throws Exception {
+        final File dir = Files.createTempDir();
+        final File log = new File(dir, "uploads.log");
+        final Shell shell = S3CmdPutTest.shell(dir, log);
+        final Sequel sequel = new S3CmdPut(
+            "test", "./test/*.html", "bucket", "prefix/", "key", "secret", 2
+        );
+        FileUtils.write(new File(dir, "test/index.html"), "<html/>");
+        FileUtils.write(new File(dir, "test/data.html"), "content-A");
+        sequel.exec(shell);
+        MatcherAssert.assertThat(
+            FileUtils.readLines(log),
+            Matchers.containsInAnyOrder(
+                "s3://bucket/prefix/index.html",
+                "s3://bucket/prefix/data.html"
+            )
+        );
+        FileUtils.write(new File(dir, "test/data.html"), "content-B");
+        FileUtils.write(log, "");
+        sequel.exec(shell);
+        MatcherAssert.assertThat(
+            FileUtils.readLines(log),
+            Matchers.contains("s3://bucket/prefix/data.html")
+        );
+        MatcherAssert.assertThat(
+            FileUtils.readFileToString(
+                new File(dir, "s3/bucket/prefix/data.html")
+            ),
+            Matchers.equalTo("content-B")
+        );
+    }
+
+    /**
+     * S3CmdPut can upload multipart uploads every time, even if their
+     * sizes didn't change.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void uploadsMultipartUploadsAgain() throws Exception {
+        final File dir = Files.createTempDir();
+        final File log = new File(dir, "uploads.log");
+        final Shell shell = S3CmdPutTest.shell(dir, log);
+        final Sequel sequel = new S3CmdPut(
+            "test", "./data/*.bin", "bucket", "", "key", "secret"
+        );
+        final File large = new File(dir, "data/large.bin");
+        FileUtils.write(large, "large content A");
+        sequel.exec(shell);
+        FileUtils.write(log, "");
+        FileUtils.write(large, "large content B");
+        sequel.exec(shell);
+        MatcherAssert.assertThat(
+            FileUtils.readLines(log),
+            Matchers.contains("s3://bucket/large.bin")
+        );
+        MatcherAssert.assertThat(
+            FileUtils.readFileToString(new File(dir, "s3/bucket/large.bin")),
+            Matchers.equalTo("large content B")
+        );
+    }
+
+    /**
+     * Make a shell with a fake s3cmd.
+     *
+     * <p>Objects with {@code .bin} extension are reported as multipart
+     * uploads, with ETag that is not an MD5 hash of their content.
+     *
+     * @param dir Directory to work in
+     * @param log File to log uploads to
+     * @return Shell
+     * @throws IOException If fails
+     */
+    private static Shell shell(final File dir, final File log)
+        throws IOException {
+        final File bin = new File(dir, "bin");
+        final File script = new File(bin, "s3cmd");
+        FileUtils.write(
+            script,
+            new StringBuilder()
+                .append("#!/bin/bash\n")
+                .append("STORE=").append(new File(dir, "s3")).append('\n')
+                .append("args=()\n")
+                .append("for a in \"$@\"; do case \"$a\" in --*) ;; ")
+                .append("*) args+=(\"$a\");; esac; done\n")
+                .append("case \"${args[0]}\" in\n")
+                .append("ls) prefix=\"${args[1]#s3://}\";")
+                .append(" mkdir -p \"$STORE\" && cd \"$STORE\"")
+                .append(" && find . -type f | sed 's|^\\./||'")
+                .append(" | while read k; do case \"$k\" in \"$prefix\"*)")
+                .append(" echo \"2013-01-01 00:00 $(wc -c < \"$k\")")
+                .append(" $(md5sum < \"$k\" | cut -c1-32)")
+                .append("$(case \"$k\" in *.bin) echo -3;; esac) s3://$k\";;")
+                .append(" esac; done;;\n")
+                .append("put) dest=\"$STORE/${args[2]#s3://}\";")
+                .append(" mkdir -p \"$(dirname \"$dest\")\"")
+                .append(" && cp \"${args[1]}\" \"$dest\"")
+                .append(" && echo \"${args[2]}\" >> ").append(log)
+                .append(";;\nesac\n")
+                .toString()
+        );
+        if (!script.setExecutable(true)) {
+            throw new IOException("can't make s3cmd executable");
+        }
+        final Shell bash = new ShellMocker.Bash(dir);
+        return new Shell() {
+            // @checkstyle ParameterNumber (4 lines)
+            @Override
+            public int exec(final String command, final InputStream stdin,
+                final OutputStream stdout, final OutputStream stderr)
+                throws IOException {
+                return bash.exec(
+                    String.format("PATH=%s:$PATH && %s", bin, command),
+                    stdin, stdout, stderr
+                );
+            }
+            @Override
+            public void close() throws IOException {
+                bash.close();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell.local;
+
+import com.google.common.io.Files;
+import com.rultor.shell.Shell;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link LocalShell}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class LocalShellTest {
+
+    /**
+     * LocalShell can execute a command in its directory.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void executesCommandInDirectory() throws Exception {
+        final File dir = Files.createTempDir();
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        final int code = new LocalShell(dir.getAbsolutePath()).exec(
+            "cat > a.txt && cat a.txt && echo \"$HOME\" >&2 && exit 3",
+            IOUtils.toInputStream("hello, друг!", Charsets.UTF_8.name()),
+            stdout, stderr
+        );
+        MatcherAssert.assertThat(code, Matchers.equalTo(3));
+        MatcherAssert.assertThat(
+            new String(stdout.toByteArray(), Charsets.UTF_8),
+            Matchers.equalTo("hello, друг!")
+        );
+        MatcherAssert.assertThat(
+            new String(stderr.toByteArray(), Charsets.UTF_8),
+            Matchers.containsString(dir.getAbsolutePath())
+        );
+        MatcherAssert.assertThat(
+            FileUtils.readFileToString(new File(dir, "a.txt"), Charsets.UTF_8),
+            Matchers.equalTo("hello, друг!")
+        );
+    }
+
+    /**
+     * LocalShell can limit resources of a command.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void limitsResources() throws Exception {
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        final Shell shell = new LocalShell(
+            Files.createTempDir().getAbsolutePath(), 2, 0
+        );
+        MatcherAssert.assertThat(
+            shell.exec(
+                "ulimit -t", IOUtils.toInputStream(""),
+                stdout, new NullOutputStream()
+            ),
+            Matchers.equalTo(0)
+        );
+        MatcherAssert.assertThat(
+            new String(stdout.toByteArray(), Charsets.UTF_8).trim(),
+            Matchers.equalTo("2")
+        );
+    }
+
+}
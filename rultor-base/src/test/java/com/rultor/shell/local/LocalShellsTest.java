@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell.local;
+
+import com.google.common.io.Files;
+import com.rultor.shell.Shell;
+import java.io.File;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link LocalShells}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class LocalShellsTest {
+
+    /**
+     * LocalShells can give a new directory to every shell.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void isolatesShellsInDirectories() throws Exception {
+        final File dir = Files.createTempDir();
+        final LocalShells shells = new LocalShells(dir.getAbsolutePath(), 0, 0);
+        final Shell first = shells.acquire();
+        final Shell second = shells.acquire();
+        first.exec(
+            "touch a.txt", IOUtils.toInputStream(""),
+            new NullOutputStream(), new NullOutputStream()
+        );
+        MatcherAssert.assertThat(
+            second.exec(
+                "test -f a.txt", IOUtils.toInputStream(""),
+                new NullOutputStream(), new NullOutputStream()
+            ),
+            Matchers.not(Matchers.equalTo(0))
+        );
+        first.close();
+        second.close();
+        MatcherAssert.assertThat(dir.list(), Matchers.emptyArray());
+    }
+
+    /**
+     * LocalShells can refuse to work unless enabled.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void refusesToWorkUnlessEnabled() throws Exception {
+        final String before = System.clearProperty(LocalShell.ENABLED);
+        try {
+            new LocalShells();
+            Assert.fail("local shells created while disabled");
+        } catch (IllegalArgumentException ex) {
+            MatcherAssert.assertThat(
+                ex.getMessage(), Matchers.containsString(LocalShell.ENABLED)
+            );
+        } finally {
+            if (before != null) {
+                System.setProperty(LocalShell.ENABLED, before);
+            }
+        }
+    }
+
+}
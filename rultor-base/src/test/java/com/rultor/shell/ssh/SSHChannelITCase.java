@@ -29,15 +29,18 @@
  */
 package com.rultor.shell.ssh;
 
+import com.jcabi.aspects.Tv;
 import com.jcabi.log.Logger;
 import java.io.ByteArrayOutputStream;
 import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import org.apache.commons.codec.CharEncoding;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.TeeOutputStream;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
+import org.junit.Assume;
 import org.junit.Test;
 
 /**
@@ -91,4 +94,50 @@ public final class SSHChannelITCase {
         );
     }
 
+    /**
+     * SSHChannel can execute many commands in a row quickly, reusing
+     * the same SSH session (to enable the test, run a local SSH server
+     * and set {@code failsafe.ssh.host}, {@code failsafe.ssh.login}
+     * and {@code failsafe.ssh.priv} system properties).
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void executesCommandsInRowQuickly() throws Exception {
+        final String host = System.getProperty("failsafe.ssh.host");
+        Assume.assumeNotNull(host);
+        final SSHChannel channel = new SSHChannel(
+            InetAddress.getByName(host),
+            System.getProperty("failsafe.ssh.login"),
+            new PrivateKey(System.getProperty("failsafe.ssh.priv"))
+        );
+        channel.exec(
+            "true", IOUtils.toInputStream(""),
+            new ByteArrayOutputStream(), new ByteArrayOutputStream()
+        );
+        final long start = System.nanoTime();
+        for (int idx = 0; idx < Tv.TWENTY; ++idx) {
+            final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            MatcherAssert.assertThat(
+                channel.exec(
+                    String.format("echo %d", idx),
+                    IOUtils.toInputStream(""),
+                    stdout,
+                    new ByteArrayOutputStream()
+                ),
+                Matchers.equalTo(0)
+            );
+            MatcherAssert.assertThat(
+                stdout.toString(CharEncoding.UTF_8),
+                Matchers.equalTo(String.format("%d\n", idx))
+            );
+        }
+        final long latency = TimeUnit.NANOSECONDS.toMillis(
+            (System.nanoTime() - start) / Tv.TWENTY
+        );
+        Logger.info(this, "per-command latency is %[ms]s", latency);
+        MatcherAssert.assertThat(
+            latency, Matchers.lessThan(TimeUnit.SECONDS.toMillis(1))
+        );
+    }
+
 }
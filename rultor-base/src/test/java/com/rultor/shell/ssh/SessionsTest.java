@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.shell.ssh;
+
+import com.jcabi.aspects.Tv;
+import com.jcraft.jsch.Session;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link Sessions}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class SessionsTest {
+
+    /**
+     * Sessions can reuse an idle session.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void reusesIdleSession() throws Exception {
+        final Sessions sessions = new Sessions(Tv.FIVE, Tv.MILLION);
+        final Session session = SessionsTest.session();
+        sessions.give("a", session);
+        MatcherAssert.assertThat(
+            sessions.take("b"), Matchers.nullValue()
+        );
+        MatcherAssert.assertThat(
+            sessions.take("a"), Matchers.sameInstance(session)
+        );
+        MatcherAssert.assertThat(
+            sessions.take("a"), Matchers.nullValue()
+        );
+        Mockito.verify(session, Mockito.never()).disconnect();
+    }
+
+    /**
+     * Sessions can disconnect sessions that don't fit into the pool.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void disconnectsExtraSessions() throws Exception {
+        final Sessions sessions = new Sessions(1, Tv.MILLION);
+        final Session first = SessionsTest.session();
+        final Session second = SessionsTest.session();
+        sessions.give("x", first);
+        sessions.give("x", second);
+        Mockito.verify(second).disconnect();
+        MatcherAssert.assertThat(
+            sessions.take("x"), Matchers.sameInstance(first)
+        );
+    }
+
+    /**
+     * Sessions can skip broken and expired sessions.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void skipsBrokenAndExpiredSessions() throws Exception {
+        final Sessions sessions = new Sessions(Tv.FIVE, Tv.MILLION);
+        final Session broken = SessionsTest.session();
+        sessions.give("y", broken);
+        Mockito.doReturn(false).when(broken).isConnected();
+        MatcherAssert.assertThat(
+            sessions.take("y"), Matchers.nullValue()
+        );
+        Mockito.verify(broken).disconnect();
+        final Sessions expiring = new Sessions(Tv.FIVE, -1);
+        final Session expired = SessionsTest.session();
+        expiring.give("z", expired);
+        expiring.run();
+        Mockito.verify(expired).disconnect();
+        MatcherAssert.assertThat(
+            expiring.take("z"), Matchers.nullValue()
+        );
+    }
+
+    /**
+     * Make a connected session.
+     * @return Session
+     */
+    private static Session session() {
+        final Session session = Mockito.mock(Session.class);
+        Mockito.doReturn(true).when(session).isConnected();
+        return session;
+    }
+
+}
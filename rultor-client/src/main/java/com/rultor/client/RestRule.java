@@ -40,6 +40,7 @@ import com.rultor.spi.Wallet;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URLEncoder;
+import java.util.List;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.UriBuilder;
@@ -162,6 +163,57 @@ final class RestRule implements Rule {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>An empty schedule has no text in the page, so an empty string
+     * is returned if there is no text.
+     */
+    @Override
+    public String schedule() {
+        final List<String> texts = RestTester
+            .start(UriBuilder.fromUri(this.home))
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_XML)
+            .header(HttpHeaders.AUTHORIZATION, this.token)
+            .get("#schedule()")
+            .assertStatus(HttpURLConnection.HTTP_OK)
+            .xpath("/page/rule/schedule/text()");
+        final String schedule;
+        if (texts.isEmpty()) {
+            schedule = "";
+        } else {
+            schedule = texts.get(0);
+        }
+        return schedule;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Idle pulses are counted by the conveyer of the server, the client
+     * can't change the counter, so the call is ignored.
+     */
+    @Override
+    public void idle(final int pulses) {
+        // intentionally empty
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int idle() {
+        return Integer.parseInt(
+            RestTester.start(UriBuilder.fromUri(this.home))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_XML)
+                .header(HttpHeaders.AUTHORIZATION, this.token)
+                .get("#idle()")
+                .assertStatus(HttpURLConnection.HTTP_OK)
+                .xpath("/page/rule/idle/text()")
+                .get(0)
+        );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.conveyer;
+
+import com.google.common.collect.ImmutableSet;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.log.Logger;
+import com.rultor.snapshot.Snapshot;
+import com.rultor.snapshot.XemblyLine;
+import com.rultor.spi.Drain;
+import com.rultor.spi.Pageable;
+import com.rultor.tools.Time;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.ToString;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xembly.ImpossibleModificationException;
+import org.xembly.XemblySyntaxException;
+
+/**
+ * Activity of a pulse, which finds out whether it did any real work.
+ *
+ * <p>Xembly lines are collected by a drain made by {@link #watch(Drain)},
+ * which has to wrap the drain of the pulse, in order to see exactly the
+ * same lines that the drain gets from the log4j appender of
+ * {@link com.rultor.log4j.ThreadGroupSpy}.
+ *
+ * <p>A pulse is idle when its snapshot has only steps of polling classes,
+ * like {@code Crontab} or {@code UnseenCommits}. As soon as a step of any
+ * other class shows up (a build, an announcement, a merge, etc.), the
+ * pulse is busy. When there are no steps at all, nothing is known about
+ * the pulse (it may have failed before its first step, or its steps may
+ * be below the log level of the drain).
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(exclude = "scripts")
+@Loggable(Loggable.DEBUG)
+final class Activity {
+
+    /**
+     * Classes that only poll and decide whether to go further.
+     */
+    private static final Set<String> POLLING = ImmutableSet.of(
+        "com.rultor.base.Crontab",
+        "com.rultor.base.Parallel",
+        "com.rultor.ci.UnseenBranches",
+        "com.rultor.ci.UnseenCommits",
+        "com.rultor.guard.github.GhRequests",
+        "com.rultor.scm.Edge",
+        "com.rultor.scm.SemVer",
+        "com.rultor.scm.git.Git"
+    );
+
+    /**
+     * Xembly scripts logged during the pulse.
+     */
+    private final transient ConcurrentLinkedQueue<String> scripts =
+        new ConcurrentLinkedQueue<String>();
+
+    /**
+     * Make a drain that watches lines going to the given one.
+     * @param drain The drain of the pulse
+     * @return Drain to use instead
+     */
+    public Drain watch(final Drain drain) {
+        return new Activity.Watched(drain);
+    }
+
+    /**
+     * Did the pulse do any real work?
+     *
+     * <p>The pulse is busy when its snapshot can't be rendered.
+     *
+     * @return TRUE if it did, FALSE if it only polled, NULL if there
+     *  were no steps at all
+     */
+    public Boolean busy() {
+        final StringBuilder script = new StringBuilder("XPATH '/snapshot';");
+        for (String text : this.scripts) {
+            script.append(text);
+        }
+        Boolean busy = null;
+        try {
+            final NodeList steps = new Snapshot(script.toString())
+                .dom().getElementsByTagName("step");
+            for (int idx = 0; idx < steps.getLength(); ++idx) {
+                final String type = Element.class.cast(steps.item(idx))
+                    .getAttribute("class");
+                busy = !Activity.POLLING.contains(type);
+                if (busy) {
+                    break;
+                }
+            }
+        } catch (XemblySyntaxException ex) {
+            Logger.warn(this, "broken snapshot: %s", ex);
+            busy = true;
+        } catch (ImpossibleModificationException ex) {
+            Logger.warn(this, "snapshot can't be rendered: %s", ex);
+            busy = true;
+        }
+        return busy;
+    }
+
+    /**
+     * Drain that collects xembly lines and sends everything further.
+     */
+    @ToString(of = "origin")
+    private final class Watched implements Drain, Closeable {
+        /**
+         * Original drain.
+         */
+        private final transient Drain origin;
+        /**
+         * Public ctor.
+         * @param drain Original drain
+         */
+        Watched(final Drain drain) {
+            this.origin = drain;
+        }
+        @Override
+        public Pageable<Time, Time> pulses() throws IOException {
+            return this.origin.pulses();
+        }
+        @Override
+        public void append(final Iterable<String> lines) throws IOException {
+            for (String line : lines) {
+                if (!XemblyLine.existsIn(line)) {
+                    continue;
+                }
+                try {
+                    Activity.this.scripts.add(XemblyLine.parse(line).xembly());
+                } catch (XemblySyntaxException ex) {
+                    Logger.warn(Activity.this, "broken xembly: %s", ex);
+                }
+            }
+            this.origin.append(lines);
+        }
+        @Override
+        public InputStream read() throws IOException {
+            return this.origin.read();
+        }
+        @Override
+        public void close() throws IOException {
+            if (this.origin instanceof Closeable) {
+                Closeable.class.cast(this.origin).close();
+            }
+        }
+    }
+
+}
@@ -31,6 +31,8 @@ package com.rultor.conveyer;
 
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Quietly;
+import com.jcabi.aspects.Tv;
 import com.rultor.log4j.ThreadGroupSpy;
 import com.rultor.spi.Arguments;
 import com.rultor.spi.Coordinates;
@@ -73,6 +75,12 @@ final class Job {
         Instance decorate(Instance instance);
     }
 
+    /**
+     * Maximum number of idle pulses in a row worth recording, the quartz
+     * never backs off for more than two to the power of this number.
+     */
+    private static final int MAX_IDLE = Tv.TEN;
+
     /**
      * Work to do.
      */
@@ -111,7 +119,17 @@ final class Job {
         final Rule rule = owner.rules().get(this.work.rule());
         if (rule.failure().isEmpty()) {
             try {
-                this.make(owner, rule, decor).pulse();
+                final Activity activity = new Activity();
+                final Instance instance = this.make(
+                    owner, rule, decor, activity
+                );
+                Boolean busy = Boolean.TRUE;
+                try {
+                    instance.pulse();
+                    busy = activity.busy();
+                } finally {
+                    Job.record(rule, busy);
+                }
             } catch (SpecException ex) {
                 rule.failure(Exceptions.stacktrace(ex));
             // @checkstyle IllegalCatch (1 line)
@@ -121,17 +139,44 @@ final class Job {
         }
     }
 
+    /**
+     * Record the activity of the rule, in order to let the quartz back off
+     * if it is idle for too long.
+     *
+     * <p>A failed pulse counts as busy, a pulse without steps changes
+     * nothing. Failures of the rule are logged and swallowed, in order
+     * not to hide an exception of the pulse.
+     *
+     * @param rule The rule
+     * @param busy Did it do any real work, or NULL if unknown
+     */
+    @Quietly
+    private static void record(final Rule rule, final Boolean busy) {
+        if (busy != null) {
+            final int idle = rule.idle();
+            if (busy) {
+                if (idle > 0) {
+                    rule.idle(0);
+                }
+            } else if (idle < Job.MAX_IDLE) {
+                rule.idle(idle + 1);
+            }
+        }
+    }
+
     /**
      * Make an instance to run.
      * @param owner Owner of it
      * @param rule The rule to use
      * @param decor Decorator to use
+     * @param activity Activity to watch the drain of the pulse
      * @return Instance
      * @throws SpecException If incorrect spec
-     * @checkstyle RedundantThrows (4 lines)
+     * @checkstyle RedundantThrows (5 lines)
+     * @checkstyle ParameterNumber (4 lines)
      */
     private Instance make(final User owner, final Rule rule,
-        final Job.Decor decor) throws SpecException {
+        final Job.Decor decor, final Activity activity) throws SpecException {
         final Variable<?> var = this.var(owner, rule.spec());
         Instance instance = Instance.EMPTY;
         if (var.arguments().isEmpty()) {
@@ -148,7 +193,7 @@ final class Job {
                         rule.spec(),
                         decor.decorate(Instance.class.cast(inst))
                     ),
-                    Drain.class.cast(drain)
+                    activity.watch(Drain.class.cast(drain))
                 );
             }
         }
@@ -117,6 +117,30 @@ final class AuditRule implements Rule {
         return this.origin.drain();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String schedule() {
+        return this.origin.schedule();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void idle(final int pulses) {
+        this.origin.idle(pulses);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int idle() {
+        return this.origin.idle();
+    }
+
     /**
      * {@inheritDoc}
      */
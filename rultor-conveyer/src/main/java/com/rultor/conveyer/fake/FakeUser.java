@@ -121,6 +121,18 @@ final class FakeUser implements User {
                         );
                     }
                     @Override
+                    public String schedule() {
+                        return "";
+                    }
+                    @Override
+                    public void idle(final int pulses) {
+                        // nothing to save
+                    }
+                    @Override
+                    public int idle() {
+                        return 0;
+                    }
+                    @Override
                     public void failure(final String desc) {
                         throw new UnsupportedOperationException();
                     }
@@ -35,6 +35,7 @@ import com.jcabi.aspects.ScheduleWithFixedDelay;
 import com.jcabi.aspects.Tv;
 import com.rultor.spi.Drain;
 import com.rultor.tools.Time;
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -149,10 +150,20 @@ final class GroupAppender extends AppenderSkeleton
 
     /**
      * {@inheritDoc}
+     *
+     * <p>The drain is closed after the last flush, if it is closeable,
+     * in order to let it finish its background work of the pulse. Closing
+     * is passed down the whole chain of decorators, and drains that send
+     * data in background ({@code Standed} and {@code Forked}, for example)
+     * wait for it up to a minute each, so the end of a pulse may be
+     * delayed by a minute for every such drain in the chain.
      */
     @Override
     public void close() {
         this.run();
+        if (this.drain instanceof Closeable) {
+            this.shut(Closeable.class.cast(this.drain));
+        }
     }
 
     /**
@@ -163,6 +174,19 @@ final class GroupAppender extends AppenderSkeleton
         return true;
     }
 
+    /**
+     * Close the drain.
+     * @param closeable The drain to close
+     */
+    @Quietly
+    public void shut(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
     /**
      * Flush them all to the drain.
      * @param lns Lines to flush
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.conveyer;
+
+import com.rultor.snapshot.XemblyLine;
+import com.rultor.spi.Drain;
+import java.util.Arrays;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.xembly.Directives;
+
+/**
+ * Test case for {@link Activity}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class ActivityTest {
+
+    /**
+     * Activity can detect an idle pulse.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void detectsIdlePulse() throws Exception {
+        MatcherAssert.assertThat(
+            ActivityTest.activity("com.rultor.base.Crontab").busy(),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Activity can detect a busy pulse.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void detectsBusyPulse() throws Exception {
+        MatcherAssert.assertThat(
+            ActivityTest.activity("com.rultor.ci.OnCommit").busy(),
+            Matchers.is(true)
+        );
+    }
+
+    /**
+     * Activity can tell nothing about a pulse without steps.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void knowsNothingWithoutSteps() throws Exception {
+        final Activity activity = new Activity();
+        final Drain drain = Mockito.mock(Drain.class);
+        activity.watch(drain).append(Arrays.asList("  0:01 INFO hello"));
+        Mockito.verify(drain).append(Mockito.<Iterable<String>>any());
+        MatcherAssert.assertThat(activity.busy(), Matchers.nullValue());
+    }
+
+    /**
+     * Make an activity that saw a step of the given class.
+     * @param type Class of the step
+     * @return Activity
+     * @throws Exception If fails
+     */
+    private static Activity activity(final String type) throws Exception {
+        final Activity activity = new Activity();
+        activity.watch(Mockito.mock(Drain.class)).append(
+            Arrays.asList(
+                String.format(
+                    "  0:02 INFO %s",
+                    new XemblyLine(
+                        new Directives()
+                            .xpath("/snapshot")
+                            .addIfAbsent("steps")
+                            .add("step")
+                            .attr("id", "1")
+                            .attr("class", type)
+                            .attr("method", "pulse")
+                    )
+                )
+            )
+        );
+        return activity;
+    }
+
+}
@@ -37,6 +37,7 @@ import com.jcabi.log.Logger;
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Drain;
 import com.rultor.spi.Pageable;
+import com.rultor.tools.Ranges;
 import com.rultor.tools.Time;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -44,9 +45,11 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -56,6 +59,16 @@ import org.apache.commons.lang3.Validate;
 /**
  * Buffered in memory.
  *
+ * <p>Content of origin drains is cached in memory, shared by all
+ * instances of this class, for the given number of seconds, until
+ * a new line is appended, or until the total size of the cache
+ * exceeds {@link #BUDGET} bytes. In the latter case least recently
+ * read drains are evicted first. Cached bytes are never copied, every
+ * read gets a stream on top of the same array.
+ *
+ * <p>Ranged and tail reads are not buffered, they go to the original
+ * drain, without the header.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -66,14 +79,39 @@ import org.apache.commons.lang3.Validate;
 @EqualsAndHashCode(of = { "work", "lifetime", "origin" })
 @Loggable(Loggable.DEBUG)
 @SuppressWarnings({ "PMD.DoNotUseThreads", "PMD.TooManyMethods" })
-public final class BufferedRead implements Drain, Closeable {
+public final class BufferedRead implements Drain.Ranged, Closeable {
+
+    /**
+     * Maximum number of bytes kept in memory by all buffers.
+     */
+    public static final long BUDGET = (long) Tv.MILLION * Tv.FIFTY;
 
     /**
-     * All in-memory buffers.
+     * All in-memory buffers, least recently read first.
      * @checkstyle LineLength (2 lines)
      */
-    private static final ConcurrentMap<BufferedRead, BufferedRead.Buffer> BUFFERS =
-        new ConcurrentHashMap<BufferedRead, BufferedRead.Buffer>(0);
+    private static final Map<BufferedRead, BufferedRead.Buffer> BUFFERS =
+        new LinkedHashMap<BufferedRead, BufferedRead.Buffer>(0, 1.0f, true);
+
+    /**
+     * Number of bytes in all buffers, guarded by {@link #BUFFERS}.
+     */
+    private static final AtomicLong BYTES = new AtomicLong();
+
+    /**
+     * Number of reads served from memory.
+     */
+    private static final AtomicLong HITS = new AtomicLong();
+
+    /**
+     * Number of reads that went to origin drains.
+     */
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    /**
+     * Number of buffers evicted because of the budget.
+     */
+    private static final AtomicLong EVICTIONS = new AtomicLong();
 
     /**
      * Cleaner of memory.
@@ -121,12 +159,50 @@ public final class BufferedRead implements Drain, Closeable {
         this.origin = drain;
     }
 
+    /**
+     * Number of reads served from memory, by all instances.
+     * @return Number of hits
+     */
+    public static long hits() {
+        return BufferedRead.HITS.get();
+    }
+
+    /**
+     * Number of reads that had to go to origin drains, by all instances.
+     * @return Number of misses
+     */
+    public static long misses() {
+        return BufferedRead.MISSES.get();
+    }
+
+    /**
+     * Number of buffers evicted because the cache was over its budget.
+     * @return Number of evictions
+     */
+    public static long evictions() {
+        return BufferedRead.EVICTIONS.get();
+    }
+
+    /**
+     * Number of bytes kept in memory now, by all instances.
+     * @return Number of bytes
+     */
+    public static long bytes() {
+        return BufferedRead.BYTES.get();
+    }
+
     /**
      * {@inheritDoc}
+     *
+     * <p>Cleans expired buffers and closes the original drain, if it
+     * is closeable.
      */
     @Override
-    public void close() {
+    public void close() throws IOException {
         BufferedRead.CLEANER.run();
+        if (this.origin instanceof Closeable) {
+            Closeable.class.cast(this.origin).close();
+        }
     }
 
     /**
@@ -143,7 +219,9 @@ public final class BufferedRead implements Drain, Closeable {
     @Override
     public void append(final Iterable<String> lines) throws IOException {
         this.origin.append(lines);
-        BufferedRead.BUFFERS.remove(this);
+        synchronized (BufferedRead.BUFFERS) {
+            BufferedRead.drop(BufferedRead.BUFFERS.remove(this));
+        }
     }
 
     /**
@@ -151,15 +229,17 @@ public final class BufferedRead implements Drain, Closeable {
      */
     @Override
     public InputStream read() throws IOException {
-        final BufferedRead.Buffer buffer;
+        BufferedRead.Buffer buffer;
         synchronized (BufferedRead.BUFFERS) {
-            if (!BufferedRead.BUFFERS.containsKey(this)) {
-                BufferedRead.BUFFERS.put(
-                    this,
-                    new BufferedRead.Buffer()
-                );
-            }
             buffer = BufferedRead.BUFFERS.get(this);
+            if (buffer == null || buffer.expired()) {
+                BufferedRead.drop(buffer);
+                buffer = new BufferedRead.Buffer();
+                BufferedRead.BUFFERS.put(this, buffer);
+                BufferedRead.MISSES.incrementAndGet();
+            } else {
+                BufferedRead.HITS.incrementAndGet();
+            }
         }
         return new SequenceInputStream(
             IOUtils.toInputStream(
@@ -172,8 +252,51 @@ public final class BufferedRead implements Drain, Closeable {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return Ranges.size(this.origin);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.origin, offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.origin, lines);
+    }
+
+    /**
+     * Forget about the buffer removed from the map.
+     *
+     * <p>Must be called while holding a lock on {@link #BUFFERS}.
+     *
+     * @param buffer The buffer or NULL
+     */
+    private static void drop(final BufferedRead.Buffer buffer) {
+        if (buffer != null) {
+            BufferedRead.BYTES.addAndGet(-buffer.size);
+            buffer.size = 0;
+        }
+    }
+
     /**
      * Thread-safe buffer to the real drain.
+     *
+     * <p>Content is loaded from the origin drain by the first reader,
+     * while others wait for it on the lock of this buffer (not on the
+     * lock of the entire cache).
      */
     private final class Buffer {
         /**
@@ -181,24 +304,39 @@ public final class BufferedRead implements Drain, Closeable {
          */
         private final transient long start = System.currentTimeMillis();
         /**
-         * Buffered data.
+         * Number of bytes accounted in the cache, guarded by
+         * {@link BufferedRead#BUFFERS}.
          */
-        private final transient byte[] data;
+        private transient long size;
         /**
-         * Public ctor.
-         * @throws IOException If some error with the stream
+         * Buffered data, NULL until loaded.
          */
-        protected Buffer() throws IOException {
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            IOUtils.copyLarge(BufferedRead.this.origin.read(), baos);
-            this.data = baos.toByteArray();
-        }
+        private transient BufferedRead.Bytes data;
         /**
          * Read it as a stream.
          * @return Stream
+         * @throws IOException If some error with the stream
          */
-        public InputStream stream() {
-            return new ByteArrayInputStream(this.data);
+        public synchronized InputStream stream() throws IOException {
+            if (this.data == null) {
+                final BufferedRead.Bytes bytes = new BufferedRead.Bytes();
+                try {
+                    IOUtils.copyLarge(
+                        BufferedRead.this.origin.read(), bytes
+                    );
+                } catch (IOException ex) {
+                    synchronized (BufferedRead.BUFFERS) {
+                        if (BufferedRead.BUFFERS.get(BufferedRead.this)
+                            == this) {
+                            BufferedRead.BUFFERS.remove(BufferedRead.this);
+                        }
+                    }
+                    throw ex;
+                }
+                this.data = bytes;
+                this.charge();
+            }
+            return this.data.stream();
         }
         /**
          * Is it too old?
@@ -208,6 +346,49 @@ public final class BufferedRead implements Drain, Closeable {
             return System.currentTimeMillis() - this.start
                 > BufferedRead.this.lifetime;
         }
+        /**
+         * Account loaded bytes in the cache and evict least recently
+         * read buffers if it is over the budget.
+         */
+        private void charge() {
+            synchronized (BufferedRead.BUFFERS) {
+                if (BufferedRead.BUFFERS.get(BufferedRead.this) == this) {
+                    this.size = this.data.capacity();
+                    BufferedRead.BYTES.addAndGet(this.size);
+                }
+                final Iterator<BufferedRead.Buffer> eldest =
+                    BufferedRead.BUFFERS.values().iterator();
+                while (BufferedRead.BYTES.get() > BufferedRead.BUDGET
+                    && eldest.hasNext()) {
+                    final BufferedRead.Buffer buffer = eldest.next();
+                    if (buffer.size > 0) {
+                        eldest.remove();
+                        BufferedRead.drop(buffer);
+                        BufferedRead.EVICTIONS.incrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Output stream that exposes its bytes without copying them.
+     */
+    private static final class Bytes extends ByteArrayOutputStream {
+        /**
+         * Read it as a stream, on top of the same array.
+         * @return Stream
+         */
+        public synchronized InputStream stream() {
+            return new ByteArrayInputStream(this.buf, 0, this.count);
+        }
+        /**
+         * Number of bytes allocated.
+         * @return Number of bytes
+         */
+        public synchronized int capacity() {
+            return this.buf.length;
+        }
     }
 
     /**
@@ -224,9 +405,15 @@ public final class BufferedRead implements Drain, Closeable {
     private static final class Cleaner implements Runnable {
         @Override
         public void run() {
-            for (BufferedRead client : BufferedRead.BUFFERS.keySet()) {
-                if (BufferedRead.BUFFERS.get(client).expired()) {
-                    BufferedRead.BUFFERS.remove(client);
+            synchronized (BufferedRead.BUFFERS) {
+                final Iterator<BufferedRead.Buffer> buffers =
+                    BufferedRead.BUFFERS.values().iterator();
+                while (buffers.hasNext()) {
+                    final BufferedRead.Buffer buffer = buffers.next();
+                    if (buffer.expired()) {
+                        buffers.remove();
+                        BufferedRead.drop(buffer);
+                    }
                 }
             }
         }
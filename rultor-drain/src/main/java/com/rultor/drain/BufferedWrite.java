@@ -29,25 +29,32 @@
  */
 package com.rultor.drain;
 
-import com.google.common.collect.Iterables;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.ScheduleWithFixedDelay;
 import com.jcabi.aspects.Tv;
 import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseRunnable;
+import com.jcabi.log.VerboseThreads;
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Drain;
 import com.rultor.spi.Pageable;
+import com.rultor.tools.Ranges;
 import com.rultor.tools.Time;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -58,6 +65,22 @@ import org.apache.commons.lang3.Validate;
 /**
  * Buffered in memory.
  *
+ * <p>Lines are appended to an in-memory buffer of the drain (a tunnel)
+ * and sent to the origin drain later, by a pool of flushing threads,
+ * when the oldest buffered line is older than the given interval, or
+ * when the buffer is longer than {@link #THRESHOLD} characters. Each
+ * tunnel has its own locks, so appending never waits for a flush, and
+ * one slow origin drain delays only its own tunnel.
+ *
+ * <p>All tunnels together may keep up to {@link #BUDGET} characters.
+ * When the budget is exceeded, {@link #append(Iterable)} flushes its
+ * own tunnel in the calling thread and then waits (up to a minute) for
+ * other tunnels to be flushed, so that writers slow down instead of
+ * exhausting memory.
+ *
+ * <p>Ranged and tail reads go to the original drain, without the
+ * header.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -68,7 +91,17 @@ import org.apache.commons.lang3.Validate;
 @EqualsAndHashCode(of = { "lifetime", "work", "origin" })
 @Loggable(Loggable.DEBUG)
 @SuppressWarnings({ "PMD.DoNotUseThreads", "PMD.TooManyMethods" })
-public final class BufferedWrite implements Drain, Closeable {
+public final class BufferedWrite implements Drain.Ranged, Closeable {
+
+    /**
+     * Maximum number of characters buffered in all tunnels.
+     */
+    public static final long BUDGET = (long) Tv.MILLION * Tv.FIFTY;
+
+    /**
+     * Number of characters in a tunnel that triggers its flush.
+     */
+    public static final long THRESHOLD = Tv.MILLION;
 
     /**
      * All in-memory buffers.
@@ -77,6 +110,19 @@ public final class BufferedWrite implements Drain, Closeable {
     private static final ConcurrentMap<BufferedWrite, BufferedWrite.Tunnel> TUNNELS =
         new ConcurrentHashMap<BufferedWrite, BufferedWrite.Tunnel>(0);
 
+    /**
+     * Number of characters buffered in all tunnels.
+     */
+    private static final AtomicLong BUFFERED = new AtomicLong();
+
+    /**
+     * Threads that flush tunnels.
+     */
+    private static final ExecutorService FLUSHERS =
+        Executors.newFixedThreadPool(
+            Tv.FIVE, new VerboseThreads(BufferedWrite.class)
+        );
+
     /**
      * Flusher.
      */
@@ -125,10 +171,22 @@ public final class BufferedWrite implements Drain, Closeable {
 
     /**
      * {@inheritDoc}
+     *
+     * <p>Flushes the tunnel of this drain, if there is one, and closes
+     * the original drain, if it is closeable.
      */
     @Override
-    public void close() {
-        BufferedWrite.FLUSH.flush(true);
+    public void close() throws IOException {
+        final BufferedWrite.Tunnel tunnel = BufferedWrite.TUNNELS.get(this);
+        try {
+            if (tunnel != null) {
+                tunnel.flush();
+            }
+        } finally {
+            if (this.origin instanceof Closeable) {
+                Closeable.class.cast(this.origin).close();
+            }
+        }
     }
 
     /**
@@ -144,11 +202,21 @@ public final class BufferedWrite implements Drain, Closeable {
      */
     @Override
     public void append(final Iterable<String> lines) throws IOException {
-        synchronized (this.work) {
+        BufferedWrite.Tunnel tunnel;
+        while (true) {
             BufferedWrite.TUNNELS.putIfAbsent(
                 this, new BufferedWrite.Tunnel()
             );
-            BufferedWrite.TUNNELS.get(this).send(lines);
+            tunnel = BufferedWrite.TUNNELS.get(this);
+            if (tunnel != null && tunnel.send(lines)) {
+                break;
+            }
+        }
+        if (BufferedWrite.BUFFERED.get() > BufferedWrite.BUDGET) {
+            tunnel.flush();
+            BufferedWrite.FLUSH.relieve();
+        } else if (tunnel.length() > BufferedWrite.THRESHOLD) {
+            tunnel.submit();
         }
     }
 
@@ -169,44 +237,174 @@ public final class BufferedWrite implements Drain, Closeable {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return Ranges.size(this.origin);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.origin, offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.origin, lines);
+    }
+
     /**
      * Thread-safe tunnel to the real drain.
+     *
+     * <p>Lines are added to the buffer under its own lock, while the
+     * origin drain is called under another one, so appending doesn't
+     * wait for a flush, and flushes of the same tunnel go one by one,
+     * preserving the order of lines.
      */
-    @ToString
-    @EqualsAndHashCode(of = { "start", "data" })
+    @ToString(of = { "start", "chars" })
     private final class Tunnel {
         /**
-         * When was is scheduled.
+         * When was the oldest line buffered, or zero if none.
+         */
+        private transient long start;
+        /**
+         * When was a line buffered last time.
+         */
+        private transient long touched = System.currentTimeMillis();
+        /**
+         * Number of characters buffered.
          */
-        private final transient long start = System.currentTimeMillis();
+        private transient long chars;
         /**
          * Buffered data.
          */
-        private final transient Collection<String> data =
-            new CopyOnWriteArrayList<String>();
+        private transient List<String> data = new ArrayList<String>(0);
+        /**
+         * Is it removed from the map of tunnels?
+         */
+        private transient boolean retired;
+        /**
+         * Is it waiting for a flushing thread?
+         */
+        private final transient AtomicBoolean queued = new AtomicBoolean();
+        /**
+         * Lock of the origin drain.
+         */
+        private final transient Object output = new Object();
         /**
          * Send lines through.
          * @param lines Lines to send
+         * @return FALSE if the tunnel is retired and can't accept them
+         */
+        public boolean send(final Iterable<String> lines) {
+            synchronized (this) {
+                if (this.retired) {
+                    return false;
+                }
+                long added = 0;
+                for (String line : lines) {
+                    this.data.add(line);
+                    added += line.length();
+                }
+                if (this.start == 0) {
+                    this.start = System.currentTimeMillis();
+                }
+                this.touched = System.currentTimeMillis();
+                this.chars += added;
+                BufferedWrite.BUFFERED.addAndGet(added);
+                return true;
+            }
+        }
+        /**
+         * Number of characters buffered.
+         * @return Number of them
+         */
+        public synchronized long length() {
+            return this.chars;
+        }
+        /**
+         * Flush it in background, unless it is waiting for that already.
+         */
+        public void submit() {
+            if (this.queued.compareAndSet(false, true)) {
+                BufferedWrite.FLUSHERS.submit(
+                    new VerboseRunnable(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                BufferedWrite.Tunnel.this.queued.set(false);
+                                try {
+                                    BufferedWrite.Tunnel.this.flush();
+                                } catch (IOException ex) {
+                                    Logger.warn(this, "#run(): %s", ex);
+                                }
+                            }
+                        },
+                        true, false
+                    )
+                );
+            }
+        }
+        /**
+         * Flush it in background, if its oldest line is too old, or
+         * retire it, if it is empty and idle for too long.
          */
-        public void send(final Iterable<String> lines) {
-            Iterables.addAll(this.data, lines);
+        public void check() {
+            final long now = System.currentTimeMillis();
+            final long life = BufferedWrite.this.lifetime;
+            boolean expired = false;
+            synchronized (this) {
+                if (this.data.isEmpty()) {
+                    if (now - this.touched > life
+                        && BufferedWrite.TUNNELS.remove(
+                            BufferedWrite.this, this
+                        )) {
+                        this.retired = true;
+                    }
+                } else {
+                    expired = now - this.start > life;
+                }
+            }
+            if (expired) {
+                this.submit();
+            }
         }
         /**
-         * Flush if necessary.
-         * @param force Flush in any case
-         * @return TRUE if it was flushed and should be removed
+         * Send all buffered lines to the origin drain.
+         *
+         * <p>Lines are lost if the origin drain fails.
+         *
          * @throws IOException If fails
          */
-        public boolean flush(final boolean force) throws IOException {
-            final boolean expired = System.currentTimeMillis() - this.start
-                > BufferedWrite.this.lifetime;
-            boolean flushed = false;
-            if ((expired || force) && !this.data.isEmpty()) {
-                BufferedWrite.this.origin.append(this.data);
-                this.data.clear();
-                flushed = true;
+        public void flush() throws IOException {
+            synchronized (this.output) {
+                final Collection<String> lines;
+                final long length;
+                synchronized (this) {
+                    lines = this.data;
+                    length = this.chars;
+                    this.data = new ArrayList<String>(0);
+                    this.chars = 0;
+                    this.start = 0;
+                }
+                if (!lines.isEmpty()) {
+                    try {
+                        BufferedWrite.this.origin.append(lines);
+                    } finally {
+                        BufferedWrite.BUFFERED.addAndGet(-length);
+                        BufferedWrite.FLUSH.release();
+                    }
+                }
             }
-            return flushed;
         }
     }
 
@@ -224,26 +422,44 @@ public final class BufferedWrite implements Drain, Closeable {
     private static final class Flush implements Runnable {
         @Override
         public void run() {
-            this.flush(false);
+            for (BufferedWrite.Tunnel tunnel
+                : BufferedWrite.TUNNELS.values()) {
+                tunnel.check();
+            }
         }
         /**
-         * Flush all buffers.
-         * @param force Flush in any case
+         * Flush all tunnels in background and wait until the total
+         * number of buffered characters is within the budget (but not
+         * longer than a minute).
+         * @throws IOException If interrupted
          */
-        public void flush(final boolean force) {
-            for (BufferedWrite client : BufferedWrite.TUNNELS.keySet()) {
-                try {
-                    synchronized (client.work) {
-                        if (BufferedWrite.TUNNELS.get(client).flush(force)) {
-                            BufferedWrite.TUNNELS.remove(client);
-                        }
+        public void relieve() throws IOException {
+            for (BufferedWrite.Tunnel tunnel
+                : BufferedWrite.TUNNELS.values()) {
+                tunnel.submit();
+            }
+            final long limit = System.currentTimeMillis()
+                + TimeUnit.MINUTES.toMillis(1);
+            synchronized (BufferedWrite.BUFFERED) {
+                while (BufferedWrite.BUFFERED.get() > BufferedWrite.BUDGET
+                    && System.currentTimeMillis() < limit) {
+                    try {
+                        BufferedWrite.BUFFERED.wait(Tv.HUNDRED);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(ex);
                     }
-                } catch (IOException ex) {
-                    Logger.warn(this, "#run(): %s", ex);
-                    BufferedWrite.TUNNELS.remove(client);
                 }
             }
         }
+        /**
+         * Notify writers waiting for the budget.
+         */
+        public void release() {
+            synchronized (BufferedWrite.BUFFERED) {
+                BufferedWrite.BUFFERED.notifyAll();
+            }
+        }
     }
 
 }
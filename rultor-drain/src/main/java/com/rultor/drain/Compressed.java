@@ -0,0 +1,444 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.drain;
+
+import com.google.common.base.Charsets;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import com.rultor.spi.Drain;
+import com.rultor.spi.Pageable;
+import com.rultor.tools.Ranges;
+import com.rultor.tools.Time;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.validation.constraints.NotNull;
+import javax.xml.bind.DatatypeConverter;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Compressed in blocks.
+ *
+ * <p>Appended lines are compressed with DEFLATE, in blocks of up to
+ * {@link #BLOCK} bytes each, and every block is sent to the origin
+ * drain as one line: {@code deflate:<lines>:<bytes>:<base64>} (blocks
+ * made by older versions have no number of bytes). Blocks are
+ * independent from each other, so they are decompressed on the fly
+ * while reading. Ranged reads skip blocks that are before the range
+ * without decompressing them, and {@link #tail(int)} decompresses only
+ * the blocks it needs. Lines of the origin drain that are not blocks
+ * (headers of other drains, for example) are read as they are.
+ *
+ * <p>Ranged and tail reads work with decompressed content, without
+ * the header, and read the origin drain without its header too, if
+ * it is {@link Drain.Ranged}.
+ *
+ * <p>Every append makes at least one block, so this drain should be
+ * decorated by {@link BufferedWrite}, which appends in batches.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCoupling (500 lines)
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = "origin")
+@Loggable(Loggable.DEBUG)
+@SuppressWarnings("PMD.TooManyMethods")
+public final class Compressed implements Drain.Ranged, Closeable {
+
+    /**
+     * Maximum size of uncompressed block, in bytes.
+     */
+    public static final int BLOCK = Tv.FIFTY * Tv.THOUSAND;
+
+    /**
+     * Pattern of a block.
+     */
+    private static final Pattern PTN = Pattern.compile(
+        "deflate:(\\d+)(?::(\\d+))?:([A-Za-z0-9+/=]+)"
+    );
+
+    /**
+     * Original drain.
+     */
+    private final transient Drain origin;
+
+    /**
+     * Public ctor.
+     * @param drain Main drain
+     */
+    public Compressed(
+        @NotNull(message = "drain can't be NULL") final Drain drain) {
+        this.origin = drain;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Pageable<Time, Time> pulses() throws IOException {
+        return this.origin.pulses();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(final Iterable<String> lines) throws IOException {
+        final Collection<String> blocks = new LinkedList<String>();
+        final ByteArrayOutputStream block = new ByteArrayOutputStream();
+        int count = 0;
+        for (String line : lines) {
+            final byte[] bytes = String.format("%s\n", line)
+                .getBytes(Charsets.UTF_8);
+            if (count > 0 && block.size() + bytes.length > Compressed.BLOCK) {
+                blocks.add(Compressed.deflate(count, block.toByteArray()));
+                block.reset();
+                count = 0;
+            }
+            block.write(bytes);
+            ++count;
+        }
+        if (count > 0) {
+            blocks.add(Compressed.deflate(count, block.toByteArray()));
+        }
+        if (!blocks.isEmpty()) {
+            this.origin.append(blocks);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Closes the original drain, if it is closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.origin instanceof Closeable) {
+            Closeable.class.cast(this.origin).close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read() throws IOException {
+        return new SequenceInputStream(
+            IOUtils.toInputStream("Compressed\n", CharEncoding.UTF_8),
+            new SequenceInputStream(
+                new Compressed.Blocks(this.origin.read(), 0L)
+            )
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>All lines of the origin drain are read, but only blocks made by
+     * older versions are decompressed, to count their bytes.
+     */
+    @Override
+    public long size() throws IOException {
+        long size = 0;
+        final BufferedReader reader = Compressed.reader(this.content());
+        try {
+            while (true) {
+                final String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                size += Compressed.length(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        Validate.isTrue(offset >= 0, "offset can't be negative: %d", offset);
+        Validate.isTrue(length >= 0, "length can't be negative: %d", length);
+        return new BoundedInputStream(
+            new SequenceInputStream(
+                new Compressed.Blocks(this.content(), offset)
+            ),
+            length
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>All lines of the origin drain are read, but only the blocks
+     * that contain the last lines are decompressed.
+     */
+    @Override
+    public InputStream tail(final int total) throws IOException {
+        Validate.isTrue(total >= 0, "number of lines can't be negative");
+        final Deque<String> blocks = new ArrayDeque<String>(0);
+        final Deque<Integer> counts = new ArrayDeque<Integer>(0);
+        int covered = 0;
+        final BufferedReader reader = Compressed.reader(this.content());
+        try {
+            while (true) {
+                final String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                final Matcher matcher = Compressed.PTN.matcher(line);
+                int count = 1;
+                if (matcher.matches()) {
+                    count = Integer.parseInt(matcher.group(1));
+                }
+                blocks.addLast(line);
+                counts.addLast(count);
+                covered += count;
+                while (!counts.isEmpty()
+                    && covered - counts.getFirst() >= total) {
+                    covered -= counts.removeFirst();
+                    blocks.removeFirst();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        final Deque<String> lines = new ArrayDeque<String>(0);
+        for (String block : blocks) {
+            final String text = IOUtils.toString(
+                Compressed.inflate(block), CharEncoding.UTF_8
+            );
+            for (String line : StringUtils.splitPreserveAllTokens(
+                StringUtils.removeEnd(text, "\n"), '\n'
+            )) {
+                lines.addLast(line);
+            }
+        }
+        while (lines.size() > total) {
+            lines.removeFirst();
+        }
+        final StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        return IOUtils.toInputStream(text.toString(), CharEncoding.UTF_8);
+    }
+
+    /**
+     * Content of the origin drain, without its header, if possible.
+     * @return The stream
+     * @throws IOException If fails
+     */
+    private InputStream content() throws IOException {
+        return Ranges.read(this.origin, 0L, Long.MAX_VALUE);
+    }
+
+    /**
+     * Compress a block.
+     * @param count Number of lines in it
+     * @param bytes Uncompressed bytes
+     * @return Line with the block
+     * @throws IOException If fails
+     */
+    private static String deflate(final int count, final byte[] bytes)
+        throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            final DeflaterOutputStream output =
+                new DeflaterOutputStream(baos, deflater);
+            output.write(bytes);
+            output.close();
+        } finally {
+            deflater.end();
+        }
+        return String.format(
+            "deflate:%d:%d:%s", count, bytes.length,
+            DatatypeConverter.printBase64Binary(baos.toByteArray())
+        );
+    }
+
+    /**
+     * Decompress a line of the origin drain, if it's a block.
+     * @param line The line
+     * @return Uncompressed lines
+     * @throws IOException If fails
+     */
+    private static InputStream inflate(final String line) throws IOException {
+        final Matcher matcher = Compressed.PTN.matcher(line);
+        final InputStream stream;
+        if (matcher.matches()) {
+            stream = new InflaterInputStream(
+                new ByteArrayInputStream(
+                    DatatypeConverter.parseBase64Binary(matcher.group(Tv.THREE))
+                )
+            );
+        } else {
+            stream = IOUtils.toInputStream(
+                String.format("%s\n", line), CharEncoding.UTF_8
+            );
+        }
+        return stream;
+    }
+
+    /**
+     * Number of uncompressed bytes in a line of the origin drain.
+     * @param line The line
+     * @return Number of bytes
+     * @throws IOException If fails
+     */
+    private static long length(final String line) throws IOException {
+        final Matcher matcher = Compressed.PTN.matcher(line);
+        final long length;
+        if (matcher.matches() && matcher.group(2) != null) {
+            length = Long.parseLong(matcher.group(2));
+        } else {
+            final InputStream stream = Compressed.inflate(line);
+            try {
+                length = IOUtils.skip(stream, Long.MAX_VALUE);
+            } finally {
+                stream.close();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Reader of lines.
+     * @param stream Stream to read
+     * @return Reader
+     * @throws IOException If fails
+     */
+    private static BufferedReader reader(final InputStream stream)
+        throws IOException {
+        return new BufferedReader(
+            new InputStreamReader(stream, CharEncoding.UTF_8)
+        );
+    }
+
+    /**
+     * Blocks of the origin drain, decompressed one by one, starting
+     * from the given position in decompressed content.
+     */
+    private static final class Blocks implements Enumeration<InputStream> {
+        /**
+         * Reader of the origin drain.
+         */
+        private final transient BufferedReader reader;
+        /**
+         * Next line, or NULL if not read yet.
+         */
+        private transient String next;
+        /**
+         * Number of decompressed bytes still to skip.
+         */
+        private transient long skip;
+        /**
+         * Public ctor.
+         * @param stream Stream of the origin drain
+         * @param offset Number of decompressed bytes to skip
+         * @throws IOException If fails
+         */
+        protected Blocks(final InputStream stream, final long offset)
+            throws IOException {
+            this.reader = Compressed.reader(stream);
+            this.skip = offset;
+        }
+        @Override
+        public boolean hasMoreElements() {
+            try {
+                while (this.next == null) {
+                    this.next = this.reader.readLine();
+                    if (this.next == null) {
+                        this.reader.close();
+                        break;
+                    }
+                    if (this.skip > 0) {
+                        final long length = Compressed.length(this.next);
+                        if (length <= this.skip) {
+                            this.skip -= length;
+                            this.next = null;
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return this.next != null;
+        }
+        @Override
+        public InputStream nextElement() {
+            if (!this.hasMoreElements()) {
+                throw new NoSuchElementException("no more blocks");
+            }
+            final String line = this.next;
+            this.next = null;
+            try {
+                final InputStream stream = Compressed.inflate(line);
+                IOUtils.skipFully(stream, this.skip);
+                this.skip = 0;
+                return stream;
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+}
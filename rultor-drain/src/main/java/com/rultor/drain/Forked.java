@@ -0,0 +1,529 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.drain;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.immutable.Array;
+import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseRunnable;
+import com.jcabi.log.VerboseThreads;
+import com.rultor.spi.Drain;
+import com.rultor.spi.Pageable;
+import com.rultor.tools.Exceptions;
+import com.rultor.tools.Ranges;
+import com.rultor.tools.Time;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+
+/**
+ * Drain that forks lines to a number of branches.
+ *
+ * <p>Lines are appended to the main drain in the calling thread, while
+ * every branch has its own bounded queue, processed in background by its
+ * own worker. A slow or failing branch falls behind (and loses lines,
+ * when its queue is full), but doesn't delay the main drain or other
+ * branches. Lag of every branch is reported in the header of
+ * {@link #read()} in the JVM that appends, while any other JVM (or the
+ * same one, after the pulse is closed) reports it as unknown. Method
+ * {@link #close()} waits until all branches catch up and, if some of
+ * them are still behind or lost lines, appends a warning about each of
+ * them to the main drain, so that it's visible to any reader of the
+ * pulse.
+ *
+ * <p>Counters of a branch are kept until the pulse is closed, even when
+ * its queue is empty. Branches of pulses that are never closed are
+ * forgotten after an hour of inactivity, when there are more than
+ * {@link #MAX} of them.
+ *
+ * <p>For example:
+ *
+ * <pre> com.rultor.drain.Forked(
+ *   com.rultor.drain.s3.ObjectDrain(...),
+ *   [
+ *     com.rultor.drain.Standed(...),
+ *     com.rultor.drain.Syslog(...)
+ *   ]
+ * )</pre>
+ *
+ * <p>Ranged and tail reads go to the main drain, without the header.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCoupling (500 lines)
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = { "main", "branches" })
+@Loggable(Loggable.DEBUG)
+@SuppressWarnings({ "PMD.DoNotUseThreads", "PMD.TooManyMethods" })
+public final class Forked implements Drain.Ranged, Closeable {
+
+    /**
+     * Max number of lines waiting in the queue of one branch.
+     */
+    private static final int LIMIT = 100000;
+
+    /**
+     * Max number of branches to remember before forgetting idle ones.
+     */
+    private static final int MAX = 1000;
+
+    /**
+     * Workers of branches (one thread per busy branch).
+     */
+    private static final ExecutorService WORKERS =
+        Executors.newCachedThreadPool(new VerboseThreads(Forked.class));
+
+    /**
+     * Branches of pulses that are not closed yet.
+     */
+    private static final ConcurrentMap<Drain, Forked.Branch> BRANCHES =
+        new ConcurrentHashMap<Drain, Forked.Branch>(0);
+
+    /**
+     * Main drain.
+     */
+    private final transient Drain main;
+
+    /**
+     * Branches.
+     */
+    private final transient Array<Drain> branches;
+
+    /**
+     * Public ctor.
+     * @param body Main drain
+     * @param forks Branches
+     */
+    public Forked(
+        @NotNull(message = "main drain can't be NULL") final Drain body,
+        @NotNull(message = "branches can't be NULL")
+        final Collection<Drain> forks) {
+        this.main = body;
+        this.branches = new Array<Drain>(forks);
+    }
+
+    /**
+     * Public ctor.
+     * @param body Main drain
+     * @param forks Branches
+     */
+    public Forked(final Drain body, final Drain... forks) {
+        this(body, Arrays.asList(forks));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Pageable<Time, Time> pulses() throws IOException {
+        return this.main.pulses();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(final Iterable<String> lines) throws IOException {
+        final List<String> copy = new ArrayList<String>(0);
+        for (String line : lines) {
+            copy.add(line);
+        }
+        for (Drain drain : this.branches) {
+            Forked.Branch branch;
+            do {
+                branch = Forked.BRANCHES.get(drain);
+                if (branch == null) {
+                    Forked.forget();
+                    Forked.BRANCHES.putIfAbsent(
+                        drain, new Forked.Branch(drain)
+                    );
+                    branch = Forked.BRANCHES.get(drain);
+                }
+            } while (branch == null || !branch.offer(copy));
+        }
+        this.main.append(copy);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read() throws IOException {
+        final StringBuilder header = new StringBuilder("Forked: main='")
+            .append(this.main.getClass().getCanonicalName())
+            .append('\'');
+        for (Drain drain : this.branches) {
+            final Forked.Branch branch = Forked.BRANCHES.get(drain);
+            header.append(", ")
+                .append(drain.getClass().getCanonicalName())
+                .append('=');
+            if (branch == null) {
+                header.append("unknown (not running in this JVM)");
+            } else {
+                header.append(branch.lag());
+            }
+        }
+        return new SequenceInputStream(
+            IOUtils.toInputStream(
+                header.append('\n').toString(),
+                CharEncoding.UTF_8
+            ),
+            this.main.read()
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return Ranges.size(this.main);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.main, offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.main, lines);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Waits until all branches deliver their queues (but not longer
+     * than a minute each), appends warnings about branches that are
+     * behind or lost lines to the main drain, forgets the branches and
+     * closes all drains that are closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        final Collection<String> notices = new LinkedList<String>();
+        for (Drain drain : this.branches) {
+            final Forked.Branch branch = Forked.BRANCHES.get(drain);
+            if (branch == null) {
+                continue;
+            }
+            if (!branch.await() || branch.lost()) {
+                final String notice = String.format(
+                    "Forked: branch %s is %s",
+                    drain.getClass().getCanonicalName(), branch.lag()
+                );
+                Logger.warn(this, "#close(): %s", notice);
+                notices.add(
+                    new Drain.Line.Simple(
+                        branch.msec(), Level.WARNING, notice
+                    ).toString()
+                );
+            }
+            branch.retire();
+        }
+        try {
+            if (!notices.isEmpty()) {
+                this.main.append(notices);
+            }
+        } finally {
+            for (Drain drain : this.branches) {
+                Forked.shut(drain);
+            }
+            Forked.shut(this.main);
+        }
+    }
+
+    /**
+     * Forget branches that are idle for an hour, if there are too many
+     * of them (their pulses were never closed).
+     */
+    private static void forget() {
+        if (Forked.BRANCHES.size() > Forked.MAX) {
+            final long age = TimeUnit.HOURS.toMillis(1);
+            for (Forked.Branch branch : Forked.BRANCHES.values()) {
+                if (branch.idle(age)) {
+                    branch.retire();
+                }
+            }
+        }
+    }
+
+    /**
+     * Close the drain if it is closeable.
+     * @param drain The drain
+     * @throws IOException If fails
+     */
+    private static void shut(final Drain drain) throws IOException {
+        if (drain instanceof Closeable) {
+            Closeable.class.cast(drain).close();
+        }
+    }
+
+    /**
+     * Branch of a pulse, with lines waiting to be appended.
+     *
+     * <p>The branch stays in {@link Forked#BRANCHES} until it is retired
+     * by {@link Forked#close()}, and can't accept lines after that.
+     */
+    private static final class Branch implements Runnable {
+        /**
+         * Drain of the branch.
+         */
+        private final transient Drain drain;
+        /**
+         * Batches of lines waiting.
+         */
+        private final transient Queue<List<String>> queue =
+            new LinkedList<List<String>>();
+        /**
+         * Number of lines waiting, including the batch being appended.
+         */
+        private transient int waiting;
+        /**
+         * When the branch got its first batch or appended the last one,
+         * in milliseconds.
+         */
+        private transient long since = System.currentTimeMillis();
+        /**
+         * Time of the latest log line seen, in milliseconds from the
+         * start of the pulse.
+         */
+        private transient long latest;
+        /**
+         * Number of lines lost because of a full queue.
+         */
+        private transient long dropped;
+        /**
+         * Number of lines lost because the drain failed to append them.
+         */
+        private transient long failed;
+        /**
+         * Is it removed from the map of branches?
+         */
+        private transient boolean retired;
+        /**
+         * Public ctor.
+         * @param drn Drain of the branch
+         */
+        Branch(final Drain drn) {
+            this.drain = drn;
+        }
+        /**
+         * Queue lines, or drop them if the queue is full (the first batch
+         * is always accepted, whatever its size).
+         * @param lines Lines to append
+         * @return FALSE if the branch is retired and can't accept lines
+         */
+        public boolean offer(final List<String> lines) {
+            synchronized (this) {
+                final boolean alive = !this.retired;
+                if (alive) {
+                    this.track(lines);
+                }
+                if (alive && this.waiting > 0
+                    && this.waiting + lines.size() > Forked.LIMIT) {
+                    this.dropped += lines.size();
+                    Logger.warn(
+                        this, "#offer(): %d line(s) dropped by %s, %s",
+                        lines.size(), this.drain.getClass().getCanonicalName(),
+                        this.lag()
+                    );
+                } else if (alive) {
+                    if (this.waiting == 0) {
+                        this.since = System.currentTimeMillis();
+                        Forked.WORKERS.submit(new VerboseRunnable(this));
+                    }
+                    this.queue.add(lines);
+                    this.waiting += lines.size();
+                }
+                return alive;
+            }
+        }
+        /**
+         * {@inheritDoc}
+         *
+         * <p>Appends the oldest batch to the drain and submits itself
+         * again, if the queue is not empty.
+         */
+        @Override
+        public void run() {
+            final List<String> lines;
+            synchronized (this) {
+                lines = this.queue.element();
+            }
+            boolean done = false;
+            try {
+                this.drain.append(lines);
+                done = true;
+            } catch (IOException ex) {
+                Exceptions.warn(this, ex);
+            } finally {
+                synchronized (this) {
+                    if (!done) {
+                        this.failed += lines.size();
+                    }
+                    this.queue.remove();
+                    this.waiting -= lines.size();
+                    this.since = System.currentTimeMillis();
+                    if (this.queue.isEmpty()) {
+                        this.notifyAll();
+                    } else {
+                        Forked.WORKERS.submit(new VerboseRunnable(this));
+                    }
+                }
+            }
+        }
+        /**
+         * Lag of the branch.
+         * @return Text that describes it
+         */
+        public String lag() {
+            synchronized (this) {
+                final String lag;
+                if (this.waiting == 0) {
+                    lag = "0 lines behind";
+                } else {
+                    lag = Logger.format(
+                        "%d lines behind, last progress %[ms]s ago",
+                        this.waiting,
+                        System.currentTimeMillis() - this.since
+                    );
+                }
+                return Logger.format(
+                    "%s, %d dropped, %d failed",
+                    lag, this.dropped, this.failed
+                );
+            }
+        }
+        /**
+         * Did it lose any lines?
+         * @return TRUE if some lines were dropped or failed
+         */
+        public boolean lost() {
+            synchronized (this) {
+                return this.dropped + this.failed > 0;
+            }
+        }
+        /**
+         * Time of the latest log line seen.
+         * @return Milliseconds from the start of the pulse
+         */
+        public long msec() {
+            synchronized (this) {
+                return this.latest;
+            }
+        }
+        /**
+         * Is it idle for longer than the given time?
+         * @param age Time in milliseconds
+         * @return TRUE if the queue is empty for that long
+         */
+        public boolean idle(final long age) {
+            synchronized (this) {
+                return this.waiting == 0
+                    && System.currentTimeMillis() - this.since > age;
+            }
+        }
+        /**
+         * Remove it from the map of branches.
+         */
+        public void retire() {
+            synchronized (this) {
+                this.retired = true;
+            }
+            Forked.BRANCHES.remove(this.drain, this);
+        }
+        /**
+         * Wait until the queue is empty, but not longer than a minute.
+         * @return TRUE if it is empty
+         * @throws IOException If interrupted
+         */
+        public boolean await() throws IOException {
+            final long limit = System.currentTimeMillis()
+                + TimeUnit.MINUTES.toMillis(1);
+            synchronized (this) {
+                while (this.waiting > 0
+                    && System.currentTimeMillis() < limit) {
+                    try {
+                        this.wait(TimeUnit.SECONDS.toMillis(1));
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(ex);
+                    }
+                }
+                return this.waiting == 0;
+            }
+        }
+        /**
+         * Remember time of the latest log line among these.
+         * @param lines Lines
+         */
+        private void track(final List<String> lines) {
+            for (int idx = lines.size() - 1; idx >= 0; --idx) {
+                final String line = lines.get(idx);
+                if (Drain.Line.Simple.has(line)) {
+                    this.latest = Math.max(
+                        this.latest, Drain.Line.Simple.parse(line).msec()
+                    );
+                    break;
+                }
+            }
+        }
+    }
+
+}
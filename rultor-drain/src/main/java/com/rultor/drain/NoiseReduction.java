@@ -29,33 +29,57 @@
  */
 package com.rultor.drain;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Drain;
 import com.rultor.spi.Pageable;
+import com.rultor.tools.Ranges;
 import com.rultor.tools.Time;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.codec.CharEncoding;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.LineIterator;
+import org.apache.commons.lang3.Validate;
 
 /**
  * Noise reduction.
  *
+ * <p>Lines go to the dirty drain until one of them matches the
+ * pattern (or any of the patterns, if there are many of them, which
+ * are joined into one regular expression). Then everything collected
+ * in the dirty drain is copied to the clean one, in batches of
+ * {@link #BATCH} lines, and all other lines go to the clean drain.
+ *
+ * <p>Compiled patterns are cached, up to {@link #MAX} most recently used
+ * ones. The state of a dirty drain (whether the pattern has already
+ * matched) is remembered until the drain is closed, at the end
+ * of the pulse.
+ *
+ * <p>Ranged and tail reads go to the drain that {@link #read()} shows,
+ * without the header.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -65,17 +89,37 @@ import org.apache.commons.io.IOUtils;
 @ToString
 @EqualsAndHashCode(of = { "work", "pattern", "visible", "dirty", "clean" })
 @Loggable(Loggable.DEBUG)
-public final class NoiseReduction implements Drain {
+public final class NoiseReduction implements Drain.Ranged, Closeable {
+
+    /**
+     * Maximum number of compiled patterns to cache.
+     */
+    public static final int MAX = Tv.THOUSAND;
 
     /**
-     * Static set of clean drains.
+     * Number of lines copied from dirty drain to clean one at once.
      */
-    private static final Set<Drain> GOOD = new CopyOnWriteArraySet<Drain>();
+    public static final int BATCH = Tv.THOUSAND;
+
+    /**
+     * Compiled patterns, the least recently used first.
+     */
+    private static final Map<String, Pattern> PATTERNS =
+        new LinkedHashMap<String, Pattern>(0, 1.0f, true) {
+            private static final long serialVersionUID = 0x8e5fa2d4c61b7a3eL;
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<String, Pattern> eldest) {
+                return this.size() > NoiseReduction.MAX;
+            }
+        };
 
     /**
-     * Static set of dirty drains.
+     * States of dirty drains of running pulses: TRUE if it is good
+     * (pattern matched), FALSE if it has some lines.
      */
-    private static final Set<Drain> BAD = new CopyOnWriteArraySet<Drain>();
+    private static final ConcurrentMap<Drain, Boolean> STATES =
+        new ConcurrentHashMap<Drain, Boolean>(0);
 
     /**
      * Coordinates we're in.
@@ -124,6 +168,22 @@ public final class NoiseReduction implements Drain {
         this.clean = cln;
     }
 
+    /**
+     * Public ctor, with many patterns, any of which may match.
+     * @param wrk Coordinates we're in
+     * @param ptns Regular expressions
+     * @param vsbl How many items should be visible from dirty drain
+     * @param drt Dirty drain
+     * @param cln Clean drain
+     * @checkstyle ParameterNumber (10 lines)
+     */
+    public NoiseReduction(final Coordinates wrk,
+        @NotNull(message = "patterns can't be NULL")
+        final Collection<String> ptns,
+        final int vsbl, final Drain drt, final Drain cln) {
+        this(wrk, NoiseReduction.join(ptns), vsbl, drt, cln);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -161,34 +221,49 @@ public final class NoiseReduction implements Drain {
     @Override
     public void append(final Iterable<String> lines)
         throws IOException {
-        final boolean matched;
-        synchronized (NoiseReduction.GOOD) {
-            matched = !NoiseReduction.GOOD.contains(this.dirty)
-                && Iterables.any(
-                    lines,
-                    new Predicate<String>() {
-                        @Override
-                        public boolean apply(final String input) {
-                            return input.matches(NoiseReduction.this.pattern);
-                        }
-                    }
-                );
-            if (matched) {
-                NoiseReduction.GOOD.add(this.dirty);
+        boolean good = Boolean.TRUE.equals(
+            NoiseReduction.STATES.get(this.dirty)
+        );
+        if (!good) {
+            final Pattern regex = NoiseReduction.compiled(this.pattern);
+            for (String line : lines) {
+                if (regex.matcher(line).matches()) {
+                    good = true;
+                    break;
+                }
             }
         }
-        if (matched && NoiseReduction.BAD.contains(this.dirty)) {
-            this.clean.append(
-                ImmutableList.copyOf(
-                    IOUtils.lineIterator(this.dirty.read(), CharEncoding.UTF_8)
-                )
+        if (good) {
+            final Boolean previous = NoiseReduction.STATES.put(
+                this.dirty, Boolean.TRUE
             );
-        }
-        if (NoiseReduction.GOOD.contains(this.dirty)) {
+            if (Boolean.FALSE.equals(previous)) {
+                this.promote();
+            }
             this.clean.append(lines);
         } else {
             this.dirty.append(lines);
-            NoiseReduction.BAD.add(this.dirty);
+            NoiseReduction.STATES.putIfAbsent(this.dirty, Boolean.FALSE);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Forgets the state of the dirty drain, since the pulse is over,
+     * and closes both drains, if they are closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        NoiseReduction.STATES.remove(this.dirty);
+        try {
+            if (this.dirty instanceof Closeable) {
+                Closeable.class.cast(this.dirty).close();
+            }
+        } finally {
+            if (this.clean instanceof Closeable) {
+                Closeable.class.cast(this.clean).close();
+            }
         }
     }
 
@@ -197,10 +272,7 @@ public final class NoiseReduction implements Drain {
      */
     @Override
     public InputStream read() throws IOException {
-        final boolean exists = Iterables.contains(
-            Iterables.limit(this.dirty.pulses(), this.visible),
-            this.work.scheduled()
-        );
+        final boolean exists = this.exists();
         InputStream stream;
         if (exists) {
             stream = this.dirty.read();
@@ -219,6 +291,116 @@ public final class NoiseReduction implements Drain {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return Ranges.size(this.shown());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.shown(), offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.shown(), lines);
+    }
+
+    /**
+     * Is this pulse visible in the dirty drain?
+     * @return TRUE if it is
+     * @throws IOException If fails
+     */
+    private boolean exists() throws IOException {
+        return Iterables.contains(
+            Iterables.limit(this.dirty.pulses(), this.visible),
+            this.work.scheduled()
+        );
+    }
+
+    /**
+     * Drain that is shown for this pulse, dirty or clean.
+     * @return The drain
+     * @throws IOException If fails
+     */
+    private Drain shown() throws IOException {
+        final Drain drain;
+        if (this.exists()) {
+            drain = this.dirty;
+        } else {
+            drain = this.clean;
+        }
+        return drain;
+    }
+
+    /**
+     * Copy all lines from dirty drain to clean one.
+     * @throws IOException If fails
+     */
+    private void promote() throws IOException {
+        final LineIterator iterator = IOUtils.lineIterator(
+            this.dirty.read(), CharEncoding.UTF_8
+        );
+        try {
+            final List<String> batch = new ArrayList<String>(
+                NoiseReduction.BATCH
+            );
+            while (iterator.hasNext()) {
+                batch.add(iterator.nextLine());
+                if (batch.size() >= NoiseReduction.BATCH
+                    || !iterator.hasNext()) {
+                    this.clean.append(new ArrayList<String>(batch));
+                    batch.clear();
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
+    /**
+     * Compiled pattern.
+     * @param regex Regular expression
+     * @return Pattern
+     */
+    private static Pattern compiled(final String regex) {
+        synchronized (NoiseReduction.PATTERNS) {
+            Pattern ptn = NoiseReduction.PATTERNS.get(regex);
+            if (ptn == null) {
+                ptn = Pattern.compile(regex);
+                NoiseReduction.PATTERNS.put(regex, ptn);
+            }
+            return ptn;
+        }
+    }
+
+    /**
+     * Join patterns into one, that matches if any of them match.
+     * @param patterns Regular expressions
+     * @return Regular expression
+     */
+    private static String join(final Collection<String> patterns) {
+        Validate.isTrue(!patterns.isEmpty(), "at least one pattern required");
+        final StringBuilder regex = new StringBuilder();
+        for (String ptn : patterns) {
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+            regex.append("(?:").append(ptn).append(')');
+        }
+        return regex.toString();
+    }
+
     /**
      * Distinct iterator, not thread-safe.
      * @see https://code.google.com/p/guava-libraries/issues/detail?id=1464
@@ -33,13 +33,13 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.FluentIterable;
-import com.google.common.collect.Iterables;
-import com.google.common.util.concurrent.MoreExecutors;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.RetryOnFailure;
 import com.jcabi.aspects.Tv;
+import com.jcabi.log.Logger;
 import com.jcabi.log.VerboseRunnable;
+import com.jcabi.log.VerboseThreads;
 import com.rexsl.test.RestTester;
 import com.rexsl.test.TestClient;
 import com.rultor.snapshot.XemblyLine;
@@ -48,7 +48,9 @@ import com.rultor.spi.Drain;
 import com.rultor.spi.Pageable;
 import com.rultor.spi.Stand;
 import com.rultor.tools.Exceptions;
+import com.rultor.tools.Ranges;
 import com.rultor.tools.Time;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
@@ -59,10 +61,16 @@ import java.net.URLEncoder;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import javax.json.Json;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.core.MediaType;
@@ -77,19 +85,32 @@ import org.xembly.XemblySyntaxException;
 /**
  * Mirrored to a web {@link Stand}.
  *
+ * <p>Xembly scripts found in one call of {@link #append(Iterable)} are
+ * concatenated into as few messages as possible, and messages are
+ * grouped into {@code SendMessageBatch} requests. Requests are
+ * sent in background, while the caller waits only when too many of them
+ * are in flight already. Method {@link #close()} waits until everything
+ * sent by this pulse reaches the queue.
+ *
+ * <p>Ranged and tail reads go to the original drain, without the
+ * header.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
  * @todo #162:0.5hr As soon as rexsl #716 is resolved remove
  *  SQSEntry interface and use TestClient directly.
  * @checkstyle ClassDataAbstractionCoupling (500 lines)
+ * @checkstyle ClassFanOutComplexity (500 lines)
  */
 @Immutable
 @ToString
 @EqualsAndHashCode(of = { "origin", "work", "stand", "key" })
 @Loggable(Loggable.DEBUG)
-@SuppressWarnings({ "PMD.ExcessiveImports", "PMD.TooManyMethods" })
-public final class Standed implements Drain {
+@SuppressWarnings({
+    "PMD.ExcessiveImports", "PMD.TooManyMethods", "PMD.DoNotUseThreads"
+})
+public final class Standed implements Drain.Ranged, Closeable {
 
     /**
      * Randomizer for nanos.
@@ -106,6 +127,37 @@ public final class Standed implements Drain {
      */
     private static final int MAX = 10;
 
+    /**
+     * Max length of xembly script in one message, in characters.
+     */
+    private static final int SIZE = 20000;
+
+    /**
+     * Max size of all messages in one batch, in bytes (SQS allows
+     * 256Kb per batch).
+     */
+    private static final int PAYLOAD = 200000;
+
+    /**
+     * Threads that send batches, shared by all stands.
+     */
+    private static final ExecutorService SENDERS =
+        Executors.newFixedThreadPool(
+            Standed.THREADS, new VerboseThreads(Standed.class)
+        );
+
+    /**
+     * Batches allowed to be in flight at the same time, in all stands.
+     */
+    private static final Semaphore SLOTS =
+        new Semaphore(Standed.THREADS * Tv.FOUR);
+
+    /**
+     * Batches in flight, per drain.
+     */
+    private static final ConcurrentMap<Standed, Standed.Pending> PENDING =
+        new ConcurrentHashMap<Standed, Standed.Pending>(0);
+
     /**
      * SQS client connection container.
      */
@@ -167,9 +219,6 @@ public final class Standed implements Drain {
      * @param secret Secret key of the stand
      * @param drain Main drain
      * @checkstyle ParameterNumber (8 lines)
-     * @todo #285 Due to a problem with concurrency we're using this
-     *  same thread executor. When the problem is fixed we should use
-     *  Executors.newFixedThreadPool(Standed.THREADS, new VerboseThreads())
      */
     public Standed(
         @NotNull(message = "work can't be NULL") final Coordinates wrk,
@@ -178,7 +227,7 @@ public final class Standed implements Drain {
         @NotNull(message = "drain can't be NULL") final Drain drain) {
         this(
             wrk, name, secret, drain, RestTester.start(Stand.QUEUE),
-            MoreExecutors.sameThreadExecutor()
+            Standed.SENDERS
         );
     }
 
@@ -214,6 +263,26 @@ public final class Standed implements Drain {
         };
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Waits until all batches of this pulse are sent (but not longer
+     * than a minute) and closes the original drain, if it is closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        final Standed.Pending pending = Standed.PENDING.get(this);
+        if (pending != null && !pending.await()) {
+            Logger.warn(
+                this, "#close(): batches to stand '%s' are still in flight",
+                this.stand
+            );
+        }
+        if (this.origin instanceof Closeable) {
+            Closeable.class.cast(this.origin).close();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -227,32 +296,20 @@ public final class Standed implements Drain {
      */
     @Override
     public void append(final Iterable<String> lines) throws IOException {
-        final Iterable<List<String>> batches = Iterables.partition(
-            FluentIterable.from(lines)
-                .filter(
-                    new Predicate<String>() {
-                        @Override
-                        public boolean apply(final String line) {
-                            return XemblyLine.existsIn(line);
-                        }
-                    }
-                )
-                .transform(
-                    new Function<String, String>() {
-                        @Override
-                        public String apply(final String line) {
-                            try {
-                                return XemblyLine.parse(line).xembly();
-                            } catch (XemblySyntaxException ex) {
-                                Exceptions.warn(this, ex);
-                            }
-                            return null;
-                        }
-                    }
-                )
-                .filter(Predicates.notNull()), Standed.MAX
-        );
-        for (List<String> batch : batches) {
+        final Collection<String> msgs = new LinkedList<String>();
+        final StringBuilder script = new StringBuilder(0);
+        for (String xembly : Standed.xemblies(lines)) {
+            if (script.length() > 0
+                && script.length() + xembly.length() > Standed.SIZE) {
+                msgs.add(this.json(script.toString()));
+                script.setLength(0);
+            }
+            script.append(xembly);
+        }
+        if (script.length() > 0) {
+            msgs.add(this.json(script.toString()));
+        }
+        for (List<String> batch : Standed.batches(msgs)) {
             this.send(batch);
         }
         this.origin.append(lines);
@@ -276,17 +333,125 @@ public final class Standed implements Drain {
     }
 
     /**
-     * Send lines to stand.
-     * @param xemblies The xembly scripts
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return Ranges.size(this.origin);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.origin, offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.origin, lines);
+    }
+
+    /**
+     * Xembly scripts found in lines.
+     * @param lines Lines
+     * @return Xembly scripts
+     */
+    private static Iterable<String> xemblies(final Iterable<String> lines) {
+        return FluentIterable.from(lines)
+            .filter(
+                new Predicate<String>() {
+                    @Override
+                    public boolean apply(final String line) {
+                        return XemblyLine.existsIn(line);
+                    }
+                }
+            )
+            .transform(
+                new Function<String, String>() {
+                    @Override
+                    public String apply(final String line) {
+                        try {
+                            return XemblyLine.parse(line).xembly();
+                        } catch (XemblySyntaxException ex) {
+                            Exceptions.warn(this, ex);
+                        }
+                        return null;
+                    }
+                }
+            )
+            .filter(Predicates.notNull());
+    }
+
+    /**
+     * Group messages into batches.
+     * @param msgs JSON messages
+     * @return Batches
+     * @throws UnsupportedEncodingException If fails
+     */
+    private static Collection<List<String>> batches(
+        final Iterable<String> msgs) throws UnsupportedEncodingException {
+        final Collection<List<String>> batches =
+            new LinkedList<List<String>>();
+        List<String> batch = new ArrayList<String>(Standed.MAX);
+        int bytes = 0;
+        for (String msg : msgs) {
+            final int size = msg.getBytes(CharEncoding.UTF_8).length;
+            if (!batch.isEmpty() && (batch.size() == Standed.MAX
+                || bytes + size > Standed.PAYLOAD)) {
+                batches.add(batch);
+                batch = new ArrayList<String>(Standed.MAX);
+                bytes = 0;
+            }
+            batch.add(msg);
+            bytes += size;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Send messages to stand in background.
+     *
+     * <p>Waits for a free slot in the pipeline, if all of them are busy,
+     * but not longer than a minute. Messages are lost after that.
+     *
+     * @param msgs JSON messages
      * @throws IOException If fails
      */
-    private void send(final Iterable<String> xemblies) throws IOException {
+    private void send(final List<String> msgs) throws IOException {
+        final String body = Standed.body(msgs);
+        try {
+            if (!Standed.SLOTS.tryAcquire(1, TimeUnit.MINUTES)) {
+                Logger.warn(
+                    this, "#send(): %d message(s) to stand '%s' lost",
+                    msgs.size(), this.stand
+                );
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+        final Standed.Pending pending = Standed.Pending.enter(this);
         this.exec.get().submit(
             new VerboseRunnable(
                 new Callable<Void>() {
                     @Override
                     public Void call() throws Exception {
-                        Standed.this.send(Standed.this.body(xemblies));
+                        try {
+                            Standed.this.send(body);
+                        } finally {
+                            pending.leave();
+                            Standed.SLOTS.release();
+                        }
                         return null;
                     }
                 },
@@ -317,15 +482,11 @@ public final class Standed implements Drain {
 
     /**
      * Create POST request body.
-     * @param xemblies The xembly scripts
+     * @param msgs JSON messages
      * @return POST request body
      * @throws IOException If fails
      */
-    private String body(final Iterable<String> xemblies) throws IOException {
-        final List<String> msgs = new ArrayList<String>(0);
-        for (String xembly : xemblies) {
-            msgs.add(this.json(xembly));
-        }
+    private static String body(final List<String> msgs) throws IOException {
         final StringBuilder body = new StringBuilder()
             .append("Action=SendMessageBatch")
             .append("&Version=2011-10-01");
@@ -392,4 +553,91 @@ public final class Standed implements Drain {
             .close();
         return writer.toString();
     }
+
+    /**
+     * Batches of one drain in flight.
+     */
+    private static final class Pending {
+        /**
+         * Drain they belong to.
+         */
+        private final transient Standed drain;
+        /**
+         * Number of batches in flight.
+         */
+        private transient int count;
+        /**
+         * All batches are sent and the object is removed from the map.
+         */
+        private transient boolean retired;
+        /**
+         * Public ctor.
+         * @param drn Drain
+         */
+        Pending(final Standed drn) {
+            this.drain = drn;
+        }
+        /**
+         * Register one more batch of the drain.
+         * @param drn Drain
+         * @return Pending batches of the drain
+         */
+        public static Standed.Pending enter(final Standed drn) {
+            Standed.Pending pending = null;
+            while (pending == null) {
+                Standed.PENDING.putIfAbsent(drn, new Standed.Pending(drn));
+                final Standed.Pending candidate = Standed.PENDING.get(drn);
+                if (candidate != null && candidate.increment()) {
+                    pending = candidate;
+                }
+            }
+            return pending;
+        }
+        /**
+         * One batch is sent (or failed).
+         */
+        public void leave() {
+            synchronized (this) {
+                --this.count;
+                if (this.count == 0) {
+                    this.retired = true;
+                    Standed.PENDING.remove(this.drain, this);
+                    this.notifyAll();
+                }
+            }
+        }
+        /**
+         * Wait until all batches are sent, but not longer than a minute.
+         * @return TRUE if all of them are sent
+         * @throws IOException If interrupted
+         */
+        public boolean await() throws IOException {
+            final long limit = System.currentTimeMillis()
+                + TimeUnit.MINUTES.toMillis(1);
+            synchronized (this) {
+                while (!this.retired && System.currentTimeMillis() < limit) {
+                    try {
+                        this.wait(Tv.HUNDRED);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(ex);
+                    }
+                }
+                return this.retired;
+            }
+        }
+        /**
+         * Increment the counter, unless retired.
+         * @return TRUE if incremented
+         */
+        private boolean increment() {
+            synchronized (this) {
+                final boolean alive = !this.retired;
+                if (alive) {
+                    ++this.count;
+                }
+                return alive;
+            }
+        }
+    }
 }
@@ -33,7 +33,9 @@ import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.rultor.spi.Drain;
 import com.rultor.spi.Pageable;
+import com.rultor.tools.Ranges;
 import com.rultor.tools.Time;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
@@ -46,6 +48,8 @@ import org.apache.commons.lang3.CharEncoding;
 /**
  * Drain with a trail.
  *
+ * <p>Ranged and tail reads go to the main drain, without the header.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -55,7 +59,7 @@ import org.apache.commons.lang3.CharEncoding;
 @ToString
 @EqualsAndHashCode(of = { "main", "tail" })
 @Loggable(Loggable.DEBUG)
-public final class Tailed implements Drain {
+public final class Tailed implements Drain.Ranged, Closeable {
 
     /**
      * Main drain.
@@ -97,6 +101,24 @@ public final class Tailed implements Drain {
         this.tail.append(lines);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Closes both drains, if they are closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.main instanceof Closeable) {
+                Closeable.class.cast(this.main).close();
+            }
+        } finally {
+            if (this.tail instanceof Closeable) {
+                Closeable.class.cast(this.tail).close();
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -115,4 +137,29 @@ public final class Tailed implements Drain {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return Ranges.size(this.main);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.main, offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.main, lines);
+    }
+
 }
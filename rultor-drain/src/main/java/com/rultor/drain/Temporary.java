@@ -33,30 +33,49 @@ import com.google.common.base.Charsets;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.ScheduleWithFixedDelay;
+import com.jcabi.aspects.Tv;
 import com.jcabi.log.Logger;
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Drain;
 import com.rultor.spi.Pageable;
+import com.rultor.tools.Ranges;
 import com.rultor.tools.Time;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.io.SequenceInputStream;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.Validate;
 
 /**
- * Temporary in memory.
+ * Temporary on local disk.
+ *
+ * <p>Every pulse is kept in its own append-only file in
+ * {@code rultor-temporary} sub-directory of the system temporary
+ * directory, for up to two hours. The sub-directory is cleaned when
+ * the class is loaded, since files left there by a previous JVM are
+ * not visible to this one anyway.
+ *
+ * <p>When all files together grow bigger than the limit (in bytes,
+ * provided to the constructor or {@link #LIMIT} by default), the
+ * oldest ones are deleted first. The default limit can be changed by
+ * {@code com.rultor.drain.Temporary.limit} system property.
  *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
@@ -67,7 +86,15 @@ import org.apache.commons.lang3.CharEncoding;
 @EqualsAndHashCode(of = { "work", "marker" })
 @Loggable(Loggable.DEBUG)
 @SuppressWarnings({ "PMD.DoNotUseThreads", "PMD.TooManyMethods" })
-public final class Temporary implements Drain {
+public final class Temporary implements Drain.Ranged {
+
+    /**
+     * Maximum total size of all buffers, in bytes.
+     */
+    public static final long LIMIT = Long.getLong(
+        "com.rultor.drain.Temporary.limit",
+        (long) Tv.HUNDRED * Tv.MILLION
+    );
 
     /**
      * Maximum lifetime allowed, in milliseconds.
@@ -75,10 +102,27 @@ public final class Temporary implements Drain {
     private static final long LIFETIME = TimeUnit.HOURS.toMillis(2);
 
     /**
-     * All in-memory buffers.
+     * All buffers, grouped by owner, rule and marker.
+     * @checkstyle LineLength (2 lines)
+     */
+    private static final ConcurrentMap<String, ConcurrentMap<Temporary, Temporary.Buffer>> INDEX =
+        new ConcurrentHashMap<String, ConcurrentMap<Temporary, Temporary.Buffer>>(0);
+
+    /**
+     * All drains with buffers, the oldest first.
      */
-    private static final ConcurrentMap<Temporary, Temporary.Buffer> BUFFERS =
-        new ConcurrentHashMap<Temporary, Temporary.Buffer>(0);
+    private static final Queue<Temporary> ORDER =
+        new ConcurrentLinkedQueue<Temporary>();
+
+    /**
+     * Total size of all buffers, in bytes.
+     */
+    private static final AtomicLong TOTAL = new AtomicLong();
+
+    /**
+     * Directory with files of all buffers.
+     */
+    private static final File DIR = Temporary.directory();
 
     /**
      * Cleaner.
@@ -95,17 +139,35 @@ public final class Temporary implements Drain {
      */
     private final transient String marker;
 
+    /**
+     * Maximum total size of all buffers, in bytes.
+     */
+    private final transient long limit;
+
     /**
      * Public ctor.
      * @param wrk Coordinates we're in
      * @param mrk Optional marker
+     * @param lmt Maximum total size of all buffers, in bytes
      */
     public Temporary(
         @NotNull(message = "work can't be NULL") final Coordinates wrk,
-        @NotNull(message = "marker can't be NULL") final String mrk) {
+        @NotNull(message = "marker can't be NULL") final String mrk,
+        final long lmt) {
         assert Temporary.CLEANER != null;
+        Validate.isTrue(lmt > 0, "limit must be positive, %d given", lmt);
         this.work = wrk;
         this.marker = mrk;
+        this.limit = lmt;
+    }
+
+    /**
+     * Public ctor.
+     * @param wrk Coordinates we're in
+     * @param mrk Optional marker
+     */
+    public Temporary(final Coordinates wrk, final String mrk) {
+        this(wrk, mrk, Temporary.LIMIT);
     }
 
     /**
@@ -122,8 +184,10 @@ public final class Temporary implements Drain {
     @Override
     public Pageable<Time, Time> pulses() throws IOException {
         final Collection<Time> times = new LinkedList<Time>();
-        for (Temporary client : Temporary.BUFFERS.keySet()) {
-            if (this.similar(client)) {
+        final ConcurrentMap<Temporary, Temporary.Buffer> buffers =
+            Temporary.INDEX.get(this.group());
+        if (buffers != null) {
+            for (Temporary client : buffers.keySet()) {
                 times.add(client.work.scheduled());
             }
         }
@@ -135,17 +199,31 @@ public final class Temporary implements Drain {
      */
     @Override
     public void append(final Iterable<String> lines) throws IOException {
-        final Temporary.Buffer buffer;
-        synchronized (Temporary.BUFFERS) {
-            if (!Temporary.BUFFERS.containsKey(this)) {
-                Temporary.BUFFERS.put(
-                    this,
-                    new Temporary.Buffer()
-                );
+        while (true) {
+            Temporary.Buffer buffer;
+            synchronized (Temporary.INDEX) {
+                buffer = this.buffer();
+                if (buffer == null) {
+                    buffer = new Temporary.Buffer();
+                    Temporary.INDEX.putIfAbsent(
+                        this.group(),
+                        new ConcurrentHashMap<Temporary, Temporary.Buffer>(0)
+                    );
+                    Temporary.INDEX.get(this.group()).put(this, buffer);
+                    Temporary.ORDER.add(this);
+                }
+            }
+            if (buffer.append(lines)) {
+                break;
             }
-            buffer = Temporary.BUFFERS.get(this);
         }
-        buffer.append(lines);
+        while (Temporary.TOTAL.get() > this.limit) {
+            final Temporary oldest = Temporary.ORDER.peek();
+            if (oldest == null || oldest.equals(this)) {
+                break;
+            }
+            oldest.remove();
+        }
     }
 
     /**
@@ -153,16 +231,7 @@ public final class Temporary implements Drain {
      */
     @Override
     public InputStream read() throws IOException {
-        final Temporary.Buffer buffer = Temporary.BUFFERS.get(this);
-        if (buffer == null) {
-            throw new IOException(
-                String.format(
-                    "temporary buffer is absent for `%s` in `%s`",
-                    this.marker,
-                    this.work
-                )
-            );
-        }
+        final Temporary.Buffer buffer = this.existing();
         return new SequenceInputStream(
             IOUtils.toInputStream(
                 Logger.format(
@@ -176,52 +245,221 @@ public final class Temporary implements Drain {
     }
 
     /**
-     * Thread-safe buffer to the real drain.
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return this.existing().size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.existing(), offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
      */
-    private final class Buffer {
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.existing(), lines);
+    }
+
+    /**
+     * Key of the group of similar drains in the index.
+     * @return The key
+     */
+    private String group() {
+        return String.format(
+            "%s %s %s", this.work.owner(), this.work.rule(), this.marker
+        );
+    }
+
+    /**
+     * Buffer of this drain.
+     * @return The buffer or NULL if absent
+     */
+    private Temporary.Buffer buffer() {
+        final ConcurrentMap<Temporary, Temporary.Buffer> buffers =
+            Temporary.INDEX.get(this.group());
+        Temporary.Buffer buffer = null;
+        if (buffers != null) {
+            buffer = buffers.get(this);
+        }
+        return buffer;
+    }
+
+    /**
+     * Buffer of this drain, which must exist.
+     * @return The buffer
+     * @throws IOException If it is absent
+     */
+    private Temporary.Buffer existing() throws IOException {
+        final Temporary.Buffer buffer = this.buffer();
+        if (buffer == null) {
+            throw new IOException(
+                String.format(
+                    "temporary buffer is absent for `%s` in `%s`",
+                    this.marker,
+                    this.work
+                )
+            );
+        }
+        return buffer;
+    }
+
+    /**
+     * Create directory for files, or clean it up if it exists.
+     * @return The directory
+     */
+    private static File directory() {
+        final File dir = new File(
+            System.getProperty("java.io.tmpdir"), "rultor-temporary"
+        );
+        try {
+            FileUtils.forceMkdir(dir);
+            FileUtils.cleanDirectory(dir);
+        } catch (IOException ex) {
+            Logger.warn(
+                Temporary.class, "failed to clean %s: %s",
+                dir, ex.getMessage()
+            );
+        }
+        return dir;
+    }
+
+    /**
+     * Remove the buffer of this drain and delete its file.
+     */
+    private void remove() {
+        final Temporary.Buffer buffer;
+        synchronized (Temporary.INDEX) {
+            Temporary.ORDER.remove(this);
+            final ConcurrentMap<Temporary, Temporary.Buffer> buffers =
+                Temporary.INDEX.get(this.group());
+            if (buffers == null) {
+                buffer = null;
+            } else {
+                buffer = buffers.remove(this);
+                if (buffers.isEmpty()) {
+                    Temporary.INDEX.remove(this.group());
+                }
+            }
+        }
+        if (buffer != null) {
+            buffer.delete();
+        }
+    }
+
+    /**
+     * Thread-safe buffer in a file.
+     */
+    private static final class Buffer implements Ranges.Body {
         /**
          * When was is scheduled.
          */
-        private final transient Long start = System.currentTimeMillis();
+        private final transient long start = System.currentTimeMillis();
+        /**
+         * File with data, NULL until the first append.
+         */
+        private transient File file;
         /**
-         * Buffered data.
+         * Number of bytes in the file.
          */
-        private final transient ByteArrayOutputStream data =
-            new ByteArrayOutputStream();
+        private transient long size;
+        /**
+         * Is it deleted already?
+         */
+        private transient boolean deleted;
         /**
          * {@inheritDoc}
          */
         @Override
-        public String toString() {
+        public synchronized String toString() {
             return Logger.format(
                 "age=%[ms]s, size=%d",
                 System.currentTimeMillis() - this.start,
-                this.data.size()
+                this.size
             );
         }
         /**
          * Append lines to the buffer.
          * @param lines Lines to append
+         * @return FALSE if the buffer is deleted already
+         * @throws IOException If fails
          */
-        public void append(final Iterable<String> lines) {
-            synchronized (this.start) {
-                final PrintWriter writer = new PrintWriter(
-                    new OutputStreamWriter(this.data, Charsets.UTF_8)
+        public synchronized boolean append(final Iterable<String> lines)
+            throws IOException {
+            if (this.deleted) {
+                return false;
+            }
+            if (this.file == null) {
+                this.file = File.createTempFile(
+                    "rultor-temporary", ".txt", Temporary.DIR
                 );
-                for (String line : lines) {
-                    writer.print(line);
-                    writer.print('\n');
-                }
-                writer.flush();
-                writer.close();
             }
+            final StringBuilder text = new StringBuilder();
+            for (String line : lines) {
+                text.append(line).append('\n');
+            }
+            final byte[] bytes = text.toString().getBytes(Charsets.UTF_8);
+            final OutputStream output = new FileOutputStream(this.file, true);
+            try {
+                output.write(bytes);
+            } finally {
+                output.close();
+            }
+            this.size += bytes.length;
+            Temporary.TOTAL.addAndGet(bytes.length);
+            return true;
         }
         /**
-         * Read it as a stream.
+         * Read it as a stream, as it is now.
          * @return The stream
+         * @throws IOException If fails
+         */
+        public synchronized InputStream read() throws IOException {
+            final InputStream stream;
+            if (this.file == null) {
+                stream = IOUtils.toInputStream("", CharEncoding.UTF_8);
+            } else {
+                stream = new BoundedInputStream(
+                    new FileInputStream(this.file), this.size
+                );
+            }
+            return stream;
+        }
+        @Override
+        public synchronized long size() {
+            return this.size;
+        }
+        @Override
+        public synchronized InputStream read(final long offset,
+            final long length) throws IOException {
+            if (this.file == null) {
+                throw new IOException("temporary buffer is deleted");
+            }
+            final InputStream stream = new FileInputStream(this.file);
+            IOUtils.skipFully(stream, offset);
+            return new BoundedInputStream(stream, length);
+        }
+        /**
+         * Delete the file.
          */
-        public InputStream read() {
-            return new ByteArrayInputStream(this.data.toByteArray());
+        public synchronized void delete() {
+            this.deleted = true;
+            if (this.file != null) {
+                if (!this.file.delete()) {
+                    Logger.warn(this, "failed to delete %s", this.file);
+                }
+                this.file = null;
+            }
+            Temporary.TOTAL.addAndGet(-this.size);
+            this.size = 0;
         }
         /**
          * Expired already?
@@ -233,17 +471,6 @@ public final class Temporary implements Drain {
         }
     }
 
-    /**
-     * This drain is similar to the one provided?
-     * @param drain Drain to compare with
-     * @return TRUE if they are similar
-     */
-    private boolean similar(final Temporary drain) {
-        return this.work.owner().equals(drain.work.owner())
-            && this.work.rule().equals(drain.work.rule())
-            && this.marker.equals(drain.marker);
-    }
-
     /**
      * Flush.
      */
@@ -251,10 +478,16 @@ public final class Temporary implements Drain {
     private static final class Cleaner implements Runnable {
         @Override
         public void run() {
-            for (Temporary client : Temporary.BUFFERS.keySet()) {
-                if (Temporary.BUFFERS.get(client).expired()) {
-                    Temporary.BUFFERS.remove(client);
+            while (true) {
+                final Temporary oldest = Temporary.ORDER.peek();
+                if (oldest == null) {
+                    break;
+                }
+                final Temporary.Buffer buffer = oldest.buffer();
+                if (buffer != null && !buffer.expired()) {
+                    break;
                 }
+                oldest.remove();
             }
         }
     }
@@ -62,7 +62,7 @@ import org.apache.commons.net.ftp.FTPReply;
 @ToString(exclude = "password")
 @EqualsAndHashCode(of = { "work", "host", "login", "password", "port", "dir" })
 @Loggable(Loggable.DEBUG)
-public final class DirectoryDrain implements Drain {
+public final class DirectoryDrain implements Drain.Ranged {
 
     /**
      * The work it is busy with at the moment.
@@ -177,6 +177,31 @@ public final class DirectoryDrain implements Drain {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return this.file().size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return this.file().read(offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return this.file().tail(lines);
+    }
+
     /**
      * Fetch all times.
      * @param ftp FTP client
@@ -36,25 +36,34 @@ import com.jcabi.aspects.RetryOnFailure;
 import com.jcabi.log.Logger;
 import com.rultor.spi.Drain;
 import com.rultor.spi.Pageable;
+import com.rultor.tools.Ranges;
 import com.rultor.tools.Time;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.CharEncoding;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
 
 /**
  * Drain to an FTP file.
  *
+ * <p>Ranged and tail reads retrieve only the bytes they need, starting
+ * from an offset (FTP REST command), and stream them right from the
+ * FTP connection, which is closed together with the stream.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -64,7 +73,7 @@ import org.apache.commons.net.ftp.FTPClient;
 @ToString
 @EqualsAndHashCode(of = { "batch", "file" })
 @Loggable(Loggable.DEBUG)
-public final class FileDrain implements Drain {
+public final class FileDrain implements Drain.Ranged {
 
     /**
      * FTP batch.
@@ -159,6 +168,150 @@ public final class FileDrain implements Drain {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return this.batch.exec(
+            new FtpBatch.Script<Long>() {
+                @Override
+                public Long exec(final FTPClient ftp) throws IOException {
+                    return FileDrain.this.size(ftp);
+                }
+            },
+            FilenameUtils.getFullPathNoEndSeparator(this.file)
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.content(), offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.content(), lines);
+    }
+
+    /**
+     * Content of the file, readable by ranges.
+     * @return The content
+     * @throws IOException If fails
+     */
+    private Ranges.Body content() throws IOException {
+        final long size = this.size();
+        return new Ranges.Body() {
+            @Override
+            public long size() {
+                return size;
+            }
+            @Override
+            public InputStream read(final long offset, final long length)
+                throws IOException {
+                return FileDrain.this.stream(offset, length);
+            }
+        };
+    }
+
+    /**
+     * Get size of the file in FTP.
+     * @param ftp FTP client
+     * @return Size in bytes
+     * @throws IOException If some I/O problem inside
+     */
+    private long size(final FTPClient ftp) throws IOException {
+        final FTPFile[] files = ftp.listFiles(
+            FilenameUtils.getBaseName(this.file)
+        );
+        if (files.length == 0) {
+            throw new IOException(
+                String.format(
+                    "file %s not found in %s because of '%s'",
+                    this.file, this.batch,
+                    ftp.getReplyString().trim()
+                )
+            );
+        }
+        return files[0].getSize();
+    }
+
+    /**
+     * Stream a range of bytes of the file from FTP.
+     *
+     * <p>The stream reads right from the FTP connection, which stays
+     * open until the stream is closed.
+     *
+     * @param offset Position of the first byte
+     * @param length Number of bytes
+     * @return Stream with content
+     * @throws IOException If some I/O problem inside
+     */
+    private InputStream stream(final long offset, final long length)
+        throws IOException {
+        final FTPClient ftp = this.batch.open(
+            FilenameUtils.getFullPathNoEndSeparator(this.file)
+        );
+        final InputStream input;
+        try {
+            ftp.setFileType(FTP.BINARY_FILE_TYPE);
+            ftp.setRestartOffset(offset);
+            input = ftp.retrieveFileStream(
+                FilenameUtils.getBaseName(this.file)
+            );
+            if (input == null) {
+                throw new IOException(
+                    String.format(
+                        "failed to read %s from %s at %d because of '%s'",
+                        this.file, this.batch, offset,
+                        ftp.getReplyString().trim()
+                    )
+                );
+            }
+        } catch (IOException ex) {
+            this.batch.close(ftp);
+            throw ex;
+        }
+        final AtomicBoolean closed = new AtomicBoolean();
+        return new FilterInputStream(new BoundedInputStream(input, length)) {
+            @Override
+            public void close() throws IOException {
+                if (closed.compareAndSet(false, true)) {
+                    FileDrain.this.finish(ftp, this.in);
+                }
+            }
+        };
+    }
+
+    /**
+     * Close the stream of a transfer and the connection.
+     * @param ftp FTP client
+     * @param input Stream of the transfer
+     * @throws IOException If some I/O problem inside
+     */
+    private void finish(final FTPClient ftp, final InputStream input)
+        throws IOException {
+        try {
+            input.close();
+            if (!ftp.completePendingCommand()) {
+                Logger.debug(
+                    this,
+                    "#finish(..): transfer of '%s' interrupted: '%s'",
+                    this.file, ftp.getReplyString().trim()
+                );
+            }
+        } finally {
+            this.batch.close(ftp);
+        }
+    }
+
     /**
      * Append lines to FTP.
      * @param ftp FTP client
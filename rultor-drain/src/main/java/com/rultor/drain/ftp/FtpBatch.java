@@ -117,6 +117,27 @@ final class FtpBatch {
      */
     public <T> T exec(final FtpBatch.Script<T> script, final String dir)
         throws IOException {
+        final FTPClient ftp = this.open(dir);
+        try {
+            return script.exec(ftp);
+        } finally {
+            this.close(ftp);
+        }
+    }
+
+    /**
+     * Connect, login and go to the directory.
+     *
+     * <p>The client returned has to be closed by {@link #close(FTPClient)}.
+     * Use it when the result of the script is a stream that reads from
+     * the connection after the script is finished, otherwise
+     * {@link #exec(FtpBatch.Script,String)} is simpler.
+     *
+     * @param dir Directory to go to
+     * @return Connected client
+     * @throws IOException If fails in IO operation
+     */
+    public FTPClient open(final String dir) throws IOException {
         final FTPClient ftp = new FTPClient();
         ftp.setControlKeepAliveTimeout(TimeUnit.MINUTES.toSeconds(1));
         ftp.setRemoteVerificationEnabled(false);
@@ -126,6 +147,7 @@ final class FtpBatch {
             )
         );
         ftp.connect(this.host, this.port);
+        boolean done = false;
         try {
             final int reply = ftp.getReplyCode();
             if (!FTPReply.isPositiveCompletion(reply)) {
@@ -139,7 +161,7 @@ final class FtpBatch {
             }
             Logger.debug(
                 this,
-                "#exec(..): connected to ftp://%s:%d",
+                "#open(..): connected to ftp://%s:%d",
                 this.host, this.port
             );
             if (!ftp.login(this.login, this.password)) {
@@ -153,29 +175,65 @@ final class FtpBatch {
             }
             Logger.debug(
                 this,
-                "#exec(..): authenticated as '%s'",
+                "#open(..): authenticated as '%s'",
                 this.login
             );
             try {
                 ftp.enterLocalPassiveMode();
                 this.chdir(ftp, dir);
-                return script.exec(ftp);
+                done = true;
             } finally {
-                ftp.logout();
-                Logger.debug(
-                    this,
-                    "#exec(..): logged out from ftp://%s:%d",
-                    this.host, this.port
-                );
+                if (!done) {
+                    this.logout(ftp);
+                }
             }
         } finally {
-            ftp.disconnect();
-            Logger.debug(
-                this,
-                "#exec(..): disconnected ftp://%s:%d",
-                this.host, this.port
-            );
+            if (!done) {
+                this.disconnect(ftp);
+            }
         }
+        return ftp;
+    }
+
+    /**
+     * Logout and disconnect the client made by {@link #open(String)}.
+     * @param ftp FTP client
+     * @throws IOException If fails in IO operation
+     */
+    public void close(final FTPClient ftp) throws IOException {
+        try {
+            this.logout(ftp);
+        } finally {
+            this.disconnect(ftp);
+        }
+    }
+
+    /**
+     * Logout.
+     * @param ftp FTP client
+     * @throws IOException If fails in IO operation
+     */
+    private void logout(final FTPClient ftp) throws IOException {
+        ftp.logout();
+        Logger.debug(
+            this,
+            "#logout(..): logged out from ftp://%s:%d",
+            this.host, this.port
+        );
+    }
+
+    /**
+     * Disconnect.
+     * @param ftp FTP client
+     * @throws IOException If fails in IO operation
+     */
+    private void disconnect(final FTPClient ftp) throws IOException {
+        ftp.disconnect();
+        Logger.debug(
+            this,
+            "#disconnect(..): disconnected ftp://%s:%d",
+            this.host, this.port
+        );
     }
 
     /**
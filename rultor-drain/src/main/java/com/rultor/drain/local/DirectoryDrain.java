@@ -0,0 +1,476 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.drain.local;
+
+import com.google.common.base.Charsets;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import com.rultor.spi.Coordinates;
+import com.rultor.spi.Drain;
+import com.rultor.spi.Pageable;
+import com.rultor.tools.Ranges;
+import com.rultor.tools.Time;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.CharEncoding;
+
+/**
+ * Drain in a local directory.
+ *
+ * <p>Every pulse is stored in its own directory, as a sequence of
+ * append-only segment files, each not bigger than {@link #SEGMENT}
+ * bytes (unless a single append is bigger). Scheduled times of all
+ * pulses of a rule are registered in a binary index file of that
+ * rule, eight bytes per pulse, so listing them doesn't scan
+ * directories.
+ *
+ * <p>Ranged and tail reads open only the segments they need.
+ *
+ * <p>When {@code sync} is set, every append is flushed to the disk
+ * before it returns.
+ *
+ * <p>Appends to the same pulse are serialized inside one JVM only, so
+ * a directory should not be shared by conveyers in different
+ * processes.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle ClassDataAbstractionCoupling (500 lines)
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = { "work", "dir", "sync" })
+@Loggable(Loggable.DEBUG)
+@SuppressWarnings("PMD.TooManyMethods")
+public final class DirectoryDrain implements Drain.Ranged {
+
+    /**
+     * Maximum size of one segment, in bytes.
+     */
+    public static final long SEGMENT = Tv.MILLION;
+
+    /**
+     * Name of the index file in the directory of a rule.
+     */
+    private static final String INDEX = "pulses.idx";
+
+    /**
+     * Locks of pulse directories, by their hash codes.
+     */
+    private static final Object[] LOCKS = DirectoryDrain.locks(Tv.HUNDRED);
+
+    /**
+     * The work it is busy with at the moment.
+     */
+    private final transient Coordinates work;
+
+    /**
+     * Directory name.
+     */
+    private final transient String dir;
+
+    /**
+     * Flush every append to the disk.
+     */
+    private final transient boolean sync;
+
+    /**
+     * Public ctor.
+     * @param wrk Coordinates we're in
+     * @param name Directory name
+     */
+    public DirectoryDrain(final Coordinates wrk, final String name) {
+        this(wrk, name, false);
+    }
+
+    /**
+     * Public ctor.
+     * @param wrk Coordinates we're in
+     * @param name Directory name
+     * @param flush Flush every append to the disk
+     */
+    public DirectoryDrain(
+        @NotNull(message = "work can't be NULL") final Coordinates wrk,
+        @NotNull(message = "directory can't be NULL") final String name,
+        final boolean flush) {
+        this.work = wrk;
+        this.dir = name;
+        this.sync = flush;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Pageable<Time, Time> pulses() throws IOException {
+        final File index = new File(this.rule(), DirectoryDrain.INDEX);
+        final Collection<Time> times = new ArrayList<Time>(0);
+        if (index.exists()) {
+            final long total = index.length() / Tv.EIGHT;
+            final DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(index))
+            );
+            try {
+                for (long idx = 0; idx < total; ++idx) {
+                    times.add(new Time(input.readLong()));
+                }
+            } finally {
+                input.close();
+            }
+        }
+        return new Pageable.Array<Time>(times);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(final Iterable<String> lines) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        final byte[] bytes = text.toString().getBytes(Charsets.UTF_8);
+        final File pulse = this.pulse();
+        if (pulse.mkdirs()) {
+            this.register();
+        }
+        synchronized (DirectoryDrain.lock(pulse)) {
+            final File[] segments = DirectoryDrain.segments(pulse);
+            File segment;
+            if (segments.length == 0) {
+                segment = DirectoryDrain.segment(pulse, 0);
+            } else {
+                segment = segments[segments.length - 1];
+                final long size = segment.length();
+                if (size > 0 && size + bytes.length > DirectoryDrain.SEGMENT) {
+                    segment = DirectoryDrain.segment(pulse, segments.length);
+                }
+            }
+            this.write(segment, bytes);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read() throws IOException {
+        return new SequenceInputStream(
+            IOUtils.toInputStream(
+                String.format(
+                    "DirectoryDrain: work='%s', dir='%s'\n",
+                    this.work, this.dir
+                ),
+                CharEncoding.UTF_8
+            ),
+            new SequenceInputStream(
+                new DirectoryDrain.Segments(
+                    Arrays.asList(DirectoryDrain.segments(this.pulse()))
+                )
+            )
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        return this.content().size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.content(), offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.content(), lines);
+    }
+
+    /**
+     * Content of the pulse, as it is now.
+     * @return The content
+     * @throws IOException If fails
+     */
+    private DirectoryDrain.Content content() throws IOException {
+        return new DirectoryDrain.Content(
+            DirectoryDrain.segments(this.pulse())
+        );
+    }
+
+    /**
+     * Register this pulse in the index of the rule.
+     * @throws IOException If fails
+     */
+    private void register() throws IOException {
+        final File index = new File(this.rule(), DirectoryDrain.INDEX);
+        synchronized (DirectoryDrain.lock(index)) {
+            final DataOutputStream output = new DataOutputStream(
+                new FileOutputStream(index, true)
+            );
+            try {
+                output.writeLong(this.work.scheduled().millis());
+                if (this.sync) {
+                    output.flush();
+                    output.getFD().sync();
+                }
+            } finally {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Append bytes to the file.
+     * @param file The file
+     * @param bytes Bytes to append
+     * @throws IOException If fails
+     */
+    private void write(final File file, final byte[] bytes)
+        throws IOException {
+        final FileOutputStream output = new FileOutputStream(file, true);
+        try {
+            output.write(bytes);
+            if (this.sync) {
+                output.getFD().sync();
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Directory of the rule.
+     * @return Directory
+     * @throws IOException If fails
+     */
+    private File rule() throws IOException {
+        return new File(
+            new File(
+                this.dir,
+                URLEncoder.encode(
+                    this.work.owner().toString(), CharEncoding.UTF_8
+                )
+            ),
+            this.work.rule()
+        );
+    }
+
+    /**
+     * Directory of the pulse.
+     * @return Directory
+     * @throws IOException If fails
+     */
+    private File pulse() throws IOException {
+        return new File(
+            this.rule(),
+            String.format("%020d", this.work.scheduled().millis())
+        );
+    }
+
+    /**
+     * All segments of the pulse, in order.
+     * @param pulse Directory of the pulse
+     * @return Segment files
+     */
+    private static File[] segments(final File pulse) {
+        File[] files = pulse.listFiles(
+            new FilenameFilter() {
+                @Override
+                public boolean accept(final File folder, final String name) {
+                    return name.matches("\\d{8}\\.log");
+                }
+            }
+        );
+        if (files == null) {
+            files = new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Segment file with the given number.
+     * @param pulse Directory of the pulse
+     * @param number Number of the segment
+     * @return Segment file
+     */
+    private static File segment(final File pulse, final int number) {
+        return new File(pulse, String.format("%08d.log", number));
+    }
+
+    /**
+     * Lock of the given file.
+     * @param file The file
+     * @return Object to synchronize on
+     */
+    private static Object lock(final File file) {
+        return DirectoryDrain.LOCKS[
+            (file.hashCode() & Integer.MAX_VALUE) % DirectoryDrain.LOCKS.length
+        ];
+    }
+
+    /**
+     * Make locks.
+     * @param total How many of them
+     * @return Locks
+     */
+    private static Object[] locks(final int total) {
+        final Object[] locks = new Object[total];
+        for (int idx = 0; idx < total; ++idx) {
+            locks[idx] = new Object();
+        }
+        return locks;
+    }
+
+    /**
+     * Content of segments, readable by ranges.
+     */
+    private static final class Content implements Ranges.Body {
+        /**
+         * Segment files.
+         */
+        private final transient File[] files;
+        /**
+         * Their sizes, at the moment of creation.
+         */
+        private final transient long[] sizes;
+        /**
+         * Public ctor.
+         * @param segments Segment files
+         */
+        protected Content(final File[] segments) {
+            this.files = segments.clone();
+            this.sizes = new long[segments.length];
+            for (int idx = 0; idx < segments.length; ++idx) {
+                this.sizes[idx] = segments[idx].length();
+            }
+        }
+        @Override
+        public long size() {
+            long size = 0;
+            for (long length : this.sizes) {
+                size += length;
+            }
+            return size;
+        }
+        @Override
+        public InputStream read(final long offset, final long length)
+            throws IOException {
+            int first = 0;
+            long skip = offset;
+            while (first < this.files.length && skip >= this.sizes[first]) {
+                skip -= this.sizes[first];
+                ++first;
+            }
+            final InputStream head = new FileInputStream(this.files[first]);
+            IOUtils.skipFully(head, skip);
+            return new BoundedInputStream(
+                new SequenceInputStream(
+                    head,
+                    new SequenceInputStream(
+                        new DirectoryDrain.Segments(
+                            Arrays.asList(this.files)
+                                .subList(first + 1, this.files.length)
+                        )
+                    )
+                ),
+                length
+            );
+        }
+    }
+
+    /**
+     * Segments opened one by one, when needed.
+     */
+    private static final class Segments implements Enumeration<InputStream> {
+        /**
+         * Segment files.
+         */
+        private final transient Iterator<File> files;
+        /**
+         * Public ctor.
+         * @param list Segment files
+         */
+        protected Segments(final Collection<File> list) {
+            this.files = list.iterator();
+        }
+        @Override
+        public boolean hasMoreElements() {
+            return this.files.hasNext();
+        }
+        @Override
+        public InputStream nextElement() {
+            final File file = this.files.next();
+            try {
+                return new FileInputStream(file);
+            } catch (FileNotFoundException ex) {
+                final NoSuchElementException exp =
+                    new NoSuchElementException(file.toString());
+                exp.initCause(ex);
+                throw exp;
+            }
+        }
+    }
+
+}
@@ -31,6 +31,7 @@ package com.rultor.drain.s3;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
@@ -40,6 +41,7 @@ import com.jcabi.log.Logger;
 import com.rultor.aws.S3Client;
 import com.rultor.spi.Drain;
 import com.rultor.spi.Pageable;
+import com.rultor.tools.Ranges;
 import com.rultor.tools.Time;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
@@ -59,6 +61,9 @@ import org.apache.commons.lang3.Validate;
 /**
  * Drain in a single S3 object.
  *
+ * <p>Ranged and tail reads fetch only the bytes they need, by HTTP
+ * range requests to S3.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -68,7 +73,7 @@ import org.apache.commons.lang3.Validate;
 @ToString
 @EqualsAndHashCode(of = { "client", "key" })
 @Loggable(Loggable.DEBUG)
-public final class ObjectDrain implements Drain {
+public final class ObjectDrain implements Drain.Ranged {
 
     /**
      * S3 client.
@@ -226,6 +231,97 @@ public final class ObjectDrain implements Drain {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() throws IOException {
+        try {
+            return this.client.get()
+                .getObjectMetadata(this.client.bucket(), this.key)
+                .getContentLength();
+        } catch (AmazonS3Exception ex) {
+            throw new IOException(
+                String.format(
+                    "failed to get size of %s in %s: %s",
+                    this.key,
+                    this.client.bucket(),
+                    ex
+                ),
+                ex
+            );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream read(final long offset, final long length)
+        throws IOException {
+        return Ranges.read(this.content(), offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream tail(final int lines) throws IOException {
+        return Ranges.tail(this.content(), lines);
+    }
+
+    /**
+     * Content of the object, readable by ranges.
+     * @return The content
+     * @throws IOException If fails
+     */
+    private Ranges.Body content() throws IOException {
+        final long size = this.size();
+        return new Ranges.Body() {
+            @Override
+            public long size() {
+                return size;
+            }
+            @Override
+            public InputStream read(final long offset, final long length)
+                throws IOException {
+                return ObjectDrain.this.range(offset, length);
+            }
+        };
+    }
+
+    /**
+     * Read a range of bytes of the object.
+     * @param offset Position of the first byte
+     * @param length Number of bytes
+     * @return The stream
+     * @throws IOException If fails
+     */
+    private InputStream range(final long offset, final long length)
+        throws IOException {
+        final AmazonS3 aws = this.client.get();
+        final GetObjectRequest request =
+            new GetObjectRequest(this.client.bucket(), this.key);
+        request.setRange(offset, offset + length - 1);
+        try {
+            return new ObjectDrain.Wrap(
+                aws.getObject(request).getObjectContent(), aws
+            );
+        } catch (AmazonS3Exception ex) {
+            throw new IOException(
+                String.format(
+                    "failed to read %d bytes at %d of %s from %s: %s",
+                    length,
+                    offset,
+                    this.key,
+                    this.client.bucket(),
+                    ex
+                ),
+                ex
+            );
+        }
+    }
+
     /**
      * Wrap around exiting InputStream, to keep AWS object apart from
      * garbage collector, in order not to loose HTTP connection.
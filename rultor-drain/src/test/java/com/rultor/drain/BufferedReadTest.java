@@ -35,8 +35,11 @@ import com.rultor.spi.Coordinates;
 import com.rultor.spi.Drain;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.NullInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.CharEncoding;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -75,6 +78,27 @@ public final class BufferedReadTest {
         Mockito.verify(drain).read();
     }
 
+    /**
+     * BufferedRead can read ranges of the original drain.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsRangesOfOrigin() throws Exception {
+        final Drain.Ranged origin = Mockito.mock(Drain.Ranged.class);
+        Mockito.doReturn((long) Tv.TEN).when(origin).size();
+        Mockito.doReturn(IOUtils.toInputStream("456"))
+            .when(origin).read(Tv.FOUR, Tv.THREE);
+        final Drain.Ranged drain = new BufferedRead(
+            new Coordinates.Simple(), 2, origin
+        );
+        MatcherAssert.assertThat(drain.size(), Matchers.equalTo(10L));
+        MatcherAssert.assertThat(
+            IOUtils.toString(drain.read(Tv.FOUR, Tv.THREE), CharEncoding.UTF_8),
+            Matchers.equalTo("456")
+        );
+        Mockito.verify(origin, Mockito.never()).read();
+    }
+
     /**
      * BufferedRead can be converted to string.
      * @throws Exception If some problem inside
@@ -122,4 +146,71 @@ public final class BufferedReadTest {
         }
     }
 
+    /**
+     * BufferedRead can serve repeated reads from memory.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void servesRepeatedReadsFromMemory() throws Exception {
+        final Drain origin = Mockito.mock(Drain.class);
+        Mockito.doReturn(
+            IOUtils.toInputStream("hello, \u0444!", CharEncoding.UTF_8)
+        ).doReturn(IOUtils.toInputStream("bye", CharEncoding.UTF_8))
+            .when(origin).read();
+        final Drain drain = new BufferedRead(
+            new Coordinates.Simple(new URN("urn:test:10"), "g"),
+            Tv.TEN, origin
+        );
+        final long hits = BufferedRead.hits();
+        IOUtils.toString(drain.read(), CharEncoding.UTF_8);
+        MatcherAssert.assertThat(
+            IOUtils.toString(drain.read(), CharEncoding.UTF_8),
+            Matchers.containsString("hello")
+        );
+        MatcherAssert.assertThat(
+            BufferedRead.hits(), Matchers.greaterThan(hits)
+        );
+        drain.append(Arrays.asList("new line"));
+        MatcherAssert.assertThat(
+            IOUtils.toString(drain.read(), CharEncoding.UTF_8),
+            Matchers.containsString("bye")
+        );
+        Mockito.verify(origin, Mockito.times(2)).read();
+    }
+
+    /**
+     * BufferedRead can evict least recently read drains.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void evictsLeastRecentlyReadDrains() throws Exception {
+        final long size = BufferedRead.BUDGET * 2 / Tv.THREE;
+        final Drain origin = Mockito.mock(Drain.class);
+        Mockito.doAnswer(
+            new Answer<InputStream>() {
+                @Override
+                public InputStream answer(final InvocationOnMock inv) {
+                    return new NullInputStream(size);
+                }
+            }
+        ).when(origin).read();
+        final long evictions = BufferedRead.evictions();
+        for (int idx = 0; idx < 2; ++idx) {
+            IOUtils.copyLarge(
+                new BufferedRead(
+                    new Coordinates.Simple(new URN("urn:test:11"), "h"),
+                    Tv.TEN + idx, origin
+                ).read(),
+                new NullOutputStream()
+            );
+        }
+        MatcherAssert.assertThat(
+            BufferedRead.evictions(), Matchers.greaterThan(evictions)
+        );
+        MatcherAssert.assertThat(
+            BufferedRead.bytes(),
+            Matchers.lessThanOrEqualTo(BufferedRead.BUDGET)
+        );
+    }
+
 }
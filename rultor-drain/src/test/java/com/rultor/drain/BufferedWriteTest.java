@@ -29,11 +29,17 @@
  */
 package com.rultor.drain;
 
+import com.google.common.collect.Iterables;
 import com.jcabi.aspects.Tv;
 import com.jcabi.urn.URN;
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Drain;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import org.hamcrest.MatcherAssert;
@@ -142,4 +148,60 @@ public final class BufferedWriteTest {
         MatcherAssert.assertThat(count.get(), Matchers.equalTo(total));
     }
 
+    /**
+     * BufferedWrite can accept lines while its origin drain is busy.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void appendsWhileOriginIsBusy() throws Exception {
+        final CountDownLatch busy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicLong count = new AtomicLong();
+        final Drain origin = Mockito.mock(Drain.class);
+        Mockito.doAnswer(
+            new Answer<Void>() {
+                @Override
+                public Void answer(final InvocationOnMock inv)
+                    throws Exception {
+                    busy.countDown();
+                    release.await();
+                    count.addAndGet(
+                        Iterables.size(
+                            Iterable.class.cast(inv.getArguments()[0])
+                        )
+                    );
+                    return null;
+                }
+            }
+        ).when(origin).append(Mockito.any(Iterable.class));
+        final BufferedWrite drain = new BufferedWrite(
+            new Coordinates.Simple(new URN("urn:test:10"), "g"), 2, origin
+        );
+        drain.append(Arrays.asList("first"));
+        final ExecutorService svc = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Void> flush = svc.submit(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        drain.close();
+                        return null;
+                    }
+                }
+            );
+            MatcherAssert.assertThat(
+                busy.await(1, TimeUnit.MINUTES), Matchers.is(true)
+            );
+            drain.append(Arrays.asList("second", "third"));
+            release.countDown();
+            flush.get(1, TimeUnit.MINUTES);
+        } finally {
+            svc.shutdown();
+        }
+        drain.close();
+        MatcherAssert.assertThat(
+            count.get(), Matchers.equalTo((long) Tv.THREE)
+        );
+    }
+
 }
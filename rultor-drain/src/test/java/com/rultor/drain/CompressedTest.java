@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.drain;
+
+import com.jcabi.aspects.Tv;
+import com.rultor.spi.Coordinates;
+import com.rultor.spi.Drain;
+import com.rultor.tools.Ranges;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link Compressed}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @checkstyle ClassDataAbstractionCoupling (500 lines)
+ */
+public final class CompressedTest {
+
+    /**
+     * Compressed can be converted to string.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void printsItselfInString() throws Exception {
+        MatcherAssert.assertThat(
+            new Compressed(Mockito.mock(Drain.class)),
+            Matchers.hasToString(Matchers.notNullValue())
+        );
+    }
+
+    /**
+     * Compressed can compress lines and read them back.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void compressesAndReadsBack() throws Exception {
+        final Drain origin = new Temporary(new Coordinates.Simple());
+        final Drain drain = new Compressed(origin);
+        final Collection<String> lines = CompressedTest.lines(Tv.THOUSAND);
+        drain.append(lines);
+        drain.append(Arrays.asList("last \u20ac line"));
+        final String text = IOUtils.toString(
+            drain.read(), CharEncoding.UTF_8
+        );
+        MatcherAssert.assertThat(
+            text,
+            Matchers.allOf(
+                Matchers.containsString("0: [INFO] building module 0\n"),
+                Matchers.containsString(
+                    "999: [INFO] building module 999\nlast \u20ac line\n"
+                )
+            )
+        );
+        MatcherAssert.assertThat(
+            IOUtils.toString(origin.read(), CharEncoding.UTF_8).length(),
+            Matchers.lessThan(text.length() / Tv.THREE)
+        );
+    }
+
+    /**
+     * Compressed can read the last lines.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsLastLines() throws Exception {
+        final Compressed drain = new Compressed(
+            new Temporary(new Coordinates.Simple(), "tail")
+        );
+        drain.append(CompressedTest.lines(Tv.HUNDRED * Tv.FIVE));
+        drain.append(CompressedTest.lines(Tv.THREE));
+        MatcherAssert.assertThat(
+            IOUtils.toString(drain.tail(Tv.FIVE), CharEncoding.UTF_8),
+            Matchers.equalTo(
+                // @checkstyle LineLength (1 line)
+                "498: [INFO] building module 498\n499: [INFO] building module 499\n0: [INFO] building module 0\n1: [INFO] building module 1\n2: [INFO] building module 2\n"
+            )
+        );
+    }
+
+    /**
+     * Compressed can read ranges of decompressed content.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsRangesOfContent() throws Exception {
+        final Compressed drain = new Compressed(
+            new Temporary(new Coordinates.Simple(), "ranges")
+        );
+        drain.append(CompressedTest.lines(Tv.HUNDRED));
+        drain.append(Arrays.asList("\u20ac"));
+        final StringBuilder text = new StringBuilder();
+        for (String line : CompressedTest.lines(Tv.HUNDRED)) {
+            text.append(line).append('\n');
+        }
+        text.append("\u20ac\n");
+        MatcherAssert.assertThat(
+            drain.size(),
+            Matchers.equalTo(
+                (long) text.toString().getBytes(CharEncoding.UTF_8).length
+            )
+        );
+        final long offset = drain.size() - Tv.TEN;
+        MatcherAssert.assertThat(
+            IOUtils.toString(
+                Ranges.read(drain, offset, Tv.FIVE), CharEncoding.UTF_8
+            ),
+            Matchers.equalTo("le 99")
+        );
+        MatcherAssert.assertThat(
+            IOUtils.toString(Ranges.tail(drain, 2), CharEncoding.UTF_8),
+            Matchers.equalTo("99: [INFO] building module 99\n\u20ac\n")
+        );
+    }
+
+    /**
+     * Compressed can read blocks without number of bytes.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsBlocksWithoutSize() throws Exception {
+        final Drain fresh = new Temporary(new Coordinates.Simple(), "new");
+        new Compressed(fresh).append(CompressedTest.lines(Tv.TEN));
+        final Drain old = new Temporary(new Coordinates.Simple(), "old");
+        old.append(
+            Arrays.asList(
+                IOUtils.toString(fresh.read(), CharEncoding.UTF_8)
+                    .replaceAll("(?s).*(deflate:\\d+):\\d+(:\\S+).*", "$1$2")
+            )
+        );
+        final Compressed drain = new Compressed(old);
+        MatcherAssert.assertThat(
+            IOUtils.toString(drain.read(Tv.TEN, Tv.FIVE), CharEncoding.UTF_8),
+            Matchers.equalTo("build")
+        );
+        MatcherAssert.assertThat(
+            drain.size(),
+            Matchers.greaterThan((long) Tv.HUNDRED)
+        );
+    }
+
+    /**
+     * Compressed can close the original drain.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void closesOriginalDrain() throws Exception {
+        final Drain origin = Mockito.mock(
+            Drain.class, Mockito.withSettings().extraInterfaces(Closeable.class)
+        );
+        new Compressed(origin).close();
+        Mockito.verify(Closeable.class.cast(origin)).close();
+    }
+
+    /**
+     * Make lines of a log.
+     * @param total How many of them
+     * @return Lines
+     */
+    private static Collection<String> lines(final int total) {
+        final Collection<String> lines = new ArrayList<String>(total);
+        for (int idx = 0; idx < total; ++idx) {
+            lines.add(
+                String.format("%d: [INFO] building module %1$d", idx)
+            );
+        }
+        return lines;
+    }
+
+}
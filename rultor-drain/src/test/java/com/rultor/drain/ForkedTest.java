@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.drain;
+
+import com.jcabi.aspects.Tv;
+import com.rultor.spi.Drain;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Test case for {@link Forked}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @checkstyle ClassDataAbstractionCoupling (500 lines)
+ */
+@SuppressWarnings("unchecked")
+public final class ForkedTest {
+
+    /**
+     * Forked can send lines to main drain and all branches.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void sendsLinesToAllDrains() throws Exception {
+        final Drain main = Mockito.mock(Drain.class);
+        final Drain first = Mockito.mock(Drain.class);
+        final Drain second = Mockito.mock(Drain.class);
+        final Forked forked = new Forked(main, first, second);
+        forked.append(Arrays.asList("hello, world!"));
+        forked.close();
+        for (Drain drain : Arrays.asList(main, first, second)) {
+            Mockito.verify(drain).append(
+                Mockito.<Iterable<String>>argThat(
+                    Matchers.hasItems("hello, world!")
+                )
+            );
+        }
+    }
+
+    /**
+     * Forked can append to main drain while a branch is stuck.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void appendsWhileBranchIsStuck() throws Exception {
+        final Drain main = Mockito.mock(Drain.class);
+        final Drain slow = Mockito.mock(Drain.class);
+        final CountDownLatch busy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(
+            new Answer<Void>() {
+                @Override
+                public Void answer(final InvocationOnMock inv)
+                    throws Exception {
+                    busy.countDown();
+                    release.await();
+                    return null;
+                }
+            }
+        ).when(slow).append(Mockito.any(Iterable.class));
+        Mockito.doReturn(IOUtils.toInputStream("body", CharEncoding.UTF_8))
+            .when(main).read();
+        final Forked forked = new Forked(main, slow);
+        forked.append(Arrays.asList("first"));
+        MatcherAssert.assertThat(
+            busy.await(1, TimeUnit.MINUTES),
+            Matchers.is(true)
+        );
+        for (int idx = 0; idx < Tv.TEN; ++idx) {
+            forked.append(Arrays.asList("next"));
+        }
+        Mockito.verify(main, Mockito.times(Tv.TEN + 1))
+            .append(Mockito.any(Iterable.class));
+        MatcherAssert.assertThat(
+            IOUtils.toString(forked.read(), CharEncoding.UTF_8),
+            Matchers.containsString("11 lines behind")
+        );
+        release.countDown();
+        forked.close();
+        Mockito.verify(slow, Mockito.times(Tv.TEN + 1))
+            .append(Mockito.any(Iterable.class));
+    }
+
+    /**
+     * Forked can report lag as unknown if the branch is not running here.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void reportsUnknownLagOfForeignBranch() throws Exception {
+        final Drain main = Mockito.mock(Drain.class);
+        Mockito.doReturn(IOUtils.toInputStream("text", CharEncoding.UTF_8))
+            .when(main).read();
+        MatcherAssert.assertThat(
+            IOUtils.toString(
+                new Forked(main, Mockito.mock(Drain.class)).read(),
+                CharEncoding.UTF_8
+            ),
+            Matchers.containsString("=unknown (not running in this JVM)")
+        );
+    }
+
+    /**
+     * Forked can ignore failures of a branch.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void ignoresFailuresOfBranch() throws Exception {
+        final Drain main = Mockito.mock(Drain.class);
+        final Drain broken = Mockito.mock(Drain.class);
+        final Drain healthy = Mockito.mock(Drain.class);
+        Mockito.doThrow(new IOException("broken branch"))
+            .when(broken).append(Mockito.any(Iterable.class));
+        final Forked forked = new Forked(main, broken, healthy);
+        forked.append(Arrays.asList("alpha"));
+        forked.append(Arrays.asList("beta"));
+        forked.close();
+        Mockito.verify(healthy, Mockito.times(2))
+            .append(Mockito.any(Iterable.class));
+        Mockito.verify(broken, Mockito.times(2))
+            .append(Mockito.any(Iterable.class));
+    }
+
+    /**
+     * Forked can write a notice about lost lines to the main drain.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void writesNoticeAboutLostLines() throws Exception {
+        final Drain main = Mockito.mock(Drain.class);
+        final Drain broken = Mockito.mock(Drain.class);
+        Mockito.doThrow(new IOException("lost"))
+            .when(broken).append(Mockito.any(Iterable.class));
+        final Forked forked = new Forked(main, broken);
+        forked.append(
+            Arrays.asList(
+                new Drain.Line.Simple(Tv.FIVE, Level.INFO, "hi").toString()
+            )
+        );
+        forked.close();
+        Mockito.verify(main).append(
+            Mockito.<Iterable<String>>argThat(
+                Matchers.<String>hasItems(Matchers.containsString("1 failed"))
+            )
+        );
+    }
+
+}
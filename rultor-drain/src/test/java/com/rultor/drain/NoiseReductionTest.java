@@ -31,6 +31,7 @@ package com.rultor.drain;
 
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Drain;
+import java.util.ArrayList;
 import java.util.Arrays;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.CharEncoding;
@@ -79,6 +80,74 @@ public final class NoiseReductionTest {
         );
     }
 
+    /**
+     * NoiseReduction can match any of many patterns.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void matchesAnyOfManyPatterns() throws Exception {
+        final Drain dirty = Mockito.mock(Drain.class);
+        final Drain clean = Mockito.mock(Drain.class);
+        final Drain drain = new NoiseReduction(
+            new Coordinates.Simple(),
+            Arrays.asList(".*BUILD FAILURE.*", "ERROR: [a-z]+"),
+            1,
+            dirty,
+            clean
+        );
+        drain.append(Arrays.asList("BUILD SUCCESS"));
+        Mockito.verify(clean, Mockito.never())
+            .append(Mockito.any(Iterable.class));
+        Mockito.doReturn(
+            IOUtils.toInputStream("BUILD SUCCESS\n", CharEncoding.UTF_8)
+        ).when(dirty).read();
+        drain.append(Arrays.asList("ERROR: broken"));
+        Mockito.verify(clean).append(
+            Mockito.argThat(Matchers.hasItems("BUILD SUCCESS"))
+        );
+        Mockito.verify(clean).append(
+            Mockito.argThat(Matchers.hasItems("ERROR: broken"))
+        );
+    }
+
+    /**
+     * NoiseReduction can forget the state of a closed pulse.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void forgetsStateOfClosedPulse() throws Exception {
+        final Drain dirty = Mockito.mock(Drain.class);
+        final Drain clean = Mockito.mock(Drain.class);
+        final NoiseReduction drain = new NoiseReduction(
+            new Coordinates.Simple(), "good", 1, dirty, clean
+        );
+        drain.append(Arrays.asList("good"));
+        drain.close();
+        drain.append(Arrays.asList("bad"));
+        Mockito.verify(dirty).append(
+            Mockito.argThat(Matchers.hasItems("bad"))
+        );
+        Mockito.verify(clean, Mockito.times(1))
+            .append(Mockito.any(Iterable.class));
+    }
+
+    /**
+     * NoiseReduction can reject an empty list of patterns.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyListOfPatterns() throws Exception {
+        new NoiseReduction(
+            new Coordinates.Simple(),
+            new ArrayList<String>(0),
+            1,
+            Mockito.mock(Drain.class),
+            Mockito.mock(Drain.class)
+        );
+    }
+
     /**
      * NoiseReduction can be converted to string.
      * @throws Exception If some problem inside
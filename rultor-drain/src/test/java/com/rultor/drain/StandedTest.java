@@ -42,6 +42,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.lang3.StringUtils;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
 import org.junit.Test;
@@ -57,6 +60,12 @@ import org.xembly.Directives;
  */
 public final class StandedTest {
 
+    /**
+     * Length of text in xembly that can't be sent together with another
+     * one in the same message.
+     */
+    private static final int LONG = 15000;
+
     /**
      * Send of a single message.
      * @throws IOException In case of error
@@ -64,7 +73,7 @@ public final class StandedTest {
     @Test
     public void appendingSingleMessage() throws IOException {
         final TestClient client = this.client();
-        this.standed(client).append(this.xemblies(1));
+        this.standed(client).append(this.xemblies(1, 1));
         Mockito.verify(client).post(
             Mockito.anyString(),
             Mockito.argThat(
@@ -78,6 +87,28 @@ public final class StandedTest {
         );
     }
 
+    /**
+     * Standed can coalesce directives of one pulse into one message.
+     * @throws IOException In case of error
+     */
+    @Test
+    public void coalescesDirectivesIntoOneMessage() throws IOException {
+        final TestClient client = this.client();
+        // @checkstyle MagicNumberCheck (1 lines)
+        this.standed(client).append(this.xemblies(10, 1));
+        Mockito.verify(client, Mockito.times(1))
+            .post(Mockito.anyString(), Mockito.anyObject());
+        Mockito.verify(client).post(
+            Mockito.anyString(),
+            Mockito.argThat(
+                Matchers.allOf(
+                    this.matcher(1),
+                    Matchers.not(this.matcher(2))
+                )
+            )
+        );
+    }
+
     /**
      * Send of max batch size of message.
      * @throws IOException In case of error
@@ -86,7 +117,7 @@ public final class StandedTest {
     public void batchOfMessages() throws IOException {
         final TestClient client = this.client();
         // @checkstyle MagicNumberCheck (1 lines)
-        this.standed(client).append(this.xemblies(10));
+        this.standed(client).append(this.xemblies(10, StandedTest.LONG));
         Mockito.verify(client, Mockito.times(1))
             .post(Mockito.anyString(), Mockito.anyObject());
         Mockito.verify(client).post(
@@ -109,7 +140,7 @@ public final class StandedTest {
     public void twoBatchesOfMessages() throws IOException {
         final TestClient client = this.client();
         // @checkstyle MagicNumberCheck (1 lines)
-        this.standed(client).append(this.xemblies(11));
+        this.standed(client).append(this.xemblies(11, StandedTest.LONG));
         Mockito.verify(client, Mockito.times(2))
             .post(Mockito.anyString(), Mockito.anyObject());
         Mockito.verify(client).post(
@@ -144,7 +175,33 @@ public final class StandedTest {
         final TestClient client = Mockito.mock(TestClient.class);
         Mockito.doThrow(new IllegalStateException("failure!")).when(client)
             .header(Mockito.anyString(), Mockito.anyString());
-        this.standed(client).append(this.xemblies(1));
+        this.standed(client).append(this.xemblies(1, 1));
+    }
+
+    /**
+     * Standed can wait for batches in flight when closed.
+     * @throws Exception In case of error
+     */
+    @Test
+    public void sendsEverythingBeforeClose() throws Exception {
+        final TestClient client = this.client();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Standed standed = new Standed(
+                new Coordinates.Simple(new URN(), "closed-rule", new Time()),
+                "stand", "secret",
+                Mockito.mock(Drain.class),
+                client,
+                executor
+            );
+            // @checkstyle MagicNumberCheck (1 lines)
+            standed.append(this.xemblies(15, StandedTest.LONG));
+            standed.close();
+            Mockito.verify(client, Mockito.times(2))
+                .post(Mockito.anyString(), Mockito.anyObject());
+        } finally {
+            executor.shutdown();
+        }
     }
 
     /**
@@ -213,21 +270,25 @@ public final class StandedTest {
     /**
      * Create a list of xemblies.
      * @param count Number of xemblies to create
+     * @param length Length of text in each of them
      * @return Iterable with xemblies created
      */
-    private Iterable<String> xemblies(final int count) {
+    private Iterable<String> xemblies(final int count, final int length) {
         final Collection<String> xemblies = new ArrayList<String>(0);
         for (int idx = 0; idx < count; ++idx) {
-            xemblies.add(this.xembly());
+            xemblies.add(this.xembly(length));
         }
         return xemblies;
     }
 
     /**
      * Simple xembly.
+     * @param length Length of text in it
      * @return Xembly created.
      */
-    private String xembly() {
-        return new XemblyLine(new Directives().set("line")).toString();
+    private String xembly(final int length) {
+        return new XemblyLine(
+            new Directives().set(StringUtils.repeat('x', length))
+        ).toString();
     }
 }
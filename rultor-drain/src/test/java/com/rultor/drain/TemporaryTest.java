@@ -29,9 +29,11 @@
  */
 package com.rultor.drain;
 
+import com.jcabi.aspects.Tv;
 import com.jcabi.urn.URN;
 import com.rultor.spi.Coordinates;
 import com.rultor.tools.Time;
+import java.io.File;
 import java.util.Arrays;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.CharEncoding;
@@ -80,4 +82,74 @@ public final class TemporaryTest {
         );
     }
 
+    /**
+     * Temporary can list pulses of its own rule only.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void listsPulsesOfItsRule() throws Exception {
+        final URN owner = new URN("urn:facebook:9090");
+        final Time first = new Time(Tv.THOUSAND);
+        final Time second = new Time(Tv.MILLION);
+        new Temporary(new Coordinates.Simple(owner, "rule-a", first))
+            .append(Arrays.asList("first"));
+        new Temporary(new Coordinates.Simple(owner, "rule-a", second))
+            .append(Arrays.asList("second"));
+        new Temporary(new Coordinates.Simple(owner, "rule-b", new Time()))
+            .append(Arrays.asList("other"));
+        MatcherAssert.assertThat(
+            new Temporary(new Coordinates.Simple(owner, "rule-a")).pulses(),
+            Matchers.contains(second, first)
+        );
+    }
+
+    /**
+     * Temporary can delete the oldest buffers when the limit is reached.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void deletesOldestBuffersFirst() throws Exception {
+        final URN owner = new URN("urn:facebook:7676");
+        final Time time = new Time();
+        new Temporary(new Coordinates.Simple(owner, "empty", time), "x", 1L)
+            .append(Arrays.asList("y"));
+        final String[] rules = {"oldest", "older", "newest"};
+        for (String rule : rules) {
+            new Temporary(
+                new Coordinates.Simple(owner, rule, time), "x", Tv.TEN
+            ).append(Arrays.asList("1234"));
+        }
+        MatcherAssert.assertThat(
+            new Temporary(new Coordinates.Simple(owner, "oldest"), "x")
+                .pulses(),
+            Matchers.emptyIterable()
+        );
+        MatcherAssert.assertThat(
+            new Temporary(new Coordinates.Simple(owner, "older"), "x")
+                .pulses(),
+            Matchers.contains(time)
+        );
+        MatcherAssert.assertThat(
+            new Temporary(new Coordinates.Simple(owner, "newest"), "x")
+                .pulses(),
+            Matchers.contains(time)
+        );
+    }
+
+    /**
+     * Temporary can keep files in its own directory.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void keepsFilesInOwnDirectory() throws Exception {
+        final File dir = new File(
+            System.getProperty("java.io.tmpdir"), "rultor-temporary"
+        );
+        new Temporary(new Coordinates.Simple(), "dir")
+            .append(Arrays.asList("some text"));
+        MatcherAssert.assertThat(
+            dir.list(), Matchers.not(Matchers.emptyArray())
+        );
+    }
+
 }
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.drain.local;
+
+import com.google.common.io.Files;
+import com.jcabi.aspects.Tv;
+import com.jcabi.urn.URN;
+import com.rultor.spi.Coordinates;
+import com.rultor.spi.Drain;
+import com.rultor.tools.Time;
+import java.io.File;
+import java.util.Arrays;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.StringUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link DirectoryDrain}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class DirectoryDrainTest {
+
+    /**
+     * DirectoryDrain can save and return data.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void savesAndReturnsData() throws Exception {
+        final File dir = Files.createTempDir();
+        final Coordinates work = new Coordinates.Simple(
+            new URN("urn:facebook:7"), "local-rule", new Time()
+        );
+        final String line = "some \t\u20ac\tfdsfs9980 Hello878";
+        new DirectoryDrain(work, dir.getPath(), true)
+            .append(Arrays.asList(line, "second"));
+        MatcherAssert.assertThat(
+            IOUtils.toString(
+                new DirectoryDrain(work, dir.getPath()).read(),
+                CharEncoding.UTF_8
+            ),
+            Matchers.containsString(String.format("%s\nsecond\n", line))
+        );
+    }
+
+    /**
+     * DirectoryDrain can split data into segments and read them in order.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsSegmentsInOrder() throws Exception {
+        final File dir = Files.createTempDir();
+        final Drain drain = new DirectoryDrain(
+            new Coordinates.Simple(new URN("urn:facebook:8"), "big-rule"),
+            dir.getPath()
+        );
+        final String line = StringUtils.repeat('x', Tv.THOUSAND);
+        final int total = Tv.THOUSAND * 2;
+        for (int idx = 0; idx < total; ++idx) {
+            drain.append(Arrays.asList(String.format("%d %s", idx, line)));
+        }
+        final String[] lines = IOUtils.toString(
+            drain.read(), CharEncoding.UTF_8
+        ).split("\n");
+        MatcherAssert.assertThat(lines.length, Matchers.equalTo(total + 1));
+        for (int idx = 0; idx < total; ++idx) {
+            MatcherAssert.assertThat(
+                lines[idx + 1],
+                Matchers.startsWith(String.format("%d ", idx))
+            );
+        }
+    }
+
+    /**
+     * DirectoryDrain can list pulses of its rule.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void listsPulsesOfItsRule() throws Exception {
+        final File dir = Files.createTempDir();
+        final URN owner = new URN("urn:github:99");
+        final Time first = new Time(Tv.THOUSAND);
+        final Time second = new Time(Tv.MILLION);
+        for (Time time : Arrays.asList(first, second, second)) {
+            new DirectoryDrain(
+                new Coordinates.Simple(owner, "listed", time), dir.getPath()
+            ).append(Arrays.asList("hello"));
+        }
+        new DirectoryDrain(
+            new Coordinates.Simple(owner, "another", new Time()),
+            dir.getPath()
+        ).append(Arrays.asList("bye"));
+        MatcherAssert.assertThat(
+            new DirectoryDrain(
+                new Coordinates.Simple(owner, "listed"), dir.getPath()
+            ).pulses(),
+            Matchers.contains(second, first)
+        );
+    }
+
+    /**
+     * DirectoryDrain can read ranges and tails across segments.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsRangesAndTails() throws Exception {
+        final DirectoryDrain drain = new DirectoryDrain(
+            new Coordinates.Simple(new URN("urn:facebook:10"), "ranged"),
+            Files.createTempDir().getPath()
+        );
+        final String line = StringUtils.repeat('y', Tv.THOUSAND);
+        final int total = Tv.THOUSAND * 2;
+        for (int idx = 0; idx < total; ++idx) {
+            drain.append(Arrays.asList(String.format("%04d%s", idx, line)));
+        }
+        final long width = line.length() + Tv.FIVE;
+        MatcherAssert.assertThat(drain.size(), Matchers.equalTo(width * total));
+        MatcherAssert.assertThat(
+            IOUtils.toString(
+                drain.read(width * Tv.THOUSAND - 2, Tv.SIX),
+                CharEncoding.UTF_8
+            ),
+            Matchers.equalTo("y\n1000")
+        );
+        MatcherAssert.assertThat(
+            IOUtils.toString(drain.tail(2), CharEncoding.UTF_8),
+            Matchers.equalTo(
+                String.format("1998%s\n1999%1$s\n", line)
+            )
+        );
+    }
+
+}
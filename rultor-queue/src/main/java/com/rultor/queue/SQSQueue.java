@@ -95,6 +95,11 @@ public final class SQSQueue implements Queue {
      */
     private static final String KEY_SCHEDULED = "scheduled";
 
+    /**
+     * JSON key, present only in works triggered outside of the quartz.
+     */
+    private static final String KEY_TRIGGERED = "triggered";
+
     /**
      * SQS client.
      */
@@ -214,9 +219,11 @@ public final class SQSQueue implements Queue {
         generator.writeStartObject()
             .write(SQSQueue.KEY_OWNER, work.owner().toString())
             .write(SQSQueue.KEY_SCHEDULED, work.scheduled().toString())
-            .write(SQSQueue.KEY_RULE, work.rule())
-            .writeEnd()
-            .close();
+            .write(SQSQueue.KEY_RULE, work.rule());
+        if (work instanceof Coordinates.Triggered) {
+            generator.write(SQSQueue.KEY_TRIGGERED, true);
+        }
+        generator.writeEnd().close();
         return writer.toString();
     }
 
@@ -230,11 +237,16 @@ public final class SQSQueue implements Queue {
     private static Coordinates unserialize(final String text)
         throws NormJson.JsonException {
         final JsonObject object = SQSQueue.NORM.readObject(text);
-        return new Coordinates.Simple(
-            URN.create(object.getString(SQSQueue.KEY_OWNER)),
-            object.getString(SQSQueue.KEY_RULE),
-            new Time(object.getString(SQSQueue.KEY_SCHEDULED))
-        );
+        final URN owner = URN.create(object.getString(SQSQueue.KEY_OWNER));
+        final String rule = object.getString(SQSQueue.KEY_RULE);
+        final Time time = new Time(object.getString(SQSQueue.KEY_SCHEDULED));
+        final Coordinates work;
+        if (object.getBoolean(SQSQueue.KEY_TRIGGERED, false)) {
+            work = new Coordinates.Triggered(owner, rule, time);
+        } else {
+            work = new Coordinates.Simple(owner, rule, time);
+        }
+        return work;
     }
 
 }
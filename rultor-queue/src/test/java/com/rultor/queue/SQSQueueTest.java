@@ -46,6 +46,7 @@ import java.util.concurrent.TimeUnit;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 /**
@@ -121,6 +122,48 @@ public final class SQSQueueTest {
             work.scheduled().toString(),
             Matchers.equalTo(new Time(Tv.MILLION).toString())
         );
+        MatcherAssert.assertThat(
+            work, Matchers.not(Matchers.instanceOf(Coordinates.Triggered.class))
+        );
+    }
+
+    /**
+     * SQSQueue can keep a triggered work triggered.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void keepsTriggeredWork() throws Exception {
+        final SQSClient client = Mockito.mock(SQSClient.class);
+        final AmazonSQS aws = Mockito.mock(AmazonSQS.class);
+        Mockito.doReturn(aws).when(client).get();
+        Mockito.doReturn(
+            new SendMessageResult().withMessageId("test-2")
+        ).when(aws).sendMessage(Mockito.any(SendMessageRequest.class));
+        Mockito.doReturn(new GetQueueAttributesResult())
+            .when(aws)
+            .getQueueAttributes(Mockito.any(GetQueueAttributesRequest.class));
+        final SQSQueue queue = new SQSQueue(client);
+        queue.push(
+            new Coordinates.Triggered(
+                new URN("urn:facebook:7"), "pushed", new Time(Tv.MILLION)
+            )
+        );
+        final ArgumentCaptor<SendMessageRequest> sent =
+            ArgumentCaptor.forClass(SendMessageRequest.class);
+        Mockito.verify(aws).sendMessage(sent.capture());
+        MatcherAssert.assertThat(
+            sent.getValue().getMessageBody(),
+            Matchers.containsString("\"triggered\":true")
+        );
+        Mockito.doReturn(
+            new ReceiveMessageResult().withMessages(
+                new Message().withBody(sent.getValue().getMessageBody())
+            )
+        ).when(aws).receiveMessage(Mockito.any(ReceiveMessageRequest.class));
+        MatcherAssert.assertThat(
+            queue.pull(1, TimeUnit.SECONDS),
+            Matchers.instanceOf(Coordinates.Triggered.class)
+        );
     }
 
 }
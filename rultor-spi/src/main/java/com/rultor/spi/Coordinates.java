@@ -34,6 +34,7 @@ import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
 import com.jcabi.urn.URN;
 import com.rultor.tools.Time;
+import java.util.concurrent.TimeUnit;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import lombok.EqualsAndHashCode;
@@ -230,4 +231,96 @@ public interface Coordinates extends Comparable<Coordinates> {
         }
     }
 
+    /**
+     * Work triggered outside of the quartz (by a push hook, for example).
+     *
+     * <p>A triggered work is recognized by its type, for example by
+     * {@code com.rultor.base.Crontab}, which lets it through regardless
+     * of the schedule if the rule asks for it. Queues that keep works
+     * in text form have to keep this type too.
+     *
+     * <p>Quartz schedules works exactly at the beginning of a minute,
+     * while a triggered work is always scheduled at a non-zero second
+     * (and without milliseconds, since works travel through queues
+     * with a precision of one second), in order to never collide with
+     * a work published by the quartz in the same minute.
+     */
+    @Immutable
+    @EqualsAndHashCode(of = "origin")
+    @Loggable(Loggable.DEBUG)
+    final class Triggered implements Coordinates {
+        /**
+         * Work itself.
+         */
+        private final transient Coordinates.Simple origin;
+        /**
+         * Public ctor.
+         * @param owner Owner
+         * @param name Name of the rule
+         */
+        public Triggered(final URN owner, final String name) {
+            this(owner, name, new Time());
+        }
+        /**
+         * Public ctor.
+         * @param owner Owner
+         * @param name Name of the rule
+         * @param when When it was triggered
+         */
+        public Triggered(final URN owner, final String name,
+            @NotNull(message = "time can't be NULL") final Time when) {
+            this.origin = new Coordinates.Simple(
+                owner, name, Coordinates.Triggered.shift(when)
+            );
+        }
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return this.origin.toString();
+        }
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Time scheduled() {
+            return this.origin.scheduled();
+        }
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public URN owner() {
+            return this.origin.owner();
+        }
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String rule() {
+            return this.origin.rule();
+        }
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(final Coordinates coords) {
+            return this.origin.compareTo(coords);
+        }
+        /**
+         * Move time off the minute boundary, to the next full second.
+         * @param time Original time
+         * @return Time with a non-zero second and without milliseconds
+         */
+        private static Time shift(final Time time) {
+            final long sec = TimeUnit.SECONDS.toMillis(1);
+            long millis = time.millis() / sec * sec;
+            if (millis % TimeUnit.MINUTES.toMillis(1) == 0) {
+                millis += sec;
+            }
+            return new Time(millis);
+        }
+    }
+
 }
@@ -77,6 +77,42 @@ public interface Drain {
     @NotNull(message = "InputStream is never NULL")
     InputStream read() throws IOException;
 
+    /**
+     * Drain that can read a part of its content without reading all of it.
+     *
+     * <p>Offsets and lines are counted in the content of the drain,
+     * without headers that {@link Drain#read()} adds to it, since they
+     * may change between reads.
+     *
+     * @see com.rultor.tools.Ranges
+     */
+    @Immutable
+    interface Ranged extends Drain {
+        /**
+         * Total number of bytes in the content.
+         * @return Number of bytes
+         * @throws IOException If some IO problem inside
+         */
+        long size() throws IOException;
+        /**
+         * Read a range of bytes.
+         * @param offset Position of the first byte to read
+         * @param length Maximum number of bytes to read
+         * @return The input stream with data
+         * @throws IOException If some IO problem inside
+         */
+        @NotNull(message = "InputStream is never NULL")
+        InputStream read(long offset, long length) throws IOException;
+        /**
+         * Read the last lines.
+         * @param lines How many lines to read
+         * @return The input stream with data
+         * @throws IOException If some IO problem inside
+         */
+        @NotNull(message = "InputStream is never NULL")
+        InputStream tail(int lines) throws IOException;
+    }
+
     /**
      * One line in the drain.
      */
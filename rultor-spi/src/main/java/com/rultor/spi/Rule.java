@@ -73,6 +73,28 @@ public interface Rule {
     @NotNull(message = "spec of drain is never NULL")
     Spec drain();
 
+    /**
+     * Get schedule, a crontab text extracted from the spec when it
+     * was saved (for example {@code "*&#47;5 * * * *"}), or an empty
+     * string if the rule has to be pulsed every minute.
+     * @return Crontab text or empty string
+     */
+    @NotNull(message = "schedule is never NULL")
+    String schedule();
+
+    /**
+     * Save how many pulses in a row did nothing but polling.
+     * @param pulses Total number of idle pulses in a row
+     */
+    void idle(int pulses);
+
+    /**
+     * How many pulses in a row did nothing but polling (zero if the
+     * last pulse did some real work).
+     * @return Total number of idle pulses in a row
+     */
+    int idle();
+
     /**
      * Mark it as failed.
      * @param desc Description of a failure
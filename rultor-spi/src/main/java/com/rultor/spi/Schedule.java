@@ -0,0 +1,413 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.spi;
+
+import com.google.common.collect.ImmutableMap;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Tv;
+import com.rultor.tools.Time;
+import java.util.Calendar;
+import java.util.TimeZone;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Schedule of a rule, a crontab expression compiled into bit masks,
+ * where bit N is set when value N is allowed.
+ *
+ * <p>Every field may contain a comma-separated list of numbers, intervals
+ * ({@code 3-7}), intervals with a step ({@code 0-30/10}), modulo
+ * expressions ({@code *&#47;15}, matching numbers divisible by 15)
+ * and asterisks. Days of week are numbered from 0 (Sunday) to 6
+ * (Saturday), 7 is Sunday too. All five fields have to match. Numbers
+ * outside of the range of a field never match. Time is in UTC.
+ *
+ * <p>It is used by quartz, to skip rules that are not due (see
+ * {@link Rule#schedule()}), and by {@code com.rultor.base.Crontab}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @see <a href="https://en.wikipedia.org/wiki/Cron">Cron in Wikipedia</a>
+ */
+@Immutable
+@EqualsAndHashCode(of = { "minutes", "hours", "days", "months", "weekdays" })
+@SuppressWarnings({ "PMD.TooManyMethods", "PMD.CyclomaticComplexity" })
+public final class Schedule {
+
+    /**
+     * Pre-defined definitions.
+     * @see <a href="https://en.wikipedia.org/wiki/Cron#Predefined_scheduling_definitions">explanation</a>
+     */
+    private static final ImmutableMap<String, String> DEFS =
+        new ImmutableMap.Builder<String, String>()
+            // @checkstyle MultipleStringLiterals (1 line)
+            .put("@yearly", "0 0 1 1 *")
+            .put("@annually", "0 0 1 1 *")
+            .put("@monthly", "0 0 1 * *")
+            .put("@weekly", "0 0 * * 0")
+            .put("@daily", "0 0 * * *")
+            .put("@hourly", "0 * * * *")
+            .build();
+
+    /**
+     * How many years to look ahead for the next execution (the Gregorian
+     * calendar repeats itself every 400 years).
+     */
+    private static final int HORIZON = 400;
+
+    /**
+     * Maximum minute.
+     */
+    private static final int MAX_MINUTE = 59;
+
+    /**
+     * Maximum hour.
+     */
+    private static final int MAX_HOUR = 23;
+
+    /**
+     * Maximum day of month.
+     */
+    private static final int MAX_DAY = 31;
+
+    /**
+     * Maximum month.
+     */
+    private static final int MAX_MONTH = 12;
+
+    /**
+     * Maximum day of week (Sunday, same as zero).
+     */
+    private static final int MAX_WEEKDAY = 7;
+
+    /**
+     * Normalized text.
+     */
+    private final transient String text;
+
+    /**
+     * Minutes, 0-59.
+     */
+    private final transient long minutes;
+
+    /**
+     * Hours, 0-23.
+     */
+    private final transient long hours;
+
+    /**
+     * Days of month, 1-31.
+     */
+    private final transient long days;
+
+    /**
+     * Months, 1-12.
+     */
+    private final transient long months;
+
+    /**
+     * Days of week, 0-6, Sunday is zero.
+     */
+    private final transient long weekdays;
+
+    /**
+     * Public ctor.
+     * @param src Crontab text, like {@code "*&#47;5 * * * *"} or
+     *  {@code "@daily"}
+     */
+    public Schedule(
+        @NotNull(message = "crontab text can't be NULL") final String src) {
+        String txt = src.trim();
+        if (Schedule.DEFS.containsKey(txt)) {
+            txt = Schedule.DEFS.get(txt);
+        }
+        final String[] parts = txt.split("\\s+");
+        if (parts.length != Tv.FIVE) {
+            throw new IllegalArgumentException(
+                String.format("invalid crontab definition `%s`", src)
+            );
+        }
+        this.text = StringUtils.join(parts, " ").replace(',', '|');
+        this.minutes = Schedule.bits(parts[0], 0, Schedule.MAX_MINUTE);
+        this.hours = Schedule.bits(parts[1], 0, Schedule.MAX_HOUR);
+        this.days = Schedule.bits(parts[2], 1, Schedule.MAX_DAY);
+        this.months = Schedule.bits(
+            parts[Tv.THREE], 1, Schedule.MAX_MONTH
+        );
+        final long week = Schedule.bits(
+            parts[Tv.FOUR], 0, Schedule.MAX_WEEKDAY
+        );
+        this.weekdays = (week | week >>> Schedule.MAX_WEEKDAY)
+            & ((1L << Schedule.MAX_WEEKDAY) - 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return this.text;
+    }
+
+    /**
+     * Does it allow execution at the given moment (seconds are ignored)?
+     * @param date The moment
+     * @return TRUE if it matches
+     */
+    public boolean matches(
+        @NotNull(message = "date can't be NULL") final Time date) {
+        return this.matches(Schedule.calendar(date));
+    }
+
+    /**
+     * Find the next moment when execution is allowed, not earlier than
+     * the given one (seconds are ignored).
+     * @param date The moment to start from
+     * @return The moment or NULL if never
+     */
+    public Time next(@NotNull(message = "date can't be NULL") final Time date) {
+        final Calendar next = this.next(Schedule.calendar(date));
+        Time time = null;
+        if (next != null) {
+            time = new Time(next.getTime());
+        }
+        return time;
+    }
+
+    /**
+     * Matches this moment?
+     * @param cal Calendar
+     * @return TRUE if it matches
+     */
+    private boolean matches(final Calendar cal) {
+        return this.day(cal)
+            && Schedule.has(
+                this.hours, cal.get(Calendar.HOUR_OF_DAY)
+            )
+            && Schedule.has(
+                this.minutes, cal.get(Calendar.MINUTE)
+            );
+    }
+
+    /**
+     * Find the next matching moment, not earlier than the given one.
+     * @param start Calendar to start from (not modified)
+     * @return Calendar or NULL if never
+     */
+    private Calendar next(final Calendar start) {
+        final Calendar cal = Calendar.class.cast(start.clone());
+        final int last = cal.get(Calendar.YEAR) + Schedule.HORIZON;
+        Calendar next = null;
+        while (cal.get(Calendar.YEAR) <= last) {
+            if (!this.month(cal)) {
+                Schedule.midnight(cal);
+                cal.set(Calendar.DAY_OF_MONTH, 1);
+                cal.add(Calendar.MONTH, 1);
+                continue;
+            }
+            if (!this.day(cal)) {
+                Schedule.midnight(cal);
+                cal.add(Calendar.DAY_OF_MONTH, 1);
+                continue;
+            }
+            final int hour = Schedule.after(
+                this.hours, cal.get(Calendar.HOUR_OF_DAY)
+            );
+            if (hour < 0) {
+                Schedule.midnight(cal);
+                cal.add(Calendar.DAY_OF_MONTH, 1);
+                continue;
+            }
+            if (hour != cal.get(Calendar.HOUR_OF_DAY)) {
+                cal.set(Calendar.HOUR_OF_DAY, hour);
+                cal.set(Calendar.MINUTE, 0);
+            }
+            final int minute = Schedule.after(
+                this.minutes, cal.get(Calendar.MINUTE)
+            );
+            if (minute < 0) {
+                cal.set(Calendar.MINUTE, 0);
+                cal.add(Calendar.HOUR_OF_DAY, 1);
+                continue;
+            }
+            cal.set(Calendar.MINUTE, minute);
+            next = cal;
+            break;
+        }
+        return next;
+    }
+
+    /**
+     * Convert date to calendar, in UTC, without seconds.
+     * @param date The date
+     * @return Calendar
+     */
+    private static Calendar calendar(final Time date) {
+        final Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.setTime(date.date());
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.set(Calendar.SECOND, 0);
+        return cal;
+    }
+
+    /**
+     * Does the day (month, day of month and day of week) match?
+     * @param cal Calendar
+     * @return TRUE if it matches
+     */
+    private boolean day(final Calendar cal) {
+        return this.month(cal)
+            && Schedule.has(
+                this.days, cal.get(Calendar.DAY_OF_MONTH)
+            )
+            && Schedule.has(
+                this.weekdays, cal.get(Calendar.DAY_OF_WEEK) - 1
+            );
+    }
+
+    /**
+     * Does the month match?
+     * @param cal Calendar
+     * @return TRUE if it matches
+     */
+    private boolean month(final Calendar cal) {
+        return Schedule.has(
+            this.months, cal.get(Calendar.MONTH) + 1
+        );
+    }
+
+    /**
+     * Bit is set?
+     * @param mask Bit mask
+     * @param num Number of bit
+     * @return TRUE if set
+     */
+    private static boolean has(final long mask, final int num) {
+        return (mask & (1L << num)) != 0;
+    }
+
+    /**
+     * First set bit, not lower than the given one.
+     * @param mask Bit mask
+     * @param num Number of bit to start from
+     * @return Number of bit or -1 if there are no such bits
+     */
+    private static int after(final long mask, final int num) {
+        final long rest = mask & (-1L << num);
+        int bit = -1;
+        if (rest != 0) {
+            bit = Long.numberOfTrailingZeros(rest);
+        }
+        return bit;
+    }
+
+    /**
+     * Move calendar to the beginning of its day.
+     * @param cal Calendar
+     */
+    private static void midnight(final Calendar cal) {
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+    }
+
+    /**
+     * Compile one field into a bit mask.
+     * @param field Text of the field
+     * @param min Minimum allowed value
+     * @param max Maximum allowed value
+     * @return Bit mask
+     */
+    private static long bits(final String field, final int min,
+        final int max) {
+        long bits = 0;
+        for (String part : field.split(",")) {
+            bits |= Schedule.sector(part, min, max);
+        }
+        return bits;
+    }
+
+    /**
+     * Compile one comma-separated sector into a bit mask.
+     * @param part Text of the sector
+     * @param min Minimum allowed value
+     * @param max Maximum allowed value
+     * @return Bit mask
+     * @checkstyle CyclomaticComplexity (50 lines)
+     */
+    private static long sector(final String part, final int min,
+        final int max) {
+        int left = min;
+        int right = max;
+        int step = 1;
+        boolean modulo = false;
+        String range = part;
+        if (part.matches("[^/]+/\\d+")) {
+            range = part.substring(0, part.indexOf('/'));
+            step = Integer.parseInt(part.substring(part.indexOf('/') + 1));
+            Validate.isTrue(
+                step > 0, "divisor %d has to be positive and non-zero",
+                step
+            );
+            modulo = "*".equals(range);
+        }
+        if (range.matches("\\d+")) {
+            left = Integer.parseInt(range);
+            right = left;
+            if (step > 1) {
+                right = max;
+            }
+        } else if (range.matches("\\d+-\\d+")) {
+            final String[] numbers = range.split("-");
+            left = Integer.parseInt(numbers[0]);
+            right = Integer.parseInt(numbers[1]);
+            Validate.isTrue(
+                left <= right, "left value %d should be less than right %d",
+                left, right
+            );
+        } else if (!"*".equals(range)) {
+            throw new IllegalArgumentException(
+                String.format("invalid crontab sector `%s`", part)
+            );
+        }
+        long bits = 0;
+        for (int num = Math.max(left, min); num <= Math.min(right, max);
+            ++num) {
+            if ((modulo && num % step == 0)
+                || (!modulo && (num - left) % step == 0)) {
+                bits |= 1L << num;
+            }
+        }
+        return bits;
+    }
+
+}
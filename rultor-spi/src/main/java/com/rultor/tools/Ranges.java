@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.tools;
+
+import com.jcabi.aspects.Tv;
+import com.rultor.spi.Drain;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Ranged and tail reads of drains.
+ *
+ * <p>Drains that implement {@link Drain.Ranged} usually delegate to
+ * {@link #read(Ranges.Body,long,long)} and {@link #tail(Ranges.Body,int)},
+ * having a content that can be read by ranges. Any other drain can be
+ * read by {@link #read(Drain,long,long)} and {@link #tail(Drain,int)}
+ * too, but its entire stream is read (without keeping it in memory).
+ * Decorators that only add a header to the stream of their origin
+ * implement {@link Drain.Ranged} by delegating to these methods and
+ * {@link #size(Drain)}, passing their origin drain.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class Ranges {
+
+    /**
+     * Number of bytes read at once from the end of a body.
+     */
+    private static final int CHUNK = Tv.TEN * Tv.THOUSAND;
+
+    /**
+     * This is utility class.
+     */
+    private Ranges() {
+        // intentionally empty
+    }
+
+    /**
+     * Body of a drain, readable by ranges.
+     */
+    public interface Body {
+        /**
+         * Number of bytes in it.
+         * @return Number of bytes
+         * @throws IOException If some IO problem inside
+         */
+        long size() throws IOException;
+        /**
+         * Read a range of bytes, which is always inside the body.
+         * @param offset Position of the first byte
+         * @param length Number of bytes, more than zero
+         * @return Stream with these bytes
+         * @throws IOException If some IO problem inside
+         */
+        InputStream read(long offset, long length) throws IOException;
+    }
+
+    /**
+     * Total number of bytes of any drain.
+     *
+     * <p>If the drain is not {@link Drain.Ranged}, its entire stream is
+     * read, with headers, and counted.
+     *
+     * @param drain The drain
+     * @return Number of bytes
+     * @throws IOException If some IO problem inside
+     */
+    public static long size(final Drain drain) throws IOException {
+        final long size;
+        if (drain instanceof Drain.Ranged) {
+            size = Drain.Ranged.class.cast(drain).size();
+        } else {
+            final InputStream stream = drain.read();
+            try {
+                size = IOUtils.skip(stream, Long.MAX_VALUE);
+            } finally {
+                stream.close();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Read a range of bytes of any drain.
+     *
+     * <p>If the drain is not {@link Drain.Ranged}, its entire stream is
+     * read, with headers, and the range is counted in it.
+     *
+     * @param drain The drain
+     * @param offset Position of the first byte to read
+     * @param length Maximum number of bytes to read
+     * @return The stream
+     * @throws IOException If some IO problem inside
+     */
+    public static InputStream read(final Drain drain, final long offset,
+        final long length) throws IOException {
+        Ranges.validate(offset, length);
+        final InputStream stream;
+        if (drain instanceof Drain.Ranged) {
+            stream = Drain.Ranged.class.cast(drain).read(offset, length);
+        } else {
+            stream = drain.read();
+            IOUtils.skip(stream, offset);
+        }
+        return new BoundedInputStream(stream, length);
+    }
+
+    /**
+     * Read the last lines of any drain.
+     *
+     * <p>If the drain is not {@link Drain.Ranged}, its entire stream is
+     * read, keeping only the last lines in memory.
+     *
+     * @param drain The drain
+     * @param lines How many lines to read
+     * @return The stream
+     * @throws IOException If some IO problem inside
+     */
+    public static InputStream tail(final Drain drain, final int lines)
+        throws IOException {
+        Validate.isTrue(lines >= 0, "number of lines can't be negative");
+        final InputStream stream;
+        if (drain instanceof Drain.Ranged) {
+            stream = Drain.Ranged.class.cast(drain).tail(lines);
+        } else {
+            final Deque<String> tail = new ArrayDeque<String>(0);
+            final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(drain.read(), CharEncoding.UTF_8)
+            );
+            try {
+                while (true) {
+                    final String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    tail.addLast(line);
+                    if (tail.size() > lines) {
+                        tail.removeFirst();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            final StringBuilder text = new StringBuilder();
+            for (String line : tail) {
+                text.append(line).append('\n');
+            }
+            stream = IOUtils.toInputStream(text.toString(), CharEncoding.UTF_8);
+        }
+        return stream;
+    }
+
+    /**
+     * Read a range of bytes of a body.
+     * @param body The body
+     * @param offset Position of the first byte to read
+     * @param length Maximum number of bytes to read
+     * @return The stream
+     * @throws IOException If some IO problem inside
+     */
+    public static InputStream read(final Ranges.Body body, final long offset,
+        final long length) throws IOException {
+        Ranges.validate(offset, length);
+        InputStream stream = new ByteArrayInputStream(new byte[0]);
+        if (length > 0) {
+            final long size = body.size();
+            if (offset < size) {
+                stream = body.read(offset, Math.min(length, size - offset));
+            }
+        }
+        return stream;
+    }
+
+    /**
+     * Read the last lines of a body.
+     *
+     * <p>The body is read backwards, by chunks, until enough lines
+     * are found, and then streamed from the first of them.
+     *
+     * @param body The body
+     * @param lines How many lines to read
+     * @return The stream
+     * @throws IOException If some IO problem inside
+     */
+    public static InputStream tail(final Ranges.Body body, final int lines)
+        throws IOException {
+        Validate.isTrue(lines >= 0, "number of lines can't be negative");
+        final long size = body.size();
+        long start = size;
+        long pos = 0;
+        int found = 0;
+        while (start > 0 && found < lines) {
+            final long from = Math.max(0, start - Ranges.CHUNK);
+            final byte[] chunk = IOUtils.toByteArray(
+                body.read(from, start - from)
+            );
+            for (int idx = chunk.length - 1; idx >= 0; --idx) {
+                if (chunk[idx] == '\n' && from + idx < size - 1) {
+                    ++found;
+                    if (found == lines) {
+                        pos = from + idx + 1;
+                        break;
+                    }
+                }
+            }
+            start = from;
+        }
+        InputStream stream = new ByteArrayInputStream(new byte[0]);
+        if (lines > 0 && pos < size) {
+            stream = body.read(pos, size - pos);
+        }
+        return stream;
+    }
+
+    /**
+     * Validate a range.
+     * @param offset Position of the first byte to read
+     * @param length Maximum number of bytes to read
+     */
+    private static void validate(final long offset, final long length) {
+        Validate.isTrue(offset >= 0, "offset can't be negative: %d", offset);
+        Validate.isTrue(length >= 0, "length can't be negative: %d", length);
+    }
+
+}
@@ -57,4 +57,26 @@ public final class CoordinatesTest {
         );
     }
 
+    /**
+     * Coordinates.Triggered can move its time off the minute boundary.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void movesTriggeredWorkOffMinuteBoundary() throws Exception {
+        final Time minute = new Time("2013-08-16T12:45:00Z");
+        final Coordinates work = new Coordinates.Triggered(
+            new URN("urn:test:5"), "pushed-rule", new Time(minute.millis() + 2)
+        );
+        MatcherAssert.assertThat(
+            work.scheduled(),
+            Matchers.equalTo(new Time("2013-08-16T12:45:01Z"))
+        );
+        MatcherAssert.assertThat(
+            new Coordinates.Triggered(
+                work.owner(), work.rule(), work.scheduled()
+            ),
+            Matchers.equalTo(work)
+        );
+    }
+
 }
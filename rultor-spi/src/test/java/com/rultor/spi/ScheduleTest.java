@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.spi;
+
+import com.rultor.tools.Time;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Schedule}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class ScheduleTest {
+
+    /**
+     * Schedule can match moments.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void matchesMoments() throws Exception {
+        final Schedule schedule = new Schedule("*/15 10 * * *");
+        MatcherAssert.assertThat(
+            schedule.matches(new Time("2013-05-04T10:45:30Z")),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            schedule.matches(new Time("2013-05-04T10:46:00Z")),
+            Matchers.is(false)
+        );
+        MatcherAssert.assertThat(
+            new Schedule("@weekly").matches(new Time("2013-09-01T00:00:00Z")),
+            Matchers.is(true)
+        );
+    }
+
+    /**
+     * Schedule can find the next moment.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void findsNextMoment() throws Exception {
+        MatcherAssert.assertThat(
+            new Schedule("30 2 * * 1").next(new Time("2013-09-01T10:00:00Z")),
+            Matchers.equalTo(new Time("2013-09-02T02:30:00Z"))
+        );
+        MatcherAssert.assertThat(
+            new Schedule("0 0 31 2 *").next(new Time()),
+            Matchers.nullValue()
+        );
+    }
+
+    /**
+     * Schedule can reject broken text.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBrokenText() throws Exception {
+        new Schedule("* * *");
+    }
+
+}
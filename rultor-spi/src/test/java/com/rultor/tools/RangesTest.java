@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.tools;
+
+import com.jcabi.aspects.Tv;
+import com.rultor.spi.Drain;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link Ranges}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class RangesTest {
+
+    /**
+     * Ranges can read a range of a body.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsRangeOfBody() throws Exception {
+        final Ranges.Body body = RangesTest.body("first\nsecond\nthird\n");
+        MatcherAssert.assertThat(
+            IOUtils.toString(Ranges.read(body, 2, Tv.SIX), CharEncoding.UTF_8),
+            Matchers.equalTo("rst\nse")
+        );
+        MatcherAssert.assertThat(
+            IOUtils.toString(
+                Ranges.read(body, Tv.FIFTEEN, Tv.HUNDRED), CharEncoding.UTF_8
+            ),
+            Matchers.equalTo("ird\n")
+        );
+        MatcherAssert.assertThat(
+            IOUtils.toString(
+                Ranges.read(body, Tv.HUNDRED, 1), CharEncoding.UTF_8
+            ),
+            Matchers.isEmptyString()
+        );
+    }
+
+    /**
+     * Ranges can read last lines of a body, by chunks.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsTailOfBody() throws Exception {
+        final StringBuilder text = new StringBuilder();
+        for (int idx = 0; idx < Tv.THOUSAND * Tv.FIVE; ++idx) {
+            text.append("line #").append(idx).append('\n');
+        }
+        final Ranges.Body body = RangesTest.body(text.toString());
+        MatcherAssert.assertThat(
+            IOUtils.toString(Ranges.tail(body, 2), CharEncoding.UTF_8),
+            Matchers.equalTo("line #4998\nline #4999\n")
+        );
+        MatcherAssert.assertThat(
+            IOUtils.toString(
+                Ranges.tail(body, Tv.THOUSAND * Tv.FIVE), CharEncoding.UTF_8
+            ),
+            Matchers.equalTo(text.toString())
+        );
+        MatcherAssert.assertThat(
+            IOUtils.toString(Ranges.tail(body, 0), CharEncoding.UTF_8),
+            Matchers.isEmptyString()
+        );
+    }
+
+    /**
+     * Ranges can read last lines of any drain.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void readsTailOfAnyDrain() throws Exception {
+        final Drain drain = Mockito.mock(Drain.class);
+        Mockito.doReturn(
+            IOUtils.toInputStream("header\n\none\ntwo\nthree\n")
+        ).when(drain).read();
+        MatcherAssert.assertThat(
+            IOUtils.toString(Ranges.tail(drain, 2), CharEncoding.UTF_8),
+            Matchers.equalTo("two\nthree\n")
+        );
+    }
+
+    /**
+     * Ranges can count bytes of any drain.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void countsBytesOfAnyDrain() throws Exception {
+        final Drain drain = Mockito.mock(Drain.class);
+        Mockito.doReturn(IOUtils.toInputStream("header
+body
+"))
+            .when(drain).read();
+        MatcherAssert.assertThat(
+            Ranges.size(drain),
+            Matchers.equalTo(12L)
+        );
+    }
+
+    /**
+     * Make a body of text.
+     * @param text The text
+     * @return Body
+     * @throws Exception If some problem inside
+     */
+    private static Ranges.Body body(final String text) throws Exception {
+        final byte[] bytes = text.getBytes(CharEncoding.UTF_8);
+        return new Ranges.Body() {
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+            @Override
+            public InputStream read(final long offset, final long length) {
+                MatcherAssert.assertThat(
+                    offset + length, Matchers.lessThanOrEqualTo(this.size())
+                );
+                return new ByteArrayInputStream(
+                    bytes, (int) offset, (int) length
+                );
+            }
+        };
+    }
+
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.users;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Item;
+import com.jcabi.dynamo.QueryValve;
+import com.jcabi.dynamo.Region;
+import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseThreads;
+import com.jcabi.urn.URN;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Index of rule owners in Dynamo DB.
+ *
+ * <p>The index is a small table with one item per user that has at least
+ * one rule. It is maintained by {@link AwsRules} when rules are created
+ * or removed, and enumerated with a parallel segmented scan, which
+ * is much cheaper than reading every rule from {@link AwsRule#TABLE}.
+ * The index is filled in from the rules table once, when it doesn't have
+ * a marker item yet (for example, right after deployment to a region
+ * where it was never populated): owners are collected with a projection
+ * to the owner attribute only, and the marker is saved after them.
+ *
+ * <p>An owner is removed from the index when its last rule is removed.
+ * Since a new rule may be created at the same moment, rules are checked
+ * again after the removal, and the owner is registered back if needed.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = "region")
+@Loggable(Loggable.DEBUG)
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class AwsOwners implements Iterable<URN> {
+
+    /**
+     * Dynamo DB table name.
+     */
+    public static final String TABLE = "owners";
+
+    /**
+     * Dynamo DB table column.
+     */
+    public static final String HASH_URN = "urn";
+
+    /**
+     * Hash of the item that marks the index as filled in from rules.
+     */
+    private static final String MARKER = "urn:rultor:owners-index";
+
+    /**
+     * How many segments to scan in parallel.
+     */
+    private static final int SEGMENTS = Tv.EIGHT;
+
+    /**
+     * Threads that scan segments, shared by all indexes.
+     */
+    private static final ExecutorService SCANNERS =
+        Executors.newFixedThreadPool(
+            AwsOwners.SEGMENTS, new VerboseThreads(AwsOwners.class)
+        );
+
+    /**
+     * Dynamo.
+     */
+    private final transient Region region;
+
+    /**
+     * Public ctor.
+     * @param reg AWS region
+     */
+    protected AwsOwners(final Region reg) {
+        this.region = reg;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull(message = "list of owners is never NULL")
+    public Iterator<URN> iterator() {
+        final Collection<String> names = this.scan(
+            AwsOwners.TABLE, AwsOwners.HASH_URN
+        );
+        if (!names.remove(AwsOwners.MARKER)) {
+            final Collection<String> found =
+                this.scan(AwsRule.TABLE, AwsRule.HASH_OWNER);
+            for (String name : found) {
+                this.add(URN.create(name));
+            }
+            names.addAll(found);
+            this.region.table(AwsOwners.TABLE).put(
+                new Attributes().with(AwsOwners.HASH_URN, AwsOwners.MARKER)
+            );
+            Logger.info(
+                this, "index of owners filled in with %d user(s)",
+                found.size()
+            );
+        }
+        final Collection<URN> urns = new ArrayList<URN>(names.size());
+        for (String name : names) {
+            urns.add(URN.create(name));
+        }
+        return urns.iterator();
+    }
+
+    /**
+     * Register an owner of a rule (no effect if already registered).
+     * @param urn URN of the owner
+     */
+    public void add(@NotNull(message = "URN can't be NULL") final URN urn) {
+        this.region.table(AwsOwners.TABLE).put(
+            new Attributes().with(AwsOwners.HASH_URN, urn.toString())
+        );
+    }
+
+    /**
+     * Unregister an owner, if there are no rules of this owner any more.
+     * @param urn URN of the owner
+     */
+    public void remove(@NotNull(message = "URN can't be NULL") final URN urn) {
+        if (this.idle(urn)) {
+            final Iterator<Item> items = this.region.table(AwsOwners.TABLE)
+                .frame()
+                .where(AwsOwners.HASH_URN, urn.toString())
+                .through(new QueryValve())
+                .iterator();
+            if (items.hasNext()) {
+                items.next();
+                items.remove();
+            }
+            if (!this.idle(urn)) {
+                this.add(urn);
+            }
+        }
+    }
+
+    /**
+     * This owner has no rules?
+     * @param urn URN of the owner
+     * @return TRUE if there are no rules of this owner
+     */
+    private boolean idle(final URN urn) {
+        return this.region.table(AwsRule.TABLE)
+            .frame()
+            .where(AwsRule.HASH_OWNER, urn.toString())
+            .through(new QueryValve())
+            .isEmpty();
+    }
+
+    /**
+     * Scan the table in parallel segments and collect distinct values
+     * of the given attribute.
+     * @param table Name of the table
+     * @param attr Attribute to fetch
+     * @return Distinct values found
+     */
+    private Collection<String> scan(final String table, final String attr) {
+        final String name = this.region.table(table).name();
+        final AmazonDynamoDB aws = this.region.aws();
+        final Set<String> values = new ConcurrentSkipListSet<String>();
+        try {
+            final Collection<Future<?>> futures =
+                new ArrayList<Future<?>>(AwsOwners.SEGMENTS);
+            for (int seg = 0; seg < AwsOwners.SEGMENTS; ++seg) {
+                futures.add(
+                    AwsOwners.SCANNERS.submit(
+                        new AwsOwners.Segment(aws, name, attr, seg, values)
+                    )
+                );
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return values;
+    }
+
+    /**
+     * One segment of a parallel scan.
+     */
+    private static final class Segment implements Callable<Void> {
+        /**
+         * AWS client.
+         */
+        private final transient AmazonDynamoDB aws;
+        /**
+         * Full name of the table.
+         */
+        private final transient String table;
+        /**
+         * Attribute to fetch.
+         */
+        private final transient String attr;
+        /**
+         * Number of this segment.
+         */
+        private final transient int number;
+        /**
+         * Where to collect values.
+         */
+        private final transient Set<String> values;
+        /**
+         * Ctor.
+         * @param client AWS client
+         * @param tbl Full name of the table
+         * @param attribute Attribute to fetch
+         * @param num Number of segment
+         * @param found Where to collect values
+         * @checkstyle ParameterNumber (5 lines)
+         */
+        protected Segment(final AmazonDynamoDB client, final String tbl,
+            final String attribute, final int num, final Set<String> found) {
+            this.aws = client;
+            this.table = tbl;
+            this.attr = attribute;
+            this.number = num;
+            this.values = found;
+        }
+        @Override
+        @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+        public Void call() {
+            Map<String, AttributeValue> start = null;
+            do {
+                final ScanResult result = this.aws.scan(
+                    new ScanRequest()
+                        .withTableName(this.table)
+                        .withAttributesToGet(this.attr)
+                        .withSegment(this.number)
+                        .withTotalSegments(AwsOwners.SEGMENTS)
+                        .withExclusiveStartKey(start)
+                );
+                for (Map<String, AttributeValue> item : result.getItems()) {
+                    if (item.containsKey(this.attr)) {
+                        this.values.add(item.get(this.attr).getS());
+                    }
+                }
+                start = result.getLastEvaluatedKey();
+            } while (start != null && !start.isEmpty());
+            return null;
+        }
+    }
+
+}
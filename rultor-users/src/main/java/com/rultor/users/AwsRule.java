@@ -39,6 +39,8 @@ import com.rultor.spi.Coordinates;
 import com.rultor.spi.Rule;
 import com.rultor.spi.Spec;
 import com.rultor.spi.Wallet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.validation.constraints.NotNull;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -89,11 +91,35 @@ final class AwsRule implements Rule {
      */
     public static final String FIELD_FAILURE = "failure";
 
+    /**
+     * Dynamo DB table column.
+     */
+    public static final String FIELD_SCHEDULE = "schedule";
+
+    /**
+     * Dynamo DB table column.
+     */
+    public static final String FIELD_IDLE = "idle";
+
     /**
      * Dynamo DB table column.
      */
     private static final String NO_FAILURE = "-";
 
+    /**
+     * Value of schedule column when spec has no recognizable crontab.
+     */
+    private static final String NO_SCHEDULE = "-";
+
+    /**
+     * Top-level crontab in a spec.
+     */
+    private static final Pattern CRONTAB = Pattern.compile(
+        // @checkstyle LineLength (1 line)
+        "\\s*com\\.rultor\\.base\\.Crontab\\s*\\(\\s*\\$\\{[^}]+\\}\\s*,\\s*\"([^\"]+)\"\\s*,.*",
+        Pattern.DOTALL
+    );
+
     /**
      * Item.
      */
@@ -126,6 +152,8 @@ final class AwsRule implements Rule {
                 .with(AwsRule.FIELD_SPEC, spec.asText())
                 .with(AwsRule.FIELD_DRAIN, drain.asText())
                 .with(AwsRule.FIELD_FAILURE, AwsRule.NO_FAILURE)
+                .with(AwsRule.FIELD_SCHEDULE, AwsRule.schedule(spec))
+                .with(AwsRule.FIELD_IDLE, "0")
         );
     }
 
@@ -209,6 +237,57 @@ final class AwsRule implements Rule {
         return failure;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String schedule() {
+        String schedule = "";
+        if (this.item.has(AwsRule.FIELD_SCHEDULE)) {
+            schedule = this.item.get(AwsRule.FIELD_SCHEDULE).getS();
+            if (schedule.equals(AwsRule.NO_SCHEDULE)) {
+                schedule = "";
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void idle(final int pulses) {
+        this.item.put(
+            new Attributes().with(AwsRule.FIELD_IDLE, Integer.toString(pulses))
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int idle() {
+        int idle = 0;
+        if (this.item.has(AwsRule.FIELD_IDLE)) {
+            idle = Integer.parseInt(this.item.get(AwsRule.FIELD_IDLE).getS());
+        }
+        return idle;
+    }
+
+    /**
+     * Extract schedule from a spec, if its top-level object is a crontab.
+     * @param spec The spec
+     * @return Crontab text or {@link #NO_SCHEDULE}
+     */
+    private static String schedule(final Spec spec) {
+        final Matcher matcher = AwsRule.CRONTAB.matcher(spec.asText());
+        String schedule = AwsRule.NO_SCHEDULE;
+        if (matcher.matches() && !matcher.group(1).trim().isEmpty()) {
+            schedule = matcher.group(1).trim();
+        }
+        return schedule;
+    }
+
     /**
      * Owner of it.
      * @return URN of the owner
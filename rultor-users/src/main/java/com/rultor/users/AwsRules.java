@@ -140,6 +140,7 @@ final class AwsRules implements Rules {
                 .with(AwsRule.RANGE_NAME, unt)
                 .with(AwsRule.FIELD_SPEC, new Spec.Simple().asText())
         );
+        new AwsOwners(this.region).add(this.owner);
     }
 
     /**
@@ -161,6 +162,7 @@ final class AwsRules implements Rules {
         }
         items.next();
         items.remove();
+        new AwsOwners(this.region).remove(this.owner);
     }
 
     /**
@@ -215,7 +217,9 @@ final class AwsRules implements Rules {
                 new QueryValve().withAttributesToGet(
                     AwsRule.FIELD_SPEC,
                     AwsRule.FIELD_DRAIN,
-                    AwsRule.FIELD_FAILURE
+                    AwsRule.FIELD_FAILURE,
+                    AwsRule.FIELD_SCHEDULE,
+                    AwsRule.FIELD_IDLE
                 )
             );
     }
@@ -277,6 +281,22 @@ final class AwsRules implements Rules {
             return this.origin.drain();
         }
         @Override
+        @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.MINUTES)
+        public String schedule() {
+            return this.origin.schedule();
+        }
+        @Override
+        @Cacheable.FlushAfter
+        public void idle(final int pulses) {
+            this.origin.idle(pulses);
+            AwsRules.this.flush();
+        }
+        @Override
+        @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.MINUTES)
+        public int idle() {
+            return this.origin.idle();
+        }
+        @Override
         @Cacheable.FlushAfter
         public void failure(final String desc) {
             this.origin.failure(desc);
@@ -29,9 +29,14 @@
  */
 package com.rultor.users;
 
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.jcabi.dynamo.Attributes;
 import com.jcabi.dynamo.Item;
 import com.rultor.aws.SQSClient;
 import com.rultor.spi.Rule;
+import com.rultor.spi.Spec;
+import org.hamcrest.CustomMatcher;
+import org.hamcrest.Matcher;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
@@ -57,4 +62,58 @@ public final class AwsRuleTest {
         MatcherAssert.assertThat(rule.failure(), Matchers.equalTo(""));
     }
 
+    /**
+     * AwsRule can extract schedule from a spec with a top-level crontab.
+     * @throws Exception If fails
+     */
+    @Test
+    public void savesScheduleExtractedFromSpec() throws Exception {
+        final Item item = Mockito.mock(Item.class);
+        final Rule rule = new AwsRule(Mockito.mock(SQSClient.class), item);
+        rule.update(
+            new Spec.Simple(
+                "com.rultor.base.Crontab(${work}, \"*/5 * * * *\", foo())"
+            ),
+            new Spec.Simple()
+        );
+        Mockito.verify(item).put(
+            Mockito.argThat(AwsRuleTest.schedule("*/5 * * * *"))
+        );
+    }
+
+    /**
+     * AwsRule can ignore crontab that is not on top of a spec.
+     * @throws Exception If fails
+     */
+    @Test
+    public void ignoresNestedCrontab() throws Exception {
+        final Item item = Mockito.mock(Item.class);
+        final Rule rule = new AwsRule(Mockito.mock(SQSClient.class), item);
+        rule.update(
+            new Spec.Simple(
+                "foo(com.rultor.base.Crontab(${work}, \"@daily\", bar()))"
+            ),
+            new Spec.Simple()
+        );
+        Mockito.verify(item).put(
+            Mockito.argThat(AwsRuleTest.schedule("-"))
+        );
+    }
+
+    /**
+     * Matcher of attributes with the given schedule.
+     * @param schedule Expected schedule
+     * @return Matcher
+     */
+    private static Matcher<Attributes> schedule(final String schedule) {
+        return new CustomMatcher<Attributes>("attributes with schedule") {
+            @Override
+            public boolean matches(final Object attrs) {
+                return Attributes.class.cast(attrs)
+                    .get(AwsRule.FIELD_SCHEDULE)
+                    .equals(new AttributeValue(schedule));
+            }
+        };
+    }
+
 }
@@ -82,6 +82,11 @@ public final class AwsRulesITCase {
      */
     private transient TableMocker table;
 
+    /**
+     * Table of owners.
+     */
+    private transient TableMocker owners;
+
     /**
      * Assume we're online.
      * @throws Exception If fails
@@ -118,6 +123,27 @@ public final class AwsRulesITCase {
                 )
         );
         this.table.create();
+        this.owners = new TableMocker(
+            this.region,
+            new CreateTableRequest()
+                .withTableName(AwsOwners.TABLE)
+                .withProvisionedThroughput(
+                    new ProvisionedThroughput()
+                        .withReadCapacityUnits(1L)
+                        .withWriteCapacityUnits(1L)
+                )
+                .withAttributeDefinitions(
+                    new AttributeDefinition()
+                        .withAttributeName(AwsOwners.HASH_URN)
+                        .withAttributeType(ScalarAttributeType.S)
+                )
+                .withKeySchema(
+                    new KeySchemaElement()
+                        .withAttributeName(AwsOwners.HASH_URN)
+                        .withKeyType(KeyType.HASH)
+                )
+        );
+        this.owners.create();
     }
 
     /**
@@ -127,6 +153,7 @@ public final class AwsRulesITCase {
     @After
     public void drop() throws Exception {
         this.table.drop();
+        this.owners.drop();
     }
 
     /**
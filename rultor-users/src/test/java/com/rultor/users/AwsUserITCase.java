@@ -74,6 +74,11 @@ public final class AwsUserITCase {
      */
     private transient TableMocker table;
 
+    /**
+     * Table of owners.
+     */
+    private transient TableMocker owners;
+
     /**
      * Assume we're online.
      * @throws Exception If fails
@@ -110,6 +115,27 @@ public final class AwsUserITCase {
                 )
         );
         this.table.create();
+        this.owners = new TableMocker(
+            this.region,
+            new CreateTableRequest()
+                .withTableName(AwsOwners.TABLE)
+                .withProvisionedThroughput(
+                    new ProvisionedThroughput()
+                        .withReadCapacityUnits(1L)
+                        .withWriteCapacityUnits(1L)
+                )
+                .withAttributeDefinitions(
+                    new AttributeDefinition()
+                        .withAttributeName(AwsOwners.HASH_URN)
+                        .withAttributeType(ScalarAttributeType.S)
+                )
+                .withKeySchema(
+                    new KeySchemaElement()
+                        .withAttributeName(AwsOwners.HASH_URN)
+                        .withKeyType(KeyType.HASH)
+                )
+        );
+        this.owners.create();
     }
 
     /**
@@ -119,6 +145,7 @@ public final class AwsUserITCase {
     @After
     public void drop() throws Exception {
         this.table.drop();
+        this.owners.drop();
     }
 
     /**
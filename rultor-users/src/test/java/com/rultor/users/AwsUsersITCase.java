@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.users;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Credentials;
+import com.jcabi.dynamo.Region;
+import com.jcabi.dynamo.TableMocker;
+import com.jcabi.urn.URN;
+import com.rultor.aws.SQSClient;
+import com.rultor.spi.User;
+import com.rultor.spi.Users;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Integration case for {@link AwsUsers}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @checkstyle ClassDataAbstractionCoupling (500 lines)
+ */
+public final class AwsUsersITCase {
+
+    /**
+     * TCP port of DynamoDB Local.
+     */
+    private static final int PORT = Integer.parseInt(
+        System.getProperty("dynamodb.port")
+    );
+
+    /**
+     * Region to work with.
+     */
+    private transient Region region;
+
+    /**
+     * Table of rules.
+     */
+    private transient TableMocker rules;
+
+    /**
+     * Table of owners.
+     */
+    private transient TableMocker owners;
+
+    /**
+     * Create tables in DynamoDB Local.
+     * @throws Exception If fails
+     */
+    @Before
+    public void prepare() throws Exception {
+        this.region = new Region.Simple(
+            new Credentials.Direct(Credentials.TEST, AwsUsersITCase.PORT)
+        );
+        this.rules = new TableMocker(
+            this.region,
+            new CreateTableRequest()
+                .withTableName(AwsRule.TABLE)
+                .withProvisionedThroughput(
+                    new ProvisionedThroughput()
+                        .withReadCapacityUnits(1L)
+                        .withWriteCapacityUnits(1L)
+                )
+                .withAttributeDefinitions(
+                    new AttributeDefinition()
+                        .withAttributeName(AwsRule.HASH_OWNER)
+                        .withAttributeType(ScalarAttributeType.S),
+                    new AttributeDefinition()
+                        .withAttributeName(AwsRule.RANGE_NAME)
+                        .withAttributeType(ScalarAttributeType.S)
+                )
+                .withKeySchema(
+                    new KeySchemaElement()
+                        .withAttributeName(AwsRule.HASH_OWNER)
+                        .withKeyType(KeyType.HASH),
+                    new KeySchemaElement()
+                        .withAttributeName(AwsRule.RANGE_NAME)
+                        .withKeyType(KeyType.RANGE)
+                )
+        );
+        this.rules.create();
+        this.owners = new TableMocker(
+            this.region,
+            new CreateTableRequest()
+                .withTableName(AwsOwners.TABLE)
+                .withProvisionedThroughput(
+                    new ProvisionedThroughput()
+                        .withReadCapacityUnits(1L)
+                        .withWriteCapacityUnits(1L)
+                )
+                .withAttributeDefinitions(
+                    new AttributeDefinition()
+                        .withAttributeName(AwsOwners.HASH_URN)
+                        .withAttributeType(ScalarAttributeType.S)
+                )
+                .withKeySchema(
+                    new KeySchemaElement()
+                        .withAttributeName(AwsOwners.HASH_URN)
+                        .withKeyType(KeyType.HASH)
+                )
+        );
+        this.owners.create();
+    }
+
+    /**
+     * Drop tables.
+     * @throws Exception If fails
+     */
+    @After
+    public void drop() throws Exception {
+        this.rules.drop();
+        this.owners.drop();
+    }
+
+    /**
+     * AwsUsers can list owners of rules through the index.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void listsOwnersOfRules() throws Exception {
+        final Users users = new AwsUsers(
+            this.region, Mockito.mock(SQSClient.class)
+        );
+        final URN first = new URN("urn:github:101");
+        final URN second = new URN("urn:github:102");
+        users.get(first).rules().create("first-rule");
+        users.get(first).rules().create("second-rule");
+        users.get(second).rules().create("third-rule");
+        MatcherAssert.assertThat(users, Matchers.<User>iterableWithSize(2));
+        users.get(second).rules().remove("third-rule");
+        MatcherAssert.assertThat(users, Matchers.<User>iterableWithSize(1));
+        MatcherAssert.assertThat(
+            users.iterator().next().urn(),
+            Matchers.equalTo(first)
+        );
+    }
+
+    /**
+     * AwsUsers can fill in the index from rules, only once.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void fillsInIndexFromRulesOnce() throws Exception {
+        final URN old = new URN("urn:facebook:7");
+        this.region.table(AwsRule.TABLE).put(
+            new Attributes()
+                .with(AwsRule.HASH_OWNER, old.toString())
+                .with(AwsRule.RANGE_NAME, "some-rule")
+        );
+        final Users users = new AwsUsers(
+            this.region, Mockito.mock(SQSClient.class)
+        );
+        users.get(new URN("urn:facebook:8")).rules().create("new-rule");
+        MatcherAssert.assertThat(users, Matchers.<User>iterableWithSize(2));
+        this.region.table(AwsRule.TABLE).put(
+            new Attributes()
+                .with(AwsRule.HASH_OWNER, "urn:facebook:9")
+                .with(AwsRule.RANGE_NAME, "hidden-rule")
+        );
+        MatcherAssert.assertThat(users, Matchers.<User>iterableWithSize(2));
+    }
+
+}
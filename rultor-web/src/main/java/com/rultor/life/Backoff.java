@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.life;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import com.jcabi.urn.URN;
+import com.rultor.spi.Rule;
+import com.rultor.tools.Time;
+import java.util.concurrent.TimeUnit;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Exponential backoff of idle rules.
+ *
+ * <p>A rule that was idle for N pulses in a row (see {@link Rule#idle()})
+ * is pulsed once in two to the power of N minutes, but never less often
+ * than once in the ceiling. The first busy pulse resets it to every minute.
+ * Minutes are shifted by a hash of the rule, to spread idle rules
+ * evenly in time.
+ *
+ * <p>Rules with a schedule are never backed off, their crontab
+ * already decides when to pulse them.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@Immutable
+@ToString
+@EqualsAndHashCode(of = "ceiling")
+@Loggable(Loggable.DEBUG)
+final class Backoff {
+
+    /**
+     * Ceiling by default, in minutes.
+     */
+    public static final int DEFAULT = Tv.THIRTY;
+
+    /**
+     * Maximum interval between pulses of an idle rule, in minutes.
+     */
+    private final transient long ceiling;
+
+    /**
+     * Public ctor.
+     * @param max Maximum interval between pulses, in minutes
+     */
+    protected Backoff(final int max) {
+        this.ceiling = Math.max(1, max);
+    }
+
+    /**
+     * Is it time to pulse this rule?
+     * @param owner Owner of the rule
+     * @param rule The rule
+     * @param time Time to check
+     * @return TRUE if it's due
+     */
+    public boolean due(final URN owner, final Rule rule, final Time time) {
+        boolean due = true;
+        if (rule.schedule().isEmpty()) {
+            final long interval = Math.min(
+                1L << Math.min(rule.idle(), Tv.THIRTY), this.ceiling
+            );
+            if (interval > 1) {
+                final long shift = Math.abs(
+                    (long) String.format("%s %s", owner, rule.name())
+                        .hashCode()
+                );
+                due = (TimeUnit.MILLISECONDS.toMinutes(time.millis()) + shift)
+                    % interval == 0;
+            }
+        }
+        return due;
+    }
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.life;
+
+import com.jcabi.aspects.Loggable;
+import com.jcabi.log.Logger;
+import com.rultor.stateful.Notepad;
+import com.rultor.tools.Time;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Membership of web nodes, kept in a shared {@link Notepad}.
+ *
+ * <p>Every node writes a heartbeat (its name and the time) to the notepad
+ * on every tick. Nodes that didn't beat for longer than a timeout are
+ * considered dead. The first of the live nodes (by name) is the leader,
+ * it removes heartbeats of dead nodes from the notepad.
+ *
+ * <p>There is no agreement between nodes, every node sees the
+ * membership as it is in the notepad at the moment of its own beat, so
+ * views of different nodes may differ for a while, see
+ * {@link ShardedQuartz}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString
+@EqualsAndHashCode(of = { "notepad", "name" })
+@Loggable(Loggable.DEBUG)
+final class Membership {
+
+    /**
+     * Shared notepad.
+     */
+    private final transient Notepad notepad;
+
+    /**
+     * Name of this node.
+     */
+    private final transient String name;
+
+    /**
+     * Timeout in milliseconds.
+     */
+    private final transient long timeout;
+
+    /**
+     * Public ctor.
+     * @param ntp Shared notepad
+     * @param node Name of this node, unique among all nodes
+     * @param msec Timeout of a heartbeat, in milliseconds
+     */
+    protected Membership(final Notepad ntp, final String node,
+        final long msec) {
+        if (node.contains(" ")) {
+            throw new IllegalArgumentException(
+                String.format("node name `%s` can't contain spaces", node)
+            );
+        }
+        this.notepad = ntp;
+        this.name = node;
+        this.timeout = msec;
+    }
+
+    /**
+     * Name of this node.
+     * @return Name
+     */
+    public String node() {
+        return this.name;
+    }
+
+    /**
+     * Register a heartbeat of this node and find all live nodes.
+     *
+     * <p>Lines of the notepad that are not heartbeats are ignored
+     * and removed by the leader, together with stale heartbeats.
+     *
+     * @param time Current time
+     * @return Names of live nodes, including this one
+     */
+    public SortedSet<String> beat(final Time time) {
+        final Map<String, Long> beats = new HashMap<String, Long>(0);
+        final Collection<String> mine = new LinkedList<String>();
+        final Collection<String> stale = new LinkedList<String>();
+        for (String line : this.notepad) {
+            if (!line.matches("\\S+ \\d{1,18}")) {
+                Logger.warn(this, "malformed heartbeat `%s` ignored", line);
+                stale.add(line);
+                continue;
+            }
+            final String[] parts = line.split(" ", 2);
+            final long msec = Long.parseLong(parts[1]);
+            if (parts[0].equals(this.name)) {
+                mine.add(line);
+            } else if (time.millis() - msec > this.timeout) {
+                stale.add(line);
+            } else if (!beats.containsKey(parts[0])
+                || beats.get(parts[0]) < msec) {
+                beats.put(parts[0], msec);
+            }
+        }
+        this.notepad.add(Membership.line(this.name, time.millis()));
+        mine.remove(Membership.line(this.name, time.millis()));
+        this.notepad.removeAll(mine);
+        final SortedSet<String> live = new TreeSet<String>(beats.keySet());
+        live.add(this.name);
+        if (live.first().equals(this.name) && !stale.isEmpty()) {
+            this.notepad.removeAll(stale);
+            Logger.info(
+                this, "%d stale heartbeat(s) removed by leader `%s`",
+                stale.size(), this.name
+            );
+        }
+        return live;
+    }
+
+    /**
+     * Leave the membership.
+     */
+    public void leave() {
+        final Collection<String> mine = new LinkedList<String>();
+        for (String line : this.notepad) {
+            if (line.startsWith(String.format("%s ", this.name))) {
+                mine.add(line);
+            }
+        }
+        this.notepad.removeAll(mine);
+    }
+
+    /**
+     * Make a line for the notepad.
+     * @param node Name of the node
+     * @param msec Time of heartbeat
+     * @return Line
+     */
+    private static String line(final String node, final long msec) {
+        return String.format("%s %d", node, msec);
+    }
+
+}
@@ -34,19 +34,30 @@ import com.jcabi.aspects.Loggable;
 import com.jcabi.dynamo.Credentials;
 import com.jcabi.dynamo.Region;
 import com.jcabi.manifests.Manifests;
+import com.jcabi.urn.URN;
 import com.rultor.aws.SQSClient;
 import com.rultor.queue.SQSQueue;
 import com.rultor.repo.ClasspathRepo;
+import com.rultor.spi.Arguments;
+import com.rultor.spi.Coordinates;
 import com.rultor.spi.Queue;
 import com.rultor.spi.Repo;
+import com.rultor.spi.Spec;
+import com.rultor.spi.SpecException;
 import com.rultor.spi.Stand;
+import com.rultor.spi.User;
 import com.rultor.spi.Users;
+import com.rultor.spi.Wallet;
+import com.rultor.stateful.Notepad;
 import com.rultor.users.AwsUsers;
 import com.rultor.users.mongo.Mongo;
 import com.rultor.users.mongo.MongoUsers;
 import com.rultor.users.pgsql.PgClient;
 import com.rultor.users.pgsql.PgUsers;
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
@@ -67,15 +78,7 @@ final class Production implements Profile {
     /**
      * Quartz to use.
      */
-    private final transient SQSQuartz quartz = new SQSQuartz(
-        this.users(),
-        this.queue(),
-        new SQSClient.Simple(
-            Manifests.read("Rultor-SQSKey"),
-            Manifests.read("Rultor-SQSSecret"),
-            Manifests.read("Rultor-SQSQuartz")
-        )
-    );
+    private final transient Closeable quartz = this.quartz();
 
     /**
      * SQS pulse sensor.
@@ -155,6 +158,123 @@ final class Production implements Profile {
         );
     }
 
+    /**
+     * Make a quartz, sharded among web nodes if SimpleDB domain
+     * for their membership is configured, or the one in SQS otherwise.
+     * @return Quartz
+     */
+    private Closeable quartz() {
+        final String domain = Production.domain();
+        final Closeable quartz;
+        if (!domain.isEmpty()) {
+            quartz = new ShardedQuartz(
+                this.users(),
+                this.queue(),
+                new Membership(
+                    this.notepad(domain),
+                    UUID.randomUUID().toString(),
+                    TimeUnit.MINUTES.toMillis(2)
+                ),
+                Production.ceiling()
+            );
+        } else {
+            quartz = new SQSQuartz(
+                this.users(),
+                this.queue(),
+                new SQSClient.Simple(
+                    Manifests.read("Rultor-SQSKey"),
+                    Manifests.read("Rultor-SQSSecret"),
+                    Manifests.read("Rultor-SQSQuartz")
+                ),
+                Production.ceiling()
+            );
+        }
+        return quartz;
+    }
+
+    /**
+     * Make a notepad in SimpleDB domain.
+     *
+     * <p>The notepad is made from a spec, the same way rules make it,
+     * since its class is in {@code rultor-base}, which is available
+     * only at runtime.
+     *
+     * @param domain Name of the domain
+     * @return Notepad
+     */
+    private Notepad notepad(final String domain) {
+        try {
+            return Notepad.class.cast(
+                this.repo().make(
+                    new User.Nobody(),
+                    new Spec.Simple(
+                        String.format(
+                            // @checkstyle LineLength (1 line)
+                            "com.rultor.stateful.sdb.DomainNotepad(${work}, ${wallet}, com.rultor.aws.SDBClient$Simple(\"%s\", \"%s\", \"%s\"))",
+                            Production.quoted(Manifests.read("Rultor-SQSKey")),
+                            Production.quoted(
+                                Manifests.read("Rultor-SQSSecret")
+                            ),
+                            domain
+                        )
+                    )
+                ).instantiate(
+                    this.users(),
+                    new Arguments(
+                        new Coordinates.Simple(
+                            URN.create("urn:rultor:0"), "quartz"
+                        ),
+                        new Wallet.Empty()
+                    )
+                )
+            );
+        } catch (SpecException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Escape text for a double-quoted string in a spec.
+     * @param text The text
+     * @return Escaped text
+     */
+    private static String quoted(final String text) {
+        return text.replace("\"", "\\\"");
+    }
+
+    /**
+     * SimpleDB domain for membership of web nodes.
+     * @return Name of the domain, or empty if it is not configured
+     */
+    private static String domain() {
+        final String domain = Manifests.read("Rultor-SDBQuartz");
+        if (!domain.isEmpty()
+            && !domain.matches("[a-zA-Z0-9_.\\-]{3,255}")) {
+            throw new IllegalStateException(
+                String.format(
+                    "Rultor-SDBQuartz `%s` is not a valid SimpleDB domain name",
+                    domain
+                )
+            );
+        }
+        return domain;
+    }
+
+    /**
+     * Maximum backoff of idle rules, in minutes.
+     * @return Ceiling, in minutes
+     */
+    private static int ceiling() {
+        final String text = Manifests.read("Rultor-IdleCeiling");
+        final int ceiling;
+        if (text.matches("\\d{1,5}")) {
+            ceiling = Integer.parseInt(text);
+        } else {
+            ceiling = Backoff.DEFAULT;
+        }
+        return ceiling;
+    }
+
     /**
      * {@inheritDoc}
      */
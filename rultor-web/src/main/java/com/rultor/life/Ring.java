@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.life;
+
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Consistent hashing ring of nodes.
+ *
+ * <p>Every node is placed on the ring many times (as "virtual nodes"), and
+ * a key belongs to the first node found clockwise from its hash. When
+ * a node joins or leaves the ring, only the keys of its neighbours move.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString
+@EqualsAndHashCode(of = "points")
+@Loggable(Loggable.DEBUG)
+final class Ring {
+
+    /**
+     * How many virtual nodes per each real node.
+     */
+    private static final int VIRTUAL = Tv.HUNDRED;
+
+    /**
+     * Points on the ring.
+     */
+    private final transient SortedMap<Long, String> points =
+        new TreeMap<Long, String>();
+
+    /**
+     * Public ctor.
+     * @param nodes Names of nodes
+     */
+    protected Ring(final Collection<String> nodes) {
+        for (String node : nodes) {
+            for (int idx = 0; idx < Ring.VIRTUAL; ++idx) {
+                this.points.put(
+                    Ring.hash(String.format("%s#%d", node, idx)), node
+                );
+            }
+        }
+    }
+
+    /**
+     * Find a node responsible for the key.
+     * @param key The key
+     * @return Name of the node
+     */
+    public String node(final String key) {
+        if (this.points.isEmpty()) {
+            throw new IllegalStateException("the ring is empty");
+        }
+        final SortedMap<Long, String> tail =
+            this.points.tailMap(Ring.hash(key));
+        final String node;
+        if (tail.isEmpty()) {
+            node = this.points.get(this.points.firstKey());
+        } else {
+            node = tail.get(tail.firstKey());
+        }
+        return node;
+    }
+
+    /**
+     * Hash of the text.
+     * @param text The text
+     * @return Hash
+     */
+    private static long hash(final String text) {
+        return ByteBuffer.wrap(DigestUtils.md5(text)).getLong();
+    }
+
+}
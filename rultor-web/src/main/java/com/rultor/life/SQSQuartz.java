@@ -43,8 +43,10 @@ import com.rultor.aws.SQSClient;
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Queue;
 import com.rultor.spi.Rule;
+import com.rultor.spi.Schedule;
 import com.rultor.spi.User;
 import com.rultor.spi.Users;
+import com.rultor.tools.Exceptions;
 import com.rultor.tools.Time;
 import java.io.Closeable;
 import java.io.IOException;
@@ -65,7 +67,7 @@ import lombok.EqualsAndHashCode;
     await = 1, awaitUnit = TimeUnit.MINUTES,
     shutdownAttempts = Tv.FIVE
 )
-@EqualsAndHashCode(of = { "users", "queue", "client" })
+@EqualsAndHashCode(of = { "users", "queue", "client", "backoff" })
 @SuppressWarnings("PMD.DoNotUseThreads")
 public final class SQSQuartz implements Runnable, Closeable {
 
@@ -84,6 +86,11 @@ public final class SQSQuartz implements Runnable, Closeable {
      */
     private final transient SQSClient client;
 
+    /**
+     * Backoff of idle rules.
+     */
+    private final transient Backoff backoff;
+
     /**
      * Public ctor.
      * @param usr Users
@@ -92,9 +99,23 @@ public final class SQSQuartz implements Runnable, Closeable {
      */
     protected SQSQuartz(final Users usr, final Queue que,
         final SQSClient clnt) {
+        this(usr, que, clnt, 1);
+    }
+
+    /**
+     * Public ctor.
+     * @param usr Users
+     * @param que Queue
+     * @param clnt SQS client for quartz queue
+     * @param ceiling Maximum backoff of idle rules, in minutes
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    protected SQSQuartz(final Users usr, final Queue que,
+        final SQSClient clnt, final int ceiling) {
         this.users = usr;
         this.queue = que;
         this.client = clnt;
+        this.backoff = new Backoff(ceiling);
     }
 
     /**
@@ -149,7 +170,7 @@ public final class SQSQuartz implements Runnable, Closeable {
             );
             final Time previous;
             if (result.getMessages().isEmpty()) {
-                previous = new Time(new Time().toString());
+                previous = new Time().round();
             } else {
                 previous = new Time(result.getMessages().get(0).getBody());
             }
@@ -176,18 +197,44 @@ public final class SQSQuartz implements Runnable, Closeable {
     }
 
     /**
-     * Publish them all with the specified time.
+     * Publish all rules that are due at the specified time.
      * @param time Time to use
      */
     @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
     private void publish(final Time time) {
         for (User user : this.users) {
             for (Rule rule : user.rules()) {
-                this.queue.push(
-                    new Coordinates.Simple(user.urn(), rule.name(), time)
-                );
+                if (SQSQuartz.due(rule, time)
+                    && this.backoff.due(user.urn(), rule, time)) {
+                    this.queue.push(
+                        new Coordinates.Simple(user.urn(), rule.name(), time)
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Is it time to pulse this rule?
+     *
+     * <p>Rules without a schedule (and with a broken one) are due every
+     * minute, their specs will decide what to do.
+     *
+     * @param rule The rule
+     * @param time Time to check
+     * @return TRUE if it's due
+     */
+    static boolean due(final Rule rule, final Time time) {
+        final String schedule = rule.schedule();
+        boolean due = true;
+        if (!schedule.isEmpty()) {
+            try {
+                due = new Schedule(schedule).matches(time);
+            } catch (IllegalArgumentException ex) {
+                Exceptions.warn(SQSQuartz.class, ex);
             }
         }
+        return due;
     }
 
 }
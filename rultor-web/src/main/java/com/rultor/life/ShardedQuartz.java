@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.life;
+
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.ScheduleWithFixedDelay;
+import com.jcabi.aspects.Tv;
+import com.jcabi.log.Logger;
+import com.rultor.spi.Coordinates;
+import com.rultor.spi.Queue;
+import com.rultor.spi.Rule;
+import com.rultor.spi.User;
+import com.rultor.spi.Users;
+import com.rultor.tools.Time;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Quartz sharded among all live web nodes.
+ *
+ * <p>Unlike {@link SQSQuartz}, every node ticks on its own clock, at the
+ * beginning of every minute, and publishes rules only of those users that
+ * belong to its shard. Shards are calculated by consistent hashing
+ * of user URNs over the list of live nodes from {@link Membership}, so
+ * when a node joins or leaves, only its neighbours' users move.
+ *
+ * <p>When a node dies without leaving, its users are not published
+ * until its heartbeat expires.
+ *
+ * <p>Nodes don't agree on the list of live nodes before they publish,
+ * every node uses its own view of {@link Membership} at its own tick.
+ * These views differ after a node joins or leaves, until all live
+ * nodes beat again and see the change: a node that joins is seen by
+ * others only after their next tick, and the shared notepad may be
+ * eventually consistent. In this window, which is usually one minute
+ * and is never longer than the heartbeat timeout, some users may be
+ * published by two nodes at the same minute (the same work appears in
+ * the queue twice) or by none of them (the minute is skipped).
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@Loggable(Loggable.DEBUG)
+@ScheduleWithFixedDelay(
+    delay = 1, unit = TimeUnit.SECONDS,
+    await = 1, awaitUnit = TimeUnit.MINUTES,
+    shutdownAttempts = Tv.FIVE
+)
+@EqualsAndHashCode(of = { "users", "queue", "membership" })
+@SuppressWarnings("PMD.DoNotUseThreads")
+public final class ShardedQuartz implements Runnable, Closeable {
+
+    /**
+     * Users.
+     */
+    private final transient Users users;
+
+    /**
+     * Queue.
+     */
+    private final transient Queue queue;
+
+    /**
+     * Membership of nodes.
+     */
+    private final transient Membership membership;
+
+    /**
+     * Backoff of idle rules.
+     */
+    private final transient Backoff backoff;
+
+    /**
+     * The last minute published, in milliseconds.
+     */
+    private final transient AtomicLong last =
+        new AtomicLong(new Time().round().millis());
+
+    /**
+     * Public ctor.
+     * @param usr Users
+     * @param que Queue
+     * @param mbr Membership of nodes
+     */
+    protected ShardedQuartz(final Users usr, final Queue que,
+        final Membership mbr) {
+        this(usr, que, mbr, 1);
+    }
+
+    /**
+     * Public ctor.
+     * @param usr Users
+     * @param que Queue
+     * @param mbr Membership of nodes
+     * @param ceiling Maximum backoff of idle rules, in minutes
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    protected ShardedQuartz(final Users usr, final Queue que,
+        final Membership mbr, final int ceiling) {
+        this.users = usr;
+        this.queue = que;
+        this.membership = mbr;
+        this.backoff = new Backoff(ceiling);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Loggable(value = Loggable.DEBUG, limit = 2, unit = TimeUnit.MINUTES)
+    public void run() {
+        final Time minute = new Time().round();
+        if (minute.millis() > this.last.get()) {
+            this.last.set(minute.millis());
+            this.tick(minute);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.membership.leave();
+    }
+
+    /**
+     * Publish all due rules of the users in the shard of this node.
+     * @param time Time to use
+     * @return How many users are in the shard of this node
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    int tick(final Time time) {
+        final Ring ring = new Ring(this.membership.beat(time));
+        int total = 0;
+        for (User user : this.users) {
+            if (!ring.node(user.urn().toString())
+                .equals(this.membership.node())) {
+                continue;
+            }
+            ++total;
+            for (Rule rule : user.rules()) {
+                if (SQSQuartz.due(rule, time)
+                    && this.backoff.due(user.urn(), rule, time)) {
+                    this.queue.push(
+                        new Coordinates.Simple(user.urn(), rule.name(), time)
+                    );
+                }
+            }
+        }
+        Logger.info(
+            this, "%d user(s) published by `%s` at %s",
+            total, this.membership.node(), time
+        );
+        return total;
+    }
+
+}
@@ -323,6 +323,18 @@ final class Testing implements Profile {
             return new Spec.Simple("com.rultor.drain.Trash()");
         }
         @Override
+        public String schedule() {
+            return "";
+        }
+        @Override
+        public void idle(final int pulses) {
+            // nothing to save
+        }
+        @Override
+        public int idle() {
+            return 0;
+        }
+        @Override
         public void failure(final String desc) {
             throw new UnsupportedOperationException();
         }
@@ -49,6 +49,7 @@ import com.rexsl.page.inset.FlashInset;
 import com.rexsl.page.inset.LinksInset;
 import com.rexsl.page.inset.VersionInset;
 import com.rultor.spi.Coordinates;
+import com.rultor.spi.Queue;
 import com.rultor.spi.Repo;
 import com.rultor.spi.User;
 import com.rultor.spi.Users;
@@ -308,6 +309,17 @@ public class BaseRs extends BaseResource {
         );
     }
 
+    /**
+     * Get queue.
+     * @return Queue
+     */
+    @NotNull(message = "QUEUE is not injected into servlet context")
+    protected final Queue queue() {
+        return Queue.class.cast(
+            this.servletContext().getAttribute(Queue.class.getName())
+        );
+    }
+
     /**
      * The work we're in (while rendering).
      * @param rule Unit being rendered
@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.aspects.Loggable;
+import com.jcabi.log.Logger;
+import com.jcabi.urn.URN;
+import com.rexsl.page.auth.Identity;
+import com.rultor.spi.Coordinates;
+import com.rultor.spi.Queue;
+import com.rultor.spi.Rule;
+import com.rultor.tools.Time;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.util.regex.Pattern;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+
+/**
+ * Push notification callback (from Github or any other Git hosting
+ * that speaks the same webhook format).
+ *
+ * <p>The hook has to be configured as
+ * {@code http://www.rultor.com/hook?user=URN&amp;key=KEY}, where
+ * {@code KEY} is the API key of the user, the same one that is used
+ * for HTTP Basic authentication. Every rule of this user that mentions
+ * the pushed repository in its spec gets a work in the queue right away,
+ * without waiting for the next tick of the quartz. Such a work is
+ * {@link Coordinates.Triggered}, and {@code Crontab} lets it through
+ * regardless of its schedule only if the rule asks for it.
+ *
+ * <p>The class is not annotated with {@link Loggable}, since it would
+ * log the API key that comes in the query string.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @see <a href="https://developer.github.com/v3/activity/events/types/#pushevent">Push event</a>
+ */
+@Path("/hook")
+public final class HookRs extends BaseRs {
+
+    /**
+     * Prefix of a form-encoded payload.
+     */
+    private static final String FORM = "payload=";
+
+    /**
+     * Owner of the rules to trigger.
+     */
+    private transient URN owner;
+
+    /**
+     * API key of the owner.
+     */
+    private transient String secret;
+
+    /**
+     * Inject it from query.
+     * @param urn URN of the user
+     */
+    @QueryParam("user")
+    @Loggable(Loggable.DEBUG)
+    public void setUser(final String urn) {
+        if (urn != null) {
+            this.owner = URN.create(urn);
+        }
+    }
+
+    /**
+     * Inject it from query.
+     * @param key API key of the user
+     */
+    @QueryParam("key")
+    public void setKey(final String key) {
+        this.secret = key;
+    }
+
+    /**
+     * Get a push notification.
+     * @param post Raw POST stream
+     * @return Total number of rules triggered
+     * @throws IOException If fails on reading
+     */
+    @POST
+    @Path("/")
+    @Loggable(Loggable.DEBUG)
+    public String index(final InputStream post) throws IOException {
+        if (this.owner == null || this.secret == null
+            || new AuthKeys().authenticate(this.owner.toString(), this.secret)
+                .equals(Identity.ANONYMOUS)) {
+            throw new WebApplicationException(HttpURLConnection.HTTP_FORBIDDEN);
+        }
+        final Pattern repo = HookRs.repository(
+            HookRs.json(IOUtils.toString(post, CharEncoding.UTF_8))
+        );
+        final Queue queue = this.queue();
+        final Time now = new Time();
+        int total = 0;
+        for (Rule rule : this.users().get(this.owner).rules()) {
+            if (repo.matcher(rule.spec().asText()).find()) {
+                queue.push(
+                    new Coordinates.Triggered(this.owner, rule.name(), now)
+                );
+                ++total;
+            }
+        }
+        Logger.info(
+            this, "%d rule(s) of %s triggered by a push to %s",
+            total, this.owner, repo
+        );
+        return Integer.toString(total);
+    }
+
+    /**
+     * Parse POST body, either JSON or form-encoded JSON.
+     * @param text Raw text
+     * @return JSON object
+     * @throws IOException If fails
+     */
+    private static JsonObject json(final String text) throws IOException {
+        String body = text.trim();
+        if (body.startsWith(HookRs.FORM)) {
+            body = URLDecoder.decode(
+                body.substring(HookRs.FORM.length()), CharEncoding.UTF_8
+            );
+        }
+        try {
+            return Json.createReader(new StringReader(body)).readObject();
+        } catch (JsonException ex) {
+            throw new WebApplicationException(
+                ex, HttpURLConnection.HTTP_BAD_REQUEST
+            );
+        }
+    }
+
+    /**
+     * Make a pattern that finds the pushed repository in a spec.
+     *
+     * <p>Github URL {@code https://github.com/foo/bar} becomes a pattern
+     * that matches {@code git@github.com:foo/bar.git},
+     * {@code https://github.com/foo/bar} and the like.
+     *
+     * @param json Push notification
+     * @return Pattern
+     */
+    private static Pattern repository(final JsonObject json) {
+        final JsonObject repo = json.getJsonObject("repository");
+        if (repo == null) {
+            throw new WebApplicationException(
+                HttpURLConnection.HTTP_BAD_REQUEST
+            );
+        }
+        final URI url;
+        try {
+            url = new URI(repo.getString("url", ""));
+        } catch (URISyntaxException ex) {
+            throw new WebApplicationException(
+                ex, HttpURLConnection.HTTP_BAD_REQUEST
+            );
+        }
+        final String path = url.getPath()
+            .replaceAll("^/+|/+$", "")
+            .replaceAll("\\.git$", "");
+        if (url.getHost() == null || path.isEmpty()) {
+            throw new WebApplicationException(
+                HttpURLConnection.HTTP_BAD_REQUEST
+            );
+        }
+        return Pattern.compile(
+            String.format(
+                "(?<![\\w\\-])%s[:/]+%s(?:\\.git)?(?![\\w\\.\\-])",
+                Pattern.quote(url.getHost()),
+                Pattern.quote(path)
+            ),
+            Pattern.CASE_INSENSITIVE
+        );
+    }
+
+}
@@ -33,27 +33,40 @@ import com.jcabi.aspects.Loggable;
 import com.rultor.spi.Arguments;
 import com.rultor.spi.Coordinates;
 import com.rultor.spi.Drain;
-import com.rultor.spi.Pulse;
 import com.rultor.spi.Rule;
 import com.rultor.spi.SpecException;
-import com.rultor.spi.Tags;
 import com.rultor.spi.Wallet;
 import com.rultor.tools.Exceptions;
+import com.rultor.tools.Ranges;
 import com.rultor.tools.Time;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.util.NoSuchElementException;
 import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
-import org.apache.commons.io.IOUtils;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 
 /**
  * Single pulse.
  *
+ * <p>The stream is sent to the client as it is read from the drain,
+ * without loading it into memory. When the drain is
+ * {@link Drain.Ranged}, its content is sent without headers, and
+ * HTTP {@code Range} requests are supported. Query parameter
+ * {@code lines} asks for the last lines only, it has to be a
+ * non-negative number, otherwise the request is rejected with
+ * HTTP 400.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 1.0
@@ -64,6 +77,28 @@ import org.apache.commons.io.IOUtils;
 @Loggable(Loggable.DEBUG)
 public final class PulseRs extends BaseRs {
 
+    /**
+     * Query param with a number of last lines to show.
+     */
+    public static final String QUERY_LINES = "lines";
+
+    /**
+     * HTTP header with a range of bytes requested.
+     */
+    private static final String RANGE = "Range";
+
+    /**
+     * HTTP status of a range that can't be satisfied.
+     */
+    private static final int UNSATISFIABLE = 416;
+
+    /**
+     * Pattern of a single range of bytes.
+     */
+    private static final Pattern BYTES = Pattern.compile(
+        "bytes=(\\d*)-(\\d*)"
+    );
+
     /**
      * Rule name.
      */
@@ -74,6 +109,16 @@ public final class PulseRs extends BaseRs {
      */
     private transient Time date;
 
+    /**
+     * Number of last lines to show, or NULL to show all.
+     */
+    private transient Integer lines;
+
+    /**
+     * Range of bytes requested, or NULL.
+     */
+    private transient String range;
+
     /**
      * Inject it from query.
      * @param rule Rule name
@@ -94,6 +139,39 @@ public final class PulseRs extends BaseRs {
         this.date = new Time(Long.parseLong(time));
     }
 
+    /**
+     * Inject it from query.
+     * @param total Number of last lines to show
+     */
+    @QueryParam(PulseRs.QUERY_LINES)
+    public void setLines(final String total) {
+        if (total != null) {
+            final int number;
+            try {
+                number = Integer.parseInt(total);
+            } catch (NumberFormatException ex) {
+                throw new WebApplicationException(
+                    ex, HttpURLConnection.HTTP_BAD_REQUEST
+                );
+            }
+            if (number < 0) {
+                throw new WebApplicationException(
+                    HttpURLConnection.HTTP_BAD_REQUEST
+                );
+            }
+            this.lines = number;
+        }
+    }
+
+    /**
+     * Inject it from HTTP headers.
+     * @param header Range of bytes
+     */
+    @HeaderParam(PulseRs.RANGE)
+    public void setRange(final String header) {
+        this.range = header;
+    }
+
     /**
      * Get stream.
      * @return The JAX-RS response
@@ -101,9 +179,18 @@ public final class PulseRs extends BaseRs {
     @GET
     @Path("/stream")
     @Produces("text/plain; charset=UTF-8")
-    public String stream() {
+    public Response stream() {
         try {
-            return IOUtils.toString(this.pulse().stream());
+            final Drain drain = this.drain();
+            final Response response;
+            if (this.lines != null) {
+                response = Response.ok(Ranges.tail(drain, this.lines)).build();
+            } else if (drain instanceof Drain.Ranged) {
+                response = this.ranged(Drain.Ranged.class.cast(drain));
+            } else {
+                response = Response.ok(drain.read()).build();
+            }
+            return response;
         } catch (IOException ex) {
             throw this.flash().redirect(
                 this.uriInfo().getBaseUriBuilder()
@@ -120,48 +207,76 @@ public final class PulseRs extends BaseRs {
     }
 
     /**
-     * Get pulse.
-     * @return The pulse
+     * Response with the content of a ranged drain, or its part.
+     * @param drain The drain
+     * @return The JAX-RS response
+     * @throws IOException If fails
      */
-    private Pulse pulse() {
-        final Rule rule;
-        try {
-            rule = this.user().rules().get(this.name);
-        } catch (NoSuchElementException ex) {
-            throw this.flash().redirect(this.uriInfo().getBaseUri(), ex);
-        }
-        // @checkstyle AnonInnerLength (50 lines)
-        return new Pulse() {
-            @Override
-            public String xembly() throws IOException {
-                throw new UnsupportedOperationException();
-            }
-            @Override
-            public InputStream stream() throws IOException {
-                return PulseRs.this.read(rule);
-            }
-            @Override
-            public Coordinates coordinates() {
-                throw new UnsupportedOperationException();
+    private Response ranged(final Drain.Ranged drain) throws IOException {
+        final long size = drain.size();
+        long first = 0;
+        long last = size - 1;
+        boolean partial = false;
+        if (this.range != null) {
+            final Matcher matcher = PulseRs.BYTES.matcher(this.range.trim());
+            if (matcher.matches() && !matcher.group(2).isEmpty()) {
+                last = Math.min(last, PulseRs.number(matcher.group(2)));
             }
-            @Override
-            public Tags tags() {
-                throw new UnsupportedOperationException();
+            if (matcher.matches() && !matcher.group(1).isEmpty()) {
+                first = PulseRs.number(matcher.group(1));
+                partial = first <= last || first >= size;
+            } else if (matcher.matches() && !matcher.group(2).isEmpty()) {
+                first = Math.max(0, size - PulseRs.number(matcher.group(2)));
+                last = size - 1;
+                partial = true;
             }
-            @Override
-            public String stand() {
-                throw new UnsupportedOperationException();
-            }
-        };
+        }
+        final Response.ResponseBuilder builder;
+        if (partial && first >= size) {
+            builder = Response.status(PulseRs.UNSATISFIABLE)
+                .header("Content-Range", String.format("bytes */%d", size));
+        } else if (partial) {
+            builder = Response.status(HttpURLConnection.HTTP_PARTIAL)
+                .entity(drain.read(first, last - first + 1))
+                .header(
+                    "Content-Range",
+                    String.format("bytes %d-%d/%d", first, last, size)
+                )
+                .header(HttpHeaders.CONTENT_LENGTH, last - first + 1);
+        } else {
+            builder = Response.ok(drain.read(0, size))
+                .header(HttpHeaders.CONTENT_LENGTH, size);
+        }
+        return builder.header("Accept-Ranges", "bytes").build();
+    }
+
+    /**
+     * Parse a position in a range of bytes.
+     * @param digits Digits of it
+     * @return The number, or {@link Long#MAX_VALUE} if it's too big
+     */
+    private static long number(final String digits) {
+        long number;
+        try {
+            number = Long.parseLong(digits);
+        } catch (NumberFormatException ex) {
+            number = Long.MAX_VALUE;
+        }
+        return number;
     }
 
     /**
-     * Read stream of the drain.
-     * @param rule Rule to read from
-     * @return Stream
+     * Make drain of the pulse.
+     * @return The drain
      * @throws IOException If fails
      */
-    private InputStream read(final Rule rule) throws IOException {
+    private Drain drain() throws IOException {
+        final Rule rule;
+        try {
+            rule = this.user().rules().get(this.name);
+        } catch (NoSuchElementException ex) {
+            throw this.flash().redirect(this.uriInfo().getBaseUri(), ex);
+        }
         try {
             return Drain.class.cast(
                 this.repo().make(this.user(), rule.drain()).instantiate(
@@ -175,7 +290,7 @@ public final class PulseRs extends BaseRs {
                         new Wallet.Empty()
                     )
                 )
-            ).read();
+            );
         } catch (SpecException ex) {
             throw this.flash().redirect(
                 this.uriInfo().getBaseUri(),
@@ -96,6 +96,10 @@ public final class RuleRs extends BaseRs {
                     .up()
                     .add("drain", rule.drain().asText())
                     .up()
+                    .add("idle", Integer.toString(rule.idle()))
+                    .up()
+                    .add("schedule", rule.schedule())
+                    .up()
             )
             .render()
             .build();
@@ -155,6 +159,10 @@ public final class RuleRs extends BaseRs {
                         .up()
                         .add("drain", drain)
                         .up()
+                        .add("idle", Integer.toString(this.rule().idle()))
+                        .up()
+                        .add("schedule", this.rule().schedule())
+                        .up()
                         .add("exception", Exceptions.message(ex))
                         .up()
                 )
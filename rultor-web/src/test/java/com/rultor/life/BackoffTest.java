@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.life;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.urn.URN;
+import com.rultor.spi.Rule;
+import com.rultor.tools.Time;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link Backoff}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class BackoffTest {
+
+    /**
+     * Backoff can pulse busy rules every minute.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void pulsesBusyRulesEveryMinute() throws Exception {
+        MatcherAssert.assertThat(
+            BackoffTest.pulses(new Backoff(Tv.TEN), 0, "", Tv.HUNDRED),
+            Matchers.equalTo(Tv.HUNDRED)
+        );
+    }
+
+    /**
+     * Backoff can slow down idle rules up to the ceiling.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void slowsDownIdleRules() throws Exception {
+        MatcherAssert.assertThat(
+            BackoffTest.pulses(new Backoff(Tv.HUNDRED), 2, "", Tv.HUNDRED),
+            Matchers.equalTo(Tv.TWENTY + Tv.FIVE)
+        );
+        MatcherAssert.assertThat(
+            BackoffTest.pulses(new Backoff(Tv.TEN), Tv.TEN, "", Tv.HUNDRED),
+            Matchers.equalTo(Tv.TEN)
+        );
+    }
+
+    /**
+     * Backoff can ignore rules with a schedule.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void ignoresScheduledRules() throws Exception {
+        MatcherAssert.assertThat(
+            BackoffTest.pulses(
+                new Backoff(Tv.TEN), Tv.FIVE, "* * * * *", Tv.HUNDRED
+            ),
+            Matchers.equalTo(Tv.HUNDRED)
+        );
+    }
+
+    /**
+     * Count pulses of a rule during given number of minutes.
+     * @param backoff Backoff to use
+     * @param idle Idle pulses of the rule
+     * @param schedule Schedule of the rule
+     * @param minutes How many minutes to check
+     * @return How many times the rule is due
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    private static int pulses(final Backoff backoff, final int idle,
+        final String schedule, final int minutes) {
+        final Rule rule = Mockito.mock(Rule.class);
+        Mockito.doReturn("some-rule").when(rule).name();
+        Mockito.doReturn(schedule).when(rule).schedule();
+        Mockito.doReturn(idle).when(rule).idle();
+        final URN owner = URN.create("urn:test:5");
+        final long start = new Time().round().millis();
+        int total = 0;
+        for (int minute = 0; minute < minutes; ++minute) {
+            final Time time = new Time(
+                start + TimeUnit.MINUTES.toMillis(minute)
+            );
+            if (backoff.due(owner, rule, time)) {
+                ++total;
+            }
+        }
+        return total;
+    }
+
+}
@@ -78,6 +78,7 @@ public final class SQSQuartzTest {
         Mockito.doReturn(Arrays.asList(rule).iterator())
             .when(rules).iterator();
         Mockito.doReturn(new Spec.Simple()).when(rule).spec();
+        Mockito.doReturn("").when(rule).schedule();
         final Queue queue = Mockito.mock(Queue.class);
         final SQSClient client = Mockito.mock(SQSClient.class);
         final AmazonSQS aws = Mockito.mock(AmazonSQS.class);
@@ -125,4 +126,53 @@ public final class SQSQuartzTest {
         );
     }
 
+    /**
+     * SQSQuartz can skip rules that are not due by their schedules.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void skipsRulesThatAreNotDue() throws Exception {
+        final Users users = Mockito.mock(Users.class);
+        final User user = Mockito.mock(User.class);
+        Mockito.doReturn(Arrays.asList(user).iterator())
+            .when(users).iterator();
+        Mockito.doReturn(new URN("urn:github:2")).when(user).urn();
+        final Rule hourly = Mockito.mock(Rule.class);
+        Mockito.doReturn("hourly-rule").when(hourly).name();
+        Mockito.doReturn("0 * * * *").when(hourly).schedule();
+        final Rule often = Mockito.mock(Rule.class);
+        Mockito.doReturn("often-rule").when(often).name();
+        Mockito.doReturn("*/2 * * * *").when(often).schedule();
+        final Rules rules = Mockito.mock(Rules.class);
+        Mockito.doReturn(rules).when(user).rules();
+        Mockito.doReturn(Arrays.asList(hourly, often).iterator())
+            .when(rules).iterator();
+        final Queue queue = Mockito.mock(Queue.class);
+        final SQSClient client = Mockito.mock(SQSClient.class);
+        final AmazonSQS aws = Mockito.mock(AmazonSQS.class);
+        Mockito.doReturn(aws).when(client).get();
+        Mockito.doReturn(
+            new ReceiveMessageResult().withMessages(
+                new Message()
+                    .withBody("2013-07-21T13:36:00Z")
+                    .withReceiptHandle("handle")
+            )
+        ).when(aws).receiveMessage(Mockito.any(ReceiveMessageRequest.class));
+        new SQSQuartz(users, queue, client).run();
+        Mockito.verify(queue, Mockito.times(1)).push(
+            Mockito.any(Coordinates.class)
+        );
+        Mockito.verify(queue).push(
+            Mockito.argThat(
+                new CustomMatcher<Coordinates>("often rule") {
+                    @Override
+                    public boolean matches(final Object work) {
+                        return Coordinates.class.cast(work)
+                            .rule().equals("often-rule");
+                    }
+                }
+            )
+        );
+    }
+
 }
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.life;
+
+import com.jcabi.urn.URN;
+import com.rultor.spi.Coordinates;
+import com.rultor.spi.Queue;
+import com.rultor.spi.Rule;
+import com.rultor.spi.Rules;
+import com.rultor.spi.User;
+import com.rultor.spi.Users;
+import com.rultor.stateful.Notepad;
+import com.rultor.tools.Time;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Test case for {@link ShardedQuartz}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @checkstyle ClassDataAbstractionCoupling (500 lines)
+ */
+public final class ShardedQuartzTest {
+
+    /**
+     * ShardedQuartz can publish every rule exactly once by a few nodes,
+     * and rebalance when a node leaves.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public void publishesEveryRuleOnceAmongNodes() throws Exception {
+        final int total = 50;
+        final Users users = ShardedQuartzTest.users(total);
+        final Notepad notepad = new ShardedQuartzTest.MemoryNotepad();
+        final Queue.Memory queue = new Queue.Memory();
+        final List<ShardedQuartz> nodes = new ArrayList<ShardedQuartz>(0);
+        final List<Membership> members = new ArrayList<Membership>(0);
+        final long timeout = TimeUnit.MINUTES.toMillis(2);
+        final Time first = new Time("2013-07-21T13:36:00Z");
+        for (int idx = 0; idx < 2 + 1; ++idx) {
+            final Membership member = new Membership(
+                notepad, String.format("node-%d", idx), timeout
+            );
+            member.beat(first);
+            members.add(member);
+            nodes.add(new ShardedQuartz(users, queue, member));
+        }
+        int published = 0;
+        for (ShardedQuartz node : nodes) {
+            final int shard = node.tick(first);
+            MatcherAssert.assertThat(shard, Matchers.lessThan(total));
+            published += shard;
+        }
+        MatcherAssert.assertThat(published, Matchers.equalTo(total));
+        MatcherAssert.assertThat(
+            ShardedQuartzTest.drain(queue, first),
+            Matchers.equalTo(total)
+        );
+        nodes.remove(0).close();
+        final Time second = new Time("2013-07-21T13:37:00Z");
+        published = 0;
+        for (ShardedQuartz node : nodes) {
+            published += node.tick(second);
+        }
+        MatcherAssert.assertThat(published, Matchers.equalTo(total));
+        MatcherAssert.assertThat(
+            ShardedQuartzTest.drain(queue, second),
+            Matchers.equalTo(total)
+        );
+        for (ShardedQuartz node : nodes) {
+            node.close();
+        }
+    }
+
+    /**
+     * Membership can ignore malformed heartbeats and let the leader
+     * remove them.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void ignoresMalformedHeartbeats() throws Exception {
+        final Notepad notepad = new ShardedQuartzTest.MemoryNotepad();
+        notepad.add("broken");
+        notepad.add("node-x yesterday");
+        final Membership member = new Membership(
+            notepad, "node-a", TimeUnit.MINUTES.toMillis(2)
+        );
+        final Time time = new Time("2013-07-21T13:36:00Z");
+        MatcherAssert.assertThat(
+            member.beat(time), Matchers.contains("node-a")
+        );
+        MatcherAssert.assertThat(
+            notepad,
+            Matchers.contains(String.format("node-a %d", time.millis()))
+        );
+    }
+
+    /**
+     * Count and remove works scheduled at the given time.
+     * @param queue The queue
+     * @param time Time of works
+     * @return How many works found
+     * @throws Exception If fails
+     */
+    private static int drain(final Queue queue, final Time time)
+        throws Exception {
+        int found = 0;
+        while (true) {
+            final Coordinates work = queue.pull(1, TimeUnit.MILLISECONDS);
+            if (work == null) {
+                break;
+            }
+            if (work.scheduled().equals(time)) {
+                ++found;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Make users with one rule each.
+     * @param total How many users to make
+     * @return Users
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private static Users users(final int total) {
+        final Collection<User> all = new ArrayList<User>(total);
+        for (int idx = 0; idx < total; ++idx) {
+            final User user = Mockito.mock(User.class);
+            Mockito.doReturn(new URN(String.format("urn:github:%d", idx)))
+                .when(user).urn();
+            final Rule rule = Mockito.mock(Rule.class);
+            Mockito.doReturn("some-rule").when(rule).name();
+            Mockito.doReturn("").when(rule).schedule();
+            final Rules rules = Mockito.mock(Rules.class);
+            Mockito.doReturn(rules).when(user).rules();
+            Mockito.doAnswer(
+                new Answer<Object>() {
+                    @Override
+                    public Object answer(final InvocationOnMock inv) {
+                        return Arrays.asList(rule).iterator();
+                    }
+                }
+            ).when(rules).iterator();
+            all.add(user);
+        }
+        final Users users = Mockito.mock(Users.class);
+        Mockito.doAnswer(
+            new Answer<Object>() {
+                @Override
+                public Object answer(final InvocationOnMock inv) {
+                    return all.iterator();
+                }
+            }
+        ).when(users).iterator();
+        return users;
+    }
+
+    /**
+     * In-memory notepad, shared by all nodes.
+     */
+    private static final class MemoryNotepad
+        extends ConcurrentSkipListSet<String> implements Notepad {
+        /**
+         * Serialization marker.
+         */
+        private static final long serialVersionUID = 0x6547ef9a90cb3dfcL;
+    }
+
+}
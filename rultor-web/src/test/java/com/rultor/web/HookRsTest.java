@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.manifests.Manifests;
+import com.jcabi.urn.URN;
+import com.rexsl.page.HttpHeadersMocker;
+import com.rexsl.page.ServletContextMocker;
+import com.rexsl.page.UriInfoMocker;
+import com.rexsl.page.auth.Identity;
+import com.rultor.spi.Coordinates;
+import com.rultor.spi.Queue;
+import com.rultor.spi.Rule;
+import com.rultor.spi.Rules;
+import com.rultor.spi.Spec;
+import com.rultor.spi.User;
+import com.rultor.spi.Users;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.WebApplicationException;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link HookRs}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class HookRsTest {
+
+    /**
+     * Pre-load test MANIFEST.MF.
+     * @throws IOException If fails
+     */
+    @BeforeClass
+    public static void manifests() throws IOException {
+        Manifests.inject("Rultor-Revision", "12345");
+        Manifests.inject("Rultor-SecurityKey", "secret-key");
+    }
+
+    /**
+     * HookRs can trigger only rules that mention the repository.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void triggersRulesOfPushedRepository() throws Exception {
+        final URN urn = new URN("urn:test:77");
+        final Queue queue = new Queue.Memory();
+        final HookRs rest = this.rest(
+            urn, queue,
+            HookRsTest.rule("first", "Git(\"git@github.com:foo/bar.git\")"),
+            HookRsTest.rule("second", "\"https://github.com/Foo/Bar\""),
+            HookRsTest.rule("third", "\"git@github.com:foo/bar-ext.git\""),
+            HookRsTest.rule("fourth", "\"git@bitbucket.org:foo/bar.git\"")
+        );
+        rest.setUser(urn.toString());
+        rest.setKey(HookRsTest.key(urn));
+        MatcherAssert.assertThat(
+            rest.index(
+                IOUtils.toInputStream(
+                    String.format(
+                        "payload=%s",
+                        URLEncoder.encode(
+                            // @checkstyle LineLength (1 line)
+                            "{\"ref\":\"refs/heads/master\",\"repository\":{\"url\":\"https://github.com/foo/bar\"}}",
+                            CharEncoding.UTF_8
+                        )
+                    )
+                )
+            ),
+            Matchers.equalTo("2")
+        );
+        final Coordinates first = queue.pull(1, TimeUnit.SECONDS);
+        MatcherAssert.assertThat(first.owner(), Matchers.equalTo(urn));
+        MatcherAssert.assertThat(
+            first, Matchers.instanceOf(Coordinates.Triggered.class)
+        );
+        MatcherAssert.assertThat(
+            Arrays.asList(
+                first.rule(),
+                queue.pull(1, TimeUnit.SECONDS).rule()
+            ),
+            Matchers.containsInAnyOrder("first", "second")
+        );
+    }
+
+    /**
+     * HookRs can reject a notification with a wrong key.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = WebApplicationException.class)
+    public void rejectsWrongKey() throws Exception {
+        final URN urn = new URN("urn:test:78");
+        final HookRs rest = this.rest(urn, new Queue.Memory());
+        rest.setUser(urn.toString());
+        rest.setKey("invalid-key");
+        rest.index(IOUtils.toInputStream("{}"));
+    }
+
+    /**
+     * HookRs can reject a notification with a broken repository URL.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void rejectsBrokenRepositoryUrl() throws Exception {
+        final URN urn = new URN("urn:test:79");
+        final HookRs rest = this.rest(urn, new Queue.Memory());
+        rest.setUser(urn.toString());
+        rest.setKey(HookRsTest.key(urn));
+        try {
+            rest.index(
+                IOUtils.toInputStream(
+                    "{\"repository\":{\"url\":\"http://host/a b\"}}"
+                )
+            );
+            throw new AssertionError("broken URL accepted");
+        } catch (WebApplicationException ex) {
+            MatcherAssert.assertThat(
+                ex.getResponse().getStatus(),
+                Matchers.equalTo(HttpURLConnection.HTTP_BAD_REQUEST)
+            );
+        }
+    }
+
+    /**
+     * Make resource.
+     * @param urn Owner of the rules
+     * @param queue Queue to use
+     * @param rules Rules of the user
+     * @return Resource
+     */
+    private HookRs rest(final URN urn, final Queue queue,
+        final Rule... rules) {
+        final Rules all = Mockito.mock(Rules.class);
+        Mockito.doReturn(Arrays.asList(rules).iterator())
+            .when(all).iterator();
+        final User user = Mockito.mock(User.class);
+        Mockito.doReturn(all).when(user).rules();
+        final Users users = Mockito.mock(Users.class);
+        Mockito.doReturn(user).when(users).get(urn);
+        final HookRs rest = new HookRs();
+        rest.setServletContext(
+            new ServletContextMocker()
+                .withAttribute(Users.class.getName(), users)
+                .withAttribute(Queue.class.getName(), queue)
+                .mock()
+        );
+        rest.setHttpHeaders(new HttpHeadersMocker().mock());
+        rest.setUriInfo(new UriInfoMocker().mock());
+        return rest;
+    }
+
+    /**
+     * Make rule.
+     * @param name Name of it
+     * @param spec Spec of it
+     * @return Rule
+     */
+    private static Rule rule(final String name, final String spec) {
+        final Rule rule = Mockito.mock(Rule.class);
+        Mockito.doReturn(name).when(rule).name();
+        Mockito.doReturn(new Spec.Simple(spec)).when(rule).spec();
+        return rule;
+    }
+
+    /**
+     * Make API key of the user.
+     * @param urn The user
+     * @return Key
+     */
+    private static String key(final URN urn) {
+        return new AuthKeys().make(
+            new Identity.Simple(urn, "", URI.create("#"))
+        );
+    }
+
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.web;
+
+import com.jcabi.manifests.Manifests;
+import com.jcabi.urn.URN;
+import com.rexsl.page.HttpHeadersMocker;
+import com.rexsl.page.ServletContextMocker;
+import com.rexsl.page.UriInfoMocker;
+import com.rultor.spi.Arguments;
+import com.rultor.spi.Drain;
+import com.rultor.spi.Repo;
+import com.rultor.spi.Rule;
+import com.rultor.spi.Rules;
+import com.rultor.spi.Spec;
+import com.rultor.spi.User;
+import com.rultor.spi.Users;
+import com.rultor.spi.Variable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Test case for {@link PulseRs}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @checkstyle MultipleStringLiterals (500 lines)
+ * @checkstyle ClassDataAbstractionCoupling (500 lines)
+ */
+public final class PulseRsTest {
+
+    /**
+     * Content of the drain.
+     */
+    private static final String CONTENT = "0123456789";
+
+    /**
+     * HTTP status of a range that can't be satisfied.
+     */
+    private static final int UNSATISFIABLE = 416;
+
+    /**
+     * Pre-load test MANIFEST.MF.
+     * @throws IOException If fails
+     */
+    @BeforeClass
+    public static void manifests() throws IOException {
+        Manifests.inject("Rultor-Revision", "12345");
+    }
+
+    /**
+     * PulseRs can send a range with both ends.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void sendsRangeWithBothEnds() throws Exception {
+        final Response response = this.rest("bytes=2-5").stream();
+        MatcherAssert.assertThat(
+            response.getStatus(),
+            Matchers.equalTo(HttpURLConnection.HTTP_PARTIAL)
+        );
+        MatcherAssert.assertThat(
+            response.getMetadata().getFirst("Content-Range"),
+            Matchers.<Object>hasToString("bytes 2-5/10")
+        );
+        MatcherAssert.assertThat(
+            PulseRsTest.entity(response),
+            Matchers.equalTo("2345")
+        );
+    }
+
+    /**
+     * PulseRs can send a range without the last position.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void sendsRangeWithoutEnd() throws Exception {
+        final Response response = this.rest("bytes=7-").stream();
+        MatcherAssert.assertThat(
+            response.getStatus(),
+            Matchers.equalTo(HttpURLConnection.HTTP_PARTIAL)
+        );
+        MatcherAssert.assertThat(
+            PulseRsTest.entity(response),
+            Matchers.equalTo("789")
+        );
+    }
+
+    /**
+     * PulseRs can send the last bytes.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void sendsSuffixRange() throws Exception {
+        final Response response = this.rest("bytes=-4").stream();
+        MatcherAssert.assertThat(
+            response.getMetadata().getFirst("Content-Range"),
+            Matchers.<Object>hasToString("bytes 6-9/10")
+        );
+        MatcherAssert.assertThat(
+            PulseRsTest.entity(response),
+            Matchers.equalTo("6789")
+        );
+    }
+
+    /**
+     * PulseRs can reject a range that starts after the content.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void rejectsUnsatisfiableRange() throws Exception {
+        final Response response = this.rest("bytes=10-").stream();
+        MatcherAssert.assertThat(
+            response.getStatus(),
+            Matchers.equalTo(PulseRsTest.UNSATISFIABLE)
+        );
+        MatcherAssert.assertThat(
+            response.getMetadata().getFirst("Content-Range"),
+            Matchers.<Object>hasToString("bytes */10")
+        );
+    }
+
+    /**
+     * PulseRs can send the entire content without a range.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void sendsEntireContent() throws Exception {
+        final Response response = this.rest(null).stream();
+        MatcherAssert.assertThat(
+            response.getStatus(),
+            Matchers.equalTo(HttpURLConnection.HTTP_OK)
+        );
+        MatcherAssert.assertThat(
+            PulseRsTest.entity(response),
+            Matchers.equalTo(PulseRsTest.CONTENT)
+        );
+    }
+
+    /**
+     * PulseRs can reject a broken number of lines.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void rejectsBrokenNumberOfLines() throws Exception {
+        for (String total : new String[] {"-1", "many", "99999999999"}) {
+            try {
+                new PulseRs().setLines(total);
+                throw new AssertionError(total);
+            } catch (WebApplicationException ex) {
+                MatcherAssert.assertThat(
+                    ex.getResponse().getStatus(),
+                    Matchers.equalTo(HttpURLConnection.HTTP_BAD_REQUEST)
+                );
+            }
+        }
+    }
+
+    /**
+     * Make resource.
+     * @param range Range header or NULL
+     * @return Resource
+     * @throws Exception If fails
+     */
+    @SuppressWarnings("unchecked")
+    private PulseRs rest(final String range) throws Exception {
+        final Drain.Ranged drain = Mockito.mock(Drain.Ranged.class);
+        final byte[] bytes = PulseRsTest.CONTENT.getBytes(CharEncoding.UTF_8);
+        Mockito.doReturn((long) bytes.length).when(drain).size();
+        Mockito.doAnswer(
+            new Answer<InputStream>() {
+                @Override
+                public InputStream answer(final InvocationOnMock inv) {
+                    final long offset = (Long) inv.getArguments()[0];
+                    final long length = (Long) inv.getArguments()[1];
+                    return new ByteArrayInputStream(
+                        bytes, (int) offset, (int) length
+                    );
+                }
+            }
+        ).when(drain).read(Mockito.anyLong(), Mockito.anyLong());
+        final Variable<Object> var = Mockito.mock(Variable.class);
+        Mockito.doReturn(drain).when(var).instantiate(
+            Mockito.any(Users.class), Mockito.any(Arguments.class)
+        );
+        final Repo repo = Mockito.mock(Repo.class);
+        Mockito.doReturn(var).when(repo)
+            .make(Mockito.any(User.class), Mockito.any(Spec.class));
+        final Rule rule = Mockito.mock(Rule.class);
+        Mockito.doReturn(new Spec.Simple()).when(rule).drain();
+        final Rules rules = Mockito.mock(Rules.class);
+        Mockito.doReturn(rule).when(rules).get(Mockito.anyString());
+        final User user = Mockito.mock(User.class);
+        Mockito.doReturn(rules).when(user).rules();
+        final Users users = Mockito.mock(Users.class);
+        Mockito.doReturn(user).when(users).get(Mockito.any(URN.class));
+        final PulseRs rest = new PulseRs();
+        rest.setServletContext(
+            new ServletContextMocker()
+                .withAttribute(Users.class.getName(), users)
+                .withAttribute(Repo.class.getName(), repo)
+                .mock()
+        );
+        rest.setHttpHeaders(new HttpHeadersMocker().mock());
+        rest.setUriInfo(new UriInfoMocker().mock());
+        rest.setSecurityContext(Mockito.mock(SecurityContext.class));
+        rest.setName("some-rule");
+        rest.setDate("1");
+        rest.setRange(range);
+        return rest;
+    }
+
+    /**
+     * Read entity of the response.
+     * @param response The response
+     * @return Text
+     * @throws IOException If fails
+     */
+    private static String entity(final Response response) throws IOException {
+        return IOUtils.toString(
+            InputStream.class.cast(response.getEntity()), CharEncoding.UTF_8
+        );
+    }
+
+}